@@ -21,5 +21,40 @@ public @interface EncryptField {
      * 是否启用加密（默认启用）
      */
     boolean enabled() default true;
-}
 
+    /**
+     * 是否懒解密（默认否）
+     * 开启后加载时保留密文，首次通过getter读取时才解密，适用于列表中不一定展示的大字段；
+     * 实体需声明 {@link com.barcke.tool.EncryptedFieldHolder} 类型的 @Transient 字段，并在getter中调用其 reveal 方法
+     */
+    boolean lazy() default false;
+
+    /**
+     * 压缩阈值（默认-1，不压缩）
+     * 明文UTF-8字节数达到该值时先Deflate压缩再加密（密文头部标志位记录是否压缩，压缩后不更小则不压缩），
+     * 适用于富文本、语音转写等较长的可压缩文本；短文本压缩收益小，低于阈值的值直接加密
+     */
+    int compressThreshold() default -1;
+
+    /**
+     * 密文存储格式（默认文本）
+     * BINARY：保存原始字节（比Base64文本小约25%，读取时无需Base64解码），
+     * 字段需同时声明 @Convert(converter = BinaryCiphertextConverter.class)，列类型为 VARBINARY/BLOB
+     */
+    Storage storage() default Storage.TEXT;
+
+    /**
+     * 密文存储格式
+     */
+    enum Storage {
+        /**
+         * 文本："$" + Base64
+         */
+        TEXT,
+
+        /**
+         * 二进制：头部 + IV + 密文 + 认证标签 的原始字节
+         */
+        BINARY
+    }
+}
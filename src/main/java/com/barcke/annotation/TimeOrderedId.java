@@ -0,0 +1,25 @@
+package com.barcke.annotation;
+
+import com.barcke.tool.TimeOrderedIdGenerator;
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className TimeOrderedId
+ * @date 2025/12/24
+ * @slogan: 源于生活 高于生活
+ * @description: 标记使用时间有序ID（UUIDv7 字符串）的主键字段注解，代替 @GeneratedValue(strategy = GenerationType.UUID)
+ * 新行的主键按插入时间递增，插入总是落在主键索引末尾，不会像随机 UUID 一样分散写入整棵 B 树
+ **/
+@IdGeneratorType(TimeOrderedIdGenerator.class)
+@Target({ElementType.FIELD, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface TimeOrderedId {
+}
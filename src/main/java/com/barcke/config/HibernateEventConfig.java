@@ -0,0 +1,41 @@
+package com.barcke.config;
+
+import com.barcke.listener.EncryptionEventListener;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className HibernateEventConfig
+ * @date 2025/12/18
+ * @slogan: 源于生活 高于生活
+ * @description: Hibernate事件配置类，注册字段加密监听器
+ **/
+@Configuration
+@RequiredArgsConstructor
+public class HibernateEventConfig {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final EncryptionEventListener encryptionEventListener;
+
+    @PostConstruct
+    public void registerListeners() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+
+        registry.appendListeners(EventType.PRE_INSERT, encryptionEventListener);
+        registry.appendListeners(EventType.PRE_UPDATE, encryptionEventListener);
+        registry.appendListeners(EventType.POST_INSERT, encryptionEventListener);
+        registry.appendListeners(EventType.POST_UPDATE, encryptionEventListener);
+        registry.appendListeners(EventType.PRE_LOAD, encryptionEventListener);
+    }
+}
@@ -0,0 +1,75 @@
+package com.barcke.controller;
+
+import com.barcke.common.Result;
+import com.barcke.dto.kms.CryptoJobResponse;
+import com.barcke.service.CryptoJobService;
+import com.barcke.service.MasterKeyRewrapService;
+import com.barcke.service.PlaintextScanService;
+import com.barcke.service.TodoTitleIndexService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className KmsController
+ * @date 2025/12/19
+ * @slogan: 源于生活 高于生活
+ * @description: 密钥管理控制器
+ **/
+@RestController
+@RequestMapping("/kms")
+@RequiredArgsConstructor
+public class KmsController {
+
+    private final CryptoJobService cryptoJobService;
+    private final MasterKeyRewrapService masterKeyRewrapService;
+    private final PlaintextScanService plaintextScanService;
+    private final TodoTitleIndexService todoTitleIndexService;
+
+    /**
+     * 轮换当前用户密钥（旧数据由后台任务重加密）
+     */
+    @PostMapping("/rotate")
+    public Result<CryptoJobResponse> rotateUserKey() {
+        CryptoJobResponse response = cryptoJobService.rotateUserKey();
+        return Result.success("密钥轮换成功", response);
+    }
+
+    /**
+     * 查询重加密任务进度
+     */
+    @GetMapping("/rotate/progress")
+    public Result<CryptoJobResponse> getReencryptProgress() {
+        CryptoJobResponse response = cryptoJobService.getReencryptProgress();
+        return Result.success(response);
+    }
+
+    /**
+     * 查询主密钥重新包装任务进度（任务在应用启动时发现旧主密钥包装的用户密钥后自动创建）
+     */
+    @GetMapping("/master-key/rewrap/progress")
+    public Result<CryptoJobResponse> getRewrapProgress() {
+        CryptoJobResponse response = masterKeyRewrapService.getRewrapProgress();
+        return Result.success(response);
+    }
+
+    /**
+     * 查询明文扫描任务进度（任务在应用启动时自动创建，完成后可以开启kms.strict）
+     */
+    @GetMapping("/scan/progress")
+    public Result<CryptoJobResponse> getScanProgress() {
+        CryptoJobResponse response = plaintextScanService.getScanProgress();
+        return Result.success(response);
+    }
+
+    /**
+     * 查询标题索引重建任务进度（任务在应用启动时自动创建，为索引功能上线前的 Todo 补建标题索引）
+     */
+    @GetMapping("/index/progress")
+    public Result<CryptoJobResponse> getIndexProgress() {
+        CryptoJobResponse response = todoTitleIndexService.getRebuildProgress();
+        return Result.success(response);
+    }
+}
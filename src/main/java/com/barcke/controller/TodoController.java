@@ -1,6 +1,8 @@
 package com.barcke.controller;
 
 import com.barcke.common.Result;
+import com.barcke.dto.todo.TodoBulkRequest;
+import com.barcke.dto.todo.TodoBulkResponse;
 import com.barcke.dto.todo.TodoCreateRequest;
 import com.barcke.dto.todo.TodoResponse;
 import com.barcke.dto.todo.TodoUpdateRequest;
@@ -39,20 +41,21 @@ public class TodoController {
     }
 
     /**
-     * 更新 Todo
+     * 更新 Todo（重复 Todo 可按 scope 修改这一次/这一次及之后/全部重复）
      */
     @PutMapping("/{id}")
-    public Result<TodoResponse> updateTodo(@PathVariable String id, @RequestBody TodoUpdateRequest request) {
-        TodoResponse response = todoService.updateTodo(id, request);
+    public Result<TodoResponse> updateTodo(@PathVariable String id, @RequestBody TodoUpdateRequest request,
+                                           @RequestParam(required = false) String scope) {
+        TodoResponse response = todoService.updateTodo(id, request, scope);
         return Result.success("更新成功", response);
     }
 
     /**
-     * 删除 Todo
+     * 删除 Todo（重复 Todo 可按 scope 删除这一次/这一次及之后/全部重复）
      */
     @DeleteMapping("/{id}")
-    public Result<String> deleteTodo(@PathVariable String id) {
-        todoService.deleteTodo(id);
+    public Result<String> deleteTodo(@PathVariable String id, @RequestParam(required = false) String scope) {
+        todoService.deleteTodo(id, scope);
         return Result.success("删除成功");
     }
 
@@ -65,6 +68,27 @@ public class TodoController {
         return Result.success("标记完成成功", response);
     }
 
+    /**
+     * 批量操作 Todo（按ID列表或筛选条件完成、删除、改期、修改类型），返回处理条数
+     */
+    @PostMapping("/bulk")
+    public Result<TodoBulkResponse> bulkOperate(@Valid @RequestBody TodoBulkRequest request) {
+        TodoBulkResponse response = todoService.bulkOperate(request);
+        return Result.success("操作成功", response);
+    }
+
+    /**
+     * 按标题检索 Todo
+     */
+    @GetMapping("/search")
+    public Result<List<TodoResponse>> searchTodos(
+            @RequestParam String keyword,
+            @RequestParam(defaultValue = "false") boolean exact,
+            @RequestParam(required = false) Integer limit) {
+        List<TodoResponse> responses = todoService.searchTodos(keyword, exact, limit);
+        return Result.success(responses);
+    }
+
     /**
      * 获取 Todo 详情
      */
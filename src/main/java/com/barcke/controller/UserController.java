@@ -2,6 +2,7 @@ package com.barcke.controller;
 
 import com.barcke.common.Result;
 import com.barcke.dto.ChangePasswordRequest;
+import com.barcke.dto.DeleteAccountRequest;
 import com.barcke.dto.UpdateProfileRequest;
 import com.barcke.dto.UserResponse;
 import com.barcke.service.UserService;
@@ -51,5 +52,13 @@ public class UserController {
         userService.changePassword(request.getOldPassword(), request.getNewPassword());
         return Result.success("密码修改成功");
     }
-}
 
+    /**
+     * 注销账号
+     */
+    @DeleteMapping("/account")
+    public Result<String> deleteAccount(@Valid @RequestBody DeleteAccountRequest request) {
+        userService.deleteAccount(request.getPassword());
+        return Result.success("账号已注销");
+    }
+}
@@ -0,0 +1,25 @@
+package com.barcke.dao;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className BatchInsertRepository
+ * @date 2025/12/24
+ * @slogan: 源于生活 高于生活
+ * @description: 批量插入仓库片段（各实体仓库继承即可使用）
+ * 与 saveAll 不同：不逐行判断新旧实体（不会对已有ID的实体先查询再合并），按 JDBC 批大小分段刷新，
+ * 刷新后的行从持久化上下文分离，插入上万行时上下文不会持续增长
+ **/
+public interface BatchInsertRepository<T> {
+
+    /**
+     * 批量插入新实体（按 hibernate.jdbc.batch_size 分段，每段一次 JDBC 批量执行）
+     *
+     * @return 插入的实体（已生成ID，已从持久化上下文分离）
+     */
+    <S extends T> List<S> insertAll(Collection<S> entities);
+}
@@ -0,0 +1,61 @@
+package com.barcke.dao;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className BatchInsertRepositoryImpl
+ * @date 2025/12/24
+ * @slogan: 源于生活 高于生活
+ * @description: 批量插入仓库片段实现类
+ * 加密字段在刷新时由加密监听器加密（同一事务内用户密钥只解析一次），不影响 JDBC 批量执行
+ **/
+public class BatchInsertRepositoryImpl<T> implements BatchInsertRepository<T> {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * 每段行数，与 JDBC 批大小一致
+     */
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:100}")
+    private int batchSize;
+
+    @Override
+    @Transactional
+    public <S extends T> List<S> insertAll(Collection<S> entities) {
+        List<S> inserted = new ArrayList<>(entities.size());
+        List<S> pending = new ArrayList<>(batchSize);
+        for (S entity : entities) {
+            entityManager.persist(entity);
+            pending.add(entity);
+            if (pending.size() >= batchSize) {
+                flush(pending);
+                inserted.addAll(pending);
+                pending.clear();
+            }
+        }
+        if (!pending.isEmpty()) {
+            flush(pending);
+            inserted.addAll(pending);
+        }
+        return inserted;
+    }
+
+    /**
+     * 刷新一段（一次 JDBC 批量执行），只分离本段的实体，不影响调用方上下文中的其他实体
+     */
+    private void flush(List<?> pending) {
+        entityManager.flush();
+        pending.forEach(entityManager::detach);
+    }
+}
@@ -0,0 +1,47 @@
+package com.barcke.dao;
+
+import com.barcke.pojo.CryptoJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className CryptoJobRepository
+ * @date 2025/12/19
+ * @slogan: 源于生活 高于生活
+ * @description: 加密后台任务数据访问层
+ **/
+@Repository
+public interface CryptoJobRepository extends JpaRepository<CryptoJob, String> {
+
+    /**
+     * 按创建时间顺序查询指定类型、指定状态的任务
+     */
+    List<CryptoJob> findByJobTypeAndStatusInOrderByCreatedAtAsc(String jobType, Collection<String> statuses);
+
+    /**
+     * 查询用户指定类型、指定状态的任务
+     */
+    List<CryptoJob> findByUserIdAndJobTypeAndStatusIn(String userId, String jobType, Collection<String> statuses);
+
+    /**
+     * 查询用户指定状态的任务（不限类型）
+     */
+    List<CryptoJob> findByUserIdAndStatusIn(String userId, Collection<String> statuses);
+
+    /**
+     * 查询用户最近一次指定类型的任务
+     */
+    Optional<CryptoJob> findFirstByUserIdAndJobTypeOrderByCreatedAtDesc(String userId, String jobType);
+
+    /**
+     * 查询最近一次指定类型的任务
+     */
+    Optional<CryptoJob> findFirstByJobTypeOrderByCreatedAtDesc(String jobType);
+}
@@ -2,10 +2,12 @@ package com.barcke.dao;
 
 import com.barcke.pojo.TodoAttachment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -25,6 +27,11 @@ public interface TodoAttachmentRepository extends JpaRepository<TodoAttachment,
      */
     List<TodoAttachment> findByTodoId(String todoId);
 
+    /**
+     * 根据Todo ID批量查询附件
+     */
+    List<TodoAttachment> findByTodoIdIn(Collection<String> todoIds);
+
     /**
      * 根据附件ID查询（用于文件读取时的安全校验）
      */
@@ -32,5 +39,11 @@ public interface TodoAttachmentRepository extends JpaRepository<TodoAttachment,
            "LEFT JOIN Todo t ON ta.todoId = t.id " +
            "WHERE ta.attachmentId = :attachmentId AND t.userId = :userId")
     TodoAttachment findByAttachmentIdAndUserId(@Param("attachmentId") String attachmentId, @Param("userId") String userId);
-}
 
+    /**
+     * 删除指定目录下、未关联 Todo 的附件记录
+     */
+    @Modifying
+    @Query("DELETE FROM TodoAttachment ta WHERE ta.todoId IS NULL AND ta.filePath LIKE CONCAT(:directory, '%')")
+    int deleteUnlinkedByDirectory(@Param("directory") String directory);
+}
@@ -1,12 +1,16 @@
 package com.barcke.dao;
 
 import com.barcke.pojo.Todo;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -19,7 +23,7 @@ import java.util.List;
  * @description: Todo 数据访问层
  **/
 @Repository
-public interface TodoRepository extends JpaRepository<Todo, String> {
+public interface TodoRepository extends JpaRepository<Todo, String>, BatchInsertRepository<Todo> {
 
     /**
      * 根据用户ID和日期查询
@@ -51,6 +55,36 @@ public interface TodoRepository extends JpaRepository<Todo, String> {
      */
     Todo findByUserIdAndIdAndDelFlagFalse(String userId, String id);
 
+    /**
+     * 根据重复序列和原始日期查询单独保存的重复（包括已删除的）
+     */
+    Todo findBySeriesIdAndOccurrenceDate(String seriesId, LocalDate occurrenceDate);
+
+    /**
+     * 查询日期范围内单独保存的重复的序列ID、原始日期、ID和删除标记（包括已删除的，展开序列时跳过这些日期）
+     */
+    @Query("SELECT t.seriesId, t.occurrenceDate, t.id, t.delFlag FROM Todo t " +
+           "WHERE t.seriesId IN :seriesIds AND t.occurrenceDate BETWEEN :startDate AND :endDate")
+    List<Object[]> findOccurrenceDates(@Param("seriesIds") Collection<String> seriesIds,
+                                       @Param("startDate") LocalDate startDate,
+                                       @Param("endDate") LocalDate endDate);
+
+    /**
+     * 查询序列中指定日期及之后单独保存、未删除的重复ID
+     */
+    @Query("SELECT t.id FROM Todo t WHERE t.seriesId = :seriesId AND t.occurrenceDate >= :fromDate AND t.delFlag = false")
+    List<String> findSavedOccurrenceIds(@Param("seriesId") String seriesId, @Param("fromDate") LocalDate fromDate);
+
+    /**
+     * 软删除序列中指定日期及之后单独保存的重复
+     */
+    @Modifying
+    @Query("UPDATE Todo t SET t.delFlag = true, t.updatedAt = :updatedAt " +
+           "WHERE t.seriesId = :seriesId AND t.occurrenceDate >= :fromDate AND t.delFlag = false")
+    int softDeleteOccurrences(@Param("seriesId") String seriesId,
+                              @Param("fromDate") LocalDate fromDate,
+                              @Param("updatedAt") LocalDateTime updatedAt);
+
     /**
      * 月视图数据聚合查询
      */
@@ -70,5 +104,16 @@ public interface TodoRepository extends JpaRepository<Todo, String> {
            "LEFT JOIN TodoType tt ON t.typeId = tt.typeId " +
            "WHERE t.userId = :userId AND t.date = :date AND t.status = 'completed' AND t.delFlag = false AND tt.icon IS NOT NULL")
     List<String> getCompletedTypeIcons(@Param("userId") String userId, @Param("date") LocalDate date);
-}
 
+    /**
+     * 按标题盲索引令牌查询（包含全部令牌的 Todo，只走索引，不扫描用户的全部 Todo）
+     */
+    @Query("SELECT t FROM Todo t WHERE t.userId = :userId AND t.delFlag = false AND t.id IN (" +
+           "SELECT k.todoId FROM TodoTitleToken k WHERE k.userId = :userId AND k.token IN :tokens " +
+           "GROUP BY k.todoId HAVING COUNT(DISTINCT k.token) = :tokenCount) " +
+           "ORDER BY t.date DESC, t.time DESC")
+    List<Todo> searchByTitleTokens(@Param("userId") String userId,
+                                   @Param("tokens") Collection<String> tokens,
+                                   @Param("tokenCount") long tokenCount,
+                                   Pageable pageable);
+}
@@ -0,0 +1,56 @@
+package com.barcke.dao;
+
+import com.barcke.pojo.TodoSeries;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className TodoSeriesRepository
+ * @date 2025/12/23
+ * @slogan: 源于生活 高于生活
+ * @description: 重复 Todo 序列数据访问层
+ **/
+@Repository
+public interface TodoSeriesRepository extends JpaRepository<TodoSeries, String> {
+
+    /**
+     * 查询可能在日期范围内有重复的序列（范围结束前开始、范围开始后才结束）
+     */
+    @Query("SELECT s FROM TodoSeries s WHERE s.userId = :userId AND s.delFlag = false " +
+           "AND s.startDate <= :endDate AND (s.endDate IS NULL OR s.endDate >= :startDate)")
+    List<TodoSeries> findActiveSeries(@Param("userId") String userId,
+                                      @Param("startDate") LocalDate startDate,
+                                      @Param("endDate") LocalDate endDate);
+
+    /**
+     * 根据用户ID和ID查询
+     */
+    TodoSeries findByUserIdAndIdAndDelFlagFalse(String userId, String id);
+
+    /**
+     * 根据用户ID和ID列表查询
+     */
+    List<TodoSeries> findByUserIdAndIdInAndDelFlagFalse(String userId, Collection<String> ids);
+
+    /**
+     * 按标题盲索引令牌查询（令牌的 todoId 为序列ID）
+     */
+    @Query("SELECT s FROM TodoSeries s WHERE s.userId = :userId AND s.delFlag = false AND s.id IN (" +
+           "SELECT k.todoId FROM TodoTitleToken k WHERE k.userId = :userId AND k.token IN :tokens " +
+           "GROUP BY k.todoId HAVING COUNT(DISTINCT k.token) = :tokenCount) " +
+           "ORDER BY s.startDate DESC, s.time DESC")
+    List<TodoSeries> searchByTitleTokens(@Param("userId") String userId,
+                                         @Param("tokens") Collection<String> tokens,
+                                         @Param("tokenCount") long tokenCount,
+                                         Pageable pageable);
+}
@@ -0,0 +1,30 @@
+package com.barcke.dao;
+
+import com.barcke.pojo.TodoTitleToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className TodoTitleTokenRepository
+ * @date 2025/12/21
+ * @slogan: 源于生活 高于生活
+ * @description: Todo 标题盲索引令牌数据访问层
+ **/
+@Repository
+public interface TodoTitleTokenRepository extends JpaRepository<TodoTitleToken, String>, BatchInsertRepository<TodoTitleToken> {
+
+    /**
+     * 删除 Todo 的全部令牌
+     */
+    @Modifying
+    @Query("DELETE FROM TodoTitleToken k WHERE k.todoId IN :todoIds")
+    int deleteByTodoIds(@Param("todoIds") Collection<String> todoIds);
+}
@@ -0,0 +1,35 @@
+package com.barcke.dao;
+
+import com.barcke.pojo.UserKeyHistory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className UserKeyHistoryRepository
+ * @date 2025/12/19
+ * @slogan: 源于生活 高于生活
+ * @description: 用户历史密钥数据访问层
+ **/
+@Repository
+public interface UserKeyHistoryRepository extends JpaRepository<UserKeyHistory, String> {
+
+    /**
+     * 根据用户ID和密钥版本查询历史密钥
+     */
+    Optional<UserKeyHistory> findByUserIdAndKeyVersion(String userId, Integer keyVersion);
+
+    /**
+     * 删除用户的全部历史密钥
+     */
+    @Modifying
+    @Query("DELETE FROM UserKeyHistory k WHERE k.userId = :userId")
+    int deleteByUserId(@Param("userId") String userId);
+}
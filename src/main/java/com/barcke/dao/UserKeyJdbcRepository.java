@@ -0,0 +1,102 @@
+package com.barcke.dao;
+
+import com.barcke.pojo.UserKey;
+import com.barcke.pojo.UserKeyHistory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className UserKeyJdbcRepository
+ * @date 2025/12/26
+ * @slogan: 源于生活 高于生活
+ * @description: 用户密钥JDBC数据访问层
+ * 加密监听器在Hibernate刷新、加载实体的过程中解析用户密钥，这里直接用当前事务绑定的数据库连接读写 user_key，
+ * 不经过调用方Session（不会触发刷新），也不另开事务占用第二个连接池连接
+ **/
+@Repository
+@RequiredArgsConstructor
+public class UserKeyJdbcRepository {
+
+    private static final RowMapper<UserKey> USER_KEY_MAPPER = (resultSet, rowNum) -> UserKey.builder()
+            .id(resultSet.getString("id"))
+            .userId(resultSet.getString("user_id"))
+            .encryptedKey(resultSet.getString("encrypted_key"))
+            .masterKeyId(resultSet.getString("master_key_id"))
+            .keyVersion(resultSet.getInt("key_version"))
+            .build();
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * 根据用户ID查询密钥
+     *
+     * @param forUpdate 是否加锁读取（读取其他事务刚提交的密钥）
+     */
+    public Optional<UserKey> findByUserId(String userId, boolean forUpdate) {
+        return jdbcTemplate.query("select id, user_id, encrypted_key, master_key_id, key_version from user_key"
+                                + " where user_id = :userId" + (forUpdate ? " for update" : ""),
+                        Map.of("userId", userId), USER_KEY_MAPPER)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * 根据用户ID批量查询密钥
+     */
+    public List<UserKey> findByUserIdIn(Collection<String> userIds) {
+        return jdbcTemplate.query("select id, user_id, encrypted_key, master_key_id, key_version from user_key"
+                + " where user_id in (:userIds)", Map.of("userIds", userIds), USER_KEY_MAPPER);
+    }
+
+    /**
+     * 根据用户ID和版本号查询历史密钥
+     */
+    public Optional<UserKeyHistory> findHistory(String userId, int keyVersion) {
+        return jdbcTemplate.query("select id, user_id, encrypted_key, master_key_id, key_version from user_key_history"
+                                + " where user_id = :userId and key_version = :keyVersion",
+                        Map.of("userId", userId, "keyVersion", keyVersion),
+                        (resultSet, rowNum) -> UserKeyHistory.builder()
+                                .id(resultSet.getString("id"))
+                                .userId(resultSet.getString("user_id"))
+                                .encryptedKey(resultSet.getString("encrypted_key"))
+                                .masterKeyId(resultSet.getString("master_key_id"))
+                                .keyVersion(resultSet.getInt("key_version"))
+                                .build())
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * 保存新用户密钥（user_id唯一约束冲突时抛出 DuplicateKeyException）
+     */
+    public void insert(UserKey userKey) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("id", UUID.randomUUID().toString());
+        parameters.put("userId", userKey.getUserId());
+        parameters.put("encryptedKey", userKey.getEncryptedKey());
+        parameters.put("masterKeyId", userKey.getMasterKeyId());
+        parameters.put("keyVersion", userKey.getKeyVersion());
+        parameters.put("now", now);
+        jdbcTemplate.update("insert into user_key (id, user_id, encrypted_key, master_key_id, key_version,"
+                + " created_at, updated_at) values (:id, :userId, :encryptedKey, :masterKeyId, :keyVersion, :now, :now)",
+                parameters);
+    }
+
+    /**
+     * 用户是否已注销
+     */
+    public boolean isDeletedUser(String userId) {
+        Integer count = jdbcTemplate.queryForObject("select count(*) from user_info"
+                + " where user_id = :userId and deleted_at is not null", Map.of("userId", userId), Integer.class);
+        return count != null && count > 0;
+    }
+}
@@ -2,6 +2,9 @@ package com.barcke.dao;
 
 import com.barcke.pojo.UserKey;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -22,5 +25,11 @@ public interface UserKeyRepository extends JpaRepository<UserKey, String> {
      * 根据用户ID查询密钥
      */
     Optional<UserKey> findByUserId(String userId);
-}
 
+    /**
+     * 删除用户密钥
+     */
+    @Modifying
+    @Query("DELETE FROM UserKey k WHERE k.userId = :userId")
+    int deleteByUserId(@Param("userId") String userId);
+}
@@ -0,0 +1,22 @@
+package com.barcke.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className DeleteAccountRequest
+ * @date 2025/12/22
+ * @slogan: 源于生活 高于生活
+ * @description: 注销账号请求DTO
+ **/
+@Data
+public class DeleteAccountRequest {
+    /**
+     * 密码（确认身份）
+     */
+    @NotBlank(message = "密码不能为空")
+    private String password;
+}
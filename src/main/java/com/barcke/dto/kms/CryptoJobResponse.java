@@ -0,0 +1,88 @@
+package com.barcke.dto.kms;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className CryptoJobResponse
+ * @date 2025/12/19
+ * @slogan: 源于生活 高于生活
+ * @description: 加密后台任务响应DTO
+ **/
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CryptoJobResponse {
+    /**
+     * 任务ID
+     */
+    private String id;
+
+    /**
+     * 任务类型
+     */
+    private String jobType;
+
+    /**
+     * 状态（pending/running/completed/failed/cancelled）
+     */
+    private String status;
+
+    /**
+     * 目标密钥版本
+     */
+    private Integer targetKeyVersion;
+
+    /**
+     * 目标主密钥ID（rewrap任务）
+     */
+    private String targetMasterKeyId;
+
+    /**
+     * 当前处理的实体
+     */
+    private String entityName;
+
+    /**
+     * 待处理总行数
+     */
+    private Long totalCount;
+
+    /**
+     * 已扫描行数
+     */
+    private Long processedCount;
+
+    /**
+     * 已改写行数
+     */
+    private Long updatedCount;
+
+    /**
+     * 进度（0-100）
+     */
+    private Integer progress;
+
+    /**
+     * 失败原因
+     */
+    private String errorMessage;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createdAt;
+
+    /**
+     * 完成时间
+     */
+    private LocalDateTime completedAt;
+}
@@ -5,6 +5,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDate;
 import java.util.List;
 
 /**
@@ -22,7 +23,7 @@ import java.util.List;
 @Builder
 public class RepeatRule {
     /**
-     * 重复类型：daily/weekly/monthly
+     * 重复类型：daily/weekly/monthly（设置 rrule 时为 RRULE 的频率，包括 yearly）
      */
     private String type;
 
@@ -31,5 +32,21 @@ public class RepeatRule {
      * 按月重复：每月的几号数组（1-31）
      */
     private List<Integer> days;
+
+    /**
+     * RFC 5545 重复规则（如 FREQ=MONTHLY;BYMONTHDAY=-1、FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE;COUNT=10），
+     * 设置后忽略 type/days
+     */
+    private String rrule;
+
+    /**
+     * 排除的日期（EXDATE）
+     */
+    private List<LocalDate> exdates;
+
+    /**
+     * 额外的日期（RDATE）
+     */
+    private List<LocalDate> rdates;
 }
 
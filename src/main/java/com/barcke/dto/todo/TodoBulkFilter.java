@@ -0,0 +1,44 @@
+package com.barcke.dto.todo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className TodoBulkFilter
+ * @date 2025/12/24
+ * @slogan: 源于生活 高于生活
+ * @description: 批量操作的 Todo 筛选条件DTO
+ **/
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TodoBulkFilter {
+
+    /**
+     * 开始日期（必填，重复序列按日期范围展开）
+     */
+    private LocalDate startDate;
+
+    /**
+     * 结束日期（必填）
+     */
+    private LocalDate endDate;
+
+    /**
+     * Todo 类型ID（可选）
+     */
+    private String typeId;
+
+    /**
+     * 状态（可选，pending/completed）
+     */
+    private String status;
+}
@@ -0,0 +1,52 @@
+package com.barcke.dto.todo;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className TodoBulkRequest
+ * @date 2025/12/24
+ * @slogan: 源于生活 高于生活
+ * @description: 批量操作 Todo 请求DTO（按ID列表或筛选条件选择 Todo，二选一）
+ **/
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TodoBulkRequest {
+
+    /**
+     * 操作（complete/delete/reschedule/retype）
+     */
+    @NotBlank(message = "操作不能为空")
+    private String operation;
+
+    /**
+     * Todo ID列表（可以是重复序列展开的某次重复）
+     */
+    private List<String> ids;
+
+    /**
+     * 筛选条件
+     */
+    private TodoBulkFilter filter;
+
+    /**
+     * 改期的目标日期（reschedule 时必填）
+     */
+    private LocalDate date;
+
+    /**
+     * 目标类型ID（retype 时必填）
+     */
+    private String typeId;
+}
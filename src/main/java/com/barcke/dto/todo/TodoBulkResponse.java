@@ -0,0 +1,32 @@
+package com.barcke.dto.todo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className TodoBulkResponse
+ * @date 2025/12/24
+ * @slogan: 源于生活 高于生活
+ * @description: 批量操作 Todo 响应DTO（只返回处理条数，不返回 Todo 详情）
+ **/
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TodoBulkResponse {
+
+    /**
+     * 操作
+     */
+    private String operation;
+
+    /**
+     * 处理的 Todo 条数（包括重复序列中的重复）
+     */
+    private Integer count;
+}
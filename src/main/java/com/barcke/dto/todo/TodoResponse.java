@@ -89,6 +89,11 @@ public class TodoResponse {
      */
     private RepeatRule repeatRule;
 
+    /**
+     * 重复序列ID（重复 Todo 的各次重复相同）
+     */
+    private String seriesId;
+
     /**
      * 附件列表
      */
@@ -94,7 +94,10 @@ public class AuthInterceptor implements HandlerInterceptor {
             throw new CommonException(ResultEnum.TOKEN_ERROR);
         }
 
-        // 检查用户是否被冻结
+        // 检查用户是否已注销、被冻结
+        if (user.getDeletedAt() != null) {
+            throw CommonException.toast("用户已注销");
+        }
         if (BooleanUtil.isTrue(user.getDelFlag())) {
             throw CommonException.toast("用户已被冻结");
         }
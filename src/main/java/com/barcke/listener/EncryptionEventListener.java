@@ -0,0 +1,313 @@
+package com.barcke.listener;
+
+import com.barcke.common.BarckeContext;
+import com.barcke.service.KmsService;
+import com.barcke.tool.CipherEnvelope;
+import com.barcke.tool.EncryptedEntityRegistry;
+import com.barcke.tool.EncryptedEntityRegistry.EncryptedField;
+import com.barcke.tool.EncryptedEntityRegistry.EntityMetadata;
+import com.barcke.tool.EncryptedFieldHolder;
+import com.barcke.tool.UserKeyRing;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className EncryptionEventListener
+ * @date 2025/12/18
+ * @slogan: 源于生活 高于生活
+ * @description: 字段加密Hibernate事件监听器，写库时加密、加载时解密
+ * 只修改事件中的状态数组，不修改实体本身：实体始终保持明文，数据库中始终是密文
+ **/
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EncryptionEventListener implements PreInsertEventListener, PreUpdateEventListener,
+        PostInsertEventListener, PostUpdateEventListener, PreLoadEventListener {
+
+    /**
+     * 实体中表示数据所属用户的属性名
+     */
+    private static final String OWNER_PROPERTY_NAME = "userId";
+
+    private static final EncryptedProperties NONE =
+            new EncryptedProperties(null, new int[0], new String[0], new boolean[0], -1, false);
+
+    private final KmsService kmsService;
+    private final EncryptedEntityRegistry entityRegistry;
+
+    @Value("${kms.enabled:true}")
+    private boolean kmsEnabled;
+
+    /**
+     * 严格模式：所有加密字段都已是信封格式密文（明文扫描任务已完成），
+     * 读取时不再兼容明文和旧格式密文，遇到非密文数据或解密失败直接抛出异常
+     */
+    @Value("${kms.strict:false}")
+    private boolean strict;
+
+    /**
+     * 实体名 -> 加密属性在状态数组中的下标
+     */
+    private final ConcurrentMap<String, EncryptedProperties> propertiesCache = new ConcurrentHashMap<>();
+
+    /**
+     * 插入前加密（只加密待插入的状态数组），加密结果记录到实体的 EncryptedFieldHolder，后续更新时未修改的字段直接复用
+     */
+    @Override
+    public boolean onPreInsert(PreInsertEvent event) {
+        encryptState(event.getPersister(), event.getState(), event.getId(), event.getEntity());
+        return false;
+    }
+
+    /**
+     * 更新前加密（只加密待更新的状态数组），未修改的字段复用加载时的密文，不重新加密
+     * 加密实体使用 @DynamicUpdate，UPDATE语句只包含脏字段，未修改的加密列不会被重写
+     */
+    @Override
+    public boolean onPreUpdate(PreUpdateEvent event) {
+        encryptState(event.getPersister(), event.getState(), event.getId(), event.getEntity());
+        return false;
+    }
+
+    /**
+     * 插入后恢复明文：该状态数组会作为实体的已加载状态参与后续脏检查
+     */
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        restoreState(event.getPersister(), event.getState(), event.getEntity());
+    }
+
+    /**
+     * 更新后恢复明文：该状态数组会作为实体的已加载状态参与后续脏检查
+     */
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        restoreState(event.getPersister(), event.getState(), event.getEntity());
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    /**
+     * 加载时解密：在状态数组写入实体和已加载状态之前解密，实体加载后不会被判定为脏数据
+     * 密文记录到实体的 EncryptedFieldHolder；懒解密字段保留密文，getter首次读取时才解密
+     */
+    @Override
+    public void onPreLoad(PreLoadEvent event) {
+        decryptState(event.getPersister(), event.getState(), event.getId(), event.getEntity());
+    }
+
+    private void encryptState(EntityPersister persister, Object[] state, Object id, Object entity) {
+        EncryptedProperties properties = getEncryptedProperties(persister);
+        if (!kmsEnabled || properties.isEmpty()) {
+            return;
+        }
+
+        String userId = getUserId(properties, state, id);
+        if (userId == null) {
+            // 无法确定加密密钥，不能以明文写入
+            throw new IllegalStateException("无法获取用户ID，拒绝写入: 实体=" + persister.getEntityName());
+        }
+
+        EncryptedFieldHolder holder = properties.metadata().getFieldHolder(entity);
+        UserKeyRing keyRing = null;
+        for (int i = 0; i < properties.indexes().length; i++) {
+            int index = properties.indexes()[i];
+            if (!(state[index] instanceof String plaintext) || plaintext.isEmpty()) {
+                continue;
+            }
+            // 字段未修改（与加载、上次写入时相同）时直接写回原密文，不重新加密
+            String ciphertext = holder != null ? holder.reusableCiphertext(properties.names()[i], plaintext) : null;
+            if (ciphertext != null) {
+                state[index] = ciphertext;
+                continue;
+            }
+
+            // 所有字段都可复用时不需要解析用户密钥
+            if (keyRing == null) {
+                keyRing = kmsService.getKeyRing(userId);
+                if (keyRing.current() == null) {
+                    // 用户已注销（密钥已销毁），不能以明文写入
+                    throw new IllegalStateException("无法获取用户密钥，拒绝写入: 实体=" + persister.getEntityName());
+                }
+            }
+            try {
+                ciphertext = keyRing.encrypt(plaintext, properties.metadata().getEncryptedFields().get(i));
+                state[index] = ciphertext;
+                if (holder != null) {
+                    holder.loaded(keyRing, properties.names()[i], ciphertext, plaintext);
+                }
+            } catch (Exception e) {
+                // 加密失败时中止写入（flush失败、事务回滚），不以明文写入
+                throw new IllegalStateException("加密字段失败，拒绝写入: 实体=" + persister.getEntityName()
+                        + ", 字段=" + properties.names()[i], e);
+            }
+        }
+    }
+
+    private void restoreState(EntityPersister persister, Object[] state, Object entity) {
+        EncryptedProperties properties = getEncryptedProperties(persister);
+        if (!kmsEnabled || properties.isEmpty()) {
+            return;
+        }
+        for (int index : properties.indexes()) {
+            state[index] = persister.getValue(entity, index);
+        }
+    }
+
+    private void decryptState(EntityPersister persister, Object[] state, Object id, Object entity) {
+        EncryptedProperties properties = getEncryptedProperties(persister);
+        if (!kmsEnabled || properties.isEmpty()) {
+            return;
+        }
+
+        String userId = getUserId(properties, state, id);
+        if (userId == null) {
+            log.debug("无法获取用户ID，跳过解密");
+            return;
+        }
+
+        // 解密不生成密钥：用户没有密钥说明数据从未加密过
+        UserKeyRing keyRing = kmsService.getKeyRing(userId);
+        if (!strict && keyRing.latest() == null) {
+            log.debug("无法获取用户密钥，跳过解密");
+            return;
+        }
+
+        EncryptedFieldHolder holder = properties.metadata().getFieldHolder(entity);
+        for (int i = 0; i < properties.indexes().length; i++) {
+            int index = properties.indexes()[i];
+            if (!(state[index] instanceof String ciphertext) || ciphertext.isEmpty()) {
+                continue;
+            }
+            if (properties.lazy()[i]) {
+                holder.loaded(keyRing, properties.names()[i], ciphertext, null);
+                continue;
+            }
+            String plaintext = strict
+                    ? decryptStrict(keyRing, ciphertext, persister.getEntityName(), properties.names()[i])
+                    : decryptLenient(keyRing, ciphertext, persister.getEntityName(), properties.names()[i]);
+            if (plaintext == null) {
+                continue;
+            }
+            state[index] = plaintext;
+            if (holder != null) {
+                holder.loaded(keyRing, properties.names()[i], ciphertext, plaintext);
+            }
+        }
+    }
+
+    /**
+     * 兼容模式解密：数据格式错误、解密失败时记录日志并返回null，字段保持原样（兼容未加密的历史数据）
+     */
+    private String decryptLenient(UserKeyRing keyRing, String ciphertext, String entityName, String fieldName) {
+        try {
+            return keyRing.decrypt(ciphertext);
+        } catch (IllegalArgumentException e) {
+            // 数据格式错误（可能是未加密的数据或损坏的数据）
+            // 记录警告但不抛出异常，保持向后兼容
+            log.warn("解密字段失败 - 数据格式错误: 实体={}, 字段={}, 错误={}, 数据长度={}",
+                    entityName,
+                    fieldName,
+                    e.getMessage(),
+                    ciphertext.length());
+        } catch (Exception e) {
+            // 其他解密错误（密钥错误、数据损坏等），不修改字段值，保持原样
+            log.error("解密字段失败: 实体={}, 字段={}, 错误类型={}, 错误消息={}",
+                    entityName,
+                    fieldName,
+                    e.getClass().getSimpleName(),
+                    e.getMessage(),
+                    e);
+        }
+        return null;
+    }
+
+    /**
+     * 严格模式解密：只接受信封格式密文，不尝试Base64/旧格式解密，失败直接抛出异常
+     */
+    private String decryptStrict(UserKeyRing keyRing, String ciphertext, String entityName, String fieldName) {
+        if (!CipherEnvelope.isEnvelope(ciphertext)) {
+            throw new IllegalStateException("严格模式下发现非密文数据: 实体=" + entityName + ", 字段=" + fieldName);
+        }
+        try {
+            return keyRing.decrypt(ciphertext);
+        } catch (Exception e) {
+            throw new IllegalStateException("解密字段失败: 实体=" + entityName + ", 字段=" + fieldName, e);
+        }
+    }
+
+    /**
+     * 获取数据所属用户ID：优先使用实体自身的userId，其次使用当前登录用户
+     */
+    private String getUserId(EncryptedProperties properties, Object[] state, Object id) {
+        Object userId = properties.ownerIsId() ? id
+                : properties.ownerIndex() >= 0 ? state[properties.ownerIndex()] : null;
+        if (userId != null) {
+            return userId.toString();
+        }
+        return BarckeContext.getUserId();
+    }
+
+    private EncryptedProperties getEncryptedProperties(EntityPersister persister) {
+        return propertiesCache.computeIfAbsent(persister.getEntityName(), k -> resolve(persister));
+    }
+
+    private EncryptedProperties resolve(EntityPersister persister) {
+        EntityMetadata metadata = entityRegistry.get(persister.getMappedClass());
+        if (!metadata.isEncrypted()) {
+            return NONE;
+        }
+
+        List<String> propertyNames = Arrays.asList(persister.getPropertyNames());
+        List<EncryptedField> fields = metadata.getEncryptedFields();
+        int[] indexes = new int[fields.size()];
+        String[] names = new String[fields.size()];
+        boolean[] lazy = new boolean[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            names[i] = fields.get(i).getName();
+            lazy[i] = fields.get(i).isLazy();
+            indexes[i] = propertyNames.indexOf(names[i]);
+            if (indexes[i] < 0) {
+                throw new IllegalStateException("加密字段未映射为持久化属性: "
+                        + persister.getEntityName() + "." + names[i]);
+            }
+        }
+
+        return new EncryptedProperties(metadata, indexes, names, lazy,
+                propertyNames.indexOf(OWNER_PROPERTY_NAME),
+                OWNER_PROPERTY_NAME.equals(persister.getIdentifierPropertyName()));
+    }
+
+    /**
+     * 实体加密属性
+     *
+     * @param metadata   实体加密元数据
+     * @param indexes    加密属性在状态数组中的下标
+     * @param names      加密属性名
+     * @param lazy       加密属性是否懒解密
+     * @param ownerIndex 所属用户属性下标（-1表示不是普通属性）
+     * @param ownerIsId  所属用户是否为主键
+     */
+    private record EncryptedProperties(EntityMetadata metadata, int[] indexes, String[] names, boolean[] lazy,
+                                       int ownerIndex, boolean ownerIsId) {
+
+        boolean isEmpty() {
+            return indexes.length == 0;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.barcke.pojo;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+import java.time.LocalDateTime;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className CryptoJob
+ * @date 2025/12/19
+ * @slogan: 源于生活 高于生活
+ * @description: 加密后台任务实体类（如密钥轮换后的数据重加密），记录检查点，应用重启后从检查点继续执行
+ **/
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Accessors(chain = true)
+@Entity
+@Table(name = "crypto_job", indexes = {
+    @Index(name = "idx_crypto_job_status", columnList = "status"),
+    @Index(name = "idx_crypto_job_user", columnList = "user_id")
+})
+public class CryptoJob {
+
+    /**
+     * 任务ID
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "id", length = 64)
+    private String id;
+
+    /**
+     * 任务类型（reencrypt：用户密钥轮换后的数据重加密；rewrap：主密钥轮换后的用户密钥重新包装；encrypt：加密历史明文数据；index：重建盲索引；purge：清理注销用户的数据）
+     */
+    @Column(name = "job_type", nullable = false, length = 20)
+    private String jobType;
+
+    /**
+     * 用户ID
+     */
+    @Column(name = "user_id", length = 64)
+    private String userId;
+
+    /**
+     * 目标密钥版本
+     */
+    @Column(name = "target_key_version")
+    private Integer targetKeyVersion;
+
+    /**
+     * 目标主密钥ID（rewrap任务）
+     */
+    @Column(name = "target_master_key_id", length = 64)
+    private String targetMasterKeyId;
+
+    /**
+     * 状态（pending/running/completed/failed/cancelled）
+     */
+    @Column(name = "status", nullable = false, length = 20)
+    @Builder.Default
+    private String status = "pending";
+
+    /**
+     * 检查点：当前处理的实体
+     */
+    @Column(name = "entity_name", length = 100)
+    private String entityName;
+
+    /**
+     * 检查点：当前实体已处理的最后一个主键（键集分页）
+     */
+    @Column(name = "last_id", length = 64)
+    private String lastId;
+
+    /**
+     * 待处理总行数（任务开始时统计）
+     */
+    @Column(name = "total_count")
+    @Builder.Default
+    private Long totalCount = 0L;
+
+    /**
+     * 已扫描行数
+     */
+    @Column(name = "processed_count")
+    @Builder.Default
+    private Long processedCount = 0L;
+
+    /**
+     * 已改写行数
+     */
+    @Column(name = "updated_count")
+    @Builder.Default
+    private Long updatedCount = 0L;
+
+    /**
+     * 失败原因
+     */
+    @Column(name = "error_message", length = 500)
+    private String errorMessage;
+
+    /**
+     * 创建时间
+     */
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * 完成时间
+     */
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    /**
+     * 更新时间
+     */
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
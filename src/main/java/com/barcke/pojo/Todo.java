@@ -1,12 +1,13 @@
 package com.barcke.pojo;
 
 import com.barcke.annotation.EncryptField;
+import com.barcke.annotation.TimeOrderedId;
+import com.barcke.tool.BinaryCiphertextConverter;
+import com.barcke.tool.EncryptedFieldHolder;
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
-import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.*;
 import lombok.experimental.Accessors;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -27,14 +28,17 @@ import java.time.LocalTime;
 @Builder
 @Accessors(chain = true)
 @Entity
-@Table(name = "todo")
+@DynamicUpdate
+@Table(name = "todo", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_todo_series_occurrence", columnNames = {"series_id", "occurrence_date"})
+})
 public class Todo {
 
     /**
      * Todo ID
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @TimeOrderedId
     @Column(name = "id", length = 64)
     private String id;
 
@@ -47,15 +51,20 @@ public class Todo {
     /**
      * Todo 内容
      */
-    @EncryptField
-    @Column(name = "title", nullable = false, length = 2000)
+    @EncryptField(storage = EncryptField.Storage.BINARY)
+    @Convert(converter = BinaryCiphertextConverter.class)
+    @Column(name = "title", nullable = false, columnDefinition = "VARBINARY(8192)")
     private String title;
 
     /**
      * 备注/备忘（支持富文本/语音转文字）
+     * 懒解密：列表加载时不解密，读取时才解密（不参与 toString/equals/hashCode，避免打印日志、比较实体时解密）
      */
-    @EncryptField
-    @Column(name = "description", columnDefinition = "TEXT")
+    @EncryptField(lazy = true, storage = EncryptField.Storage.BINARY, compressThreshold = 512)
+    @Convert(converter = BinaryCiphertextConverter.class)
+    @Column(name = "description", columnDefinition = "BLOB")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private String description;
 
     /**
@@ -109,6 +118,18 @@ public class Todo {
     @Column(name = "repeat_rule", columnDefinition = "TEXT")
     private String repeatRule;
 
+    /**
+     * 重复序列ID（序列中单独保存的某次重复，其余重复查询时由序列展开）
+     */
+    @Column(name = "series_id", length = 64)
+    private String seriesId;
+
+    /**
+     * 在重复序列中的原始日期（修改日期后 date 会变化，该值不变）
+     */
+    @Column(name = "occurrence_date")
+    private LocalDate occurrenceDate;
+
     /**
      * 创建时间
      */
@@ -134,6 +155,18 @@ public class Todo {
     @Builder.Default
     private Boolean delFlag = false;
 
+    /**
+     * 加密字段持有者（未修改的字段复用加载时的密文，懒解密字段读取时才解密）
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final transient EncryptedFieldHolder encryptedFieldHolder = new EncryptedFieldHolder();
+
+    public String getDescription() {
+        return encryptedFieldHolder.reveal("description", description);
+    }
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
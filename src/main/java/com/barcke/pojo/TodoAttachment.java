@@ -1,5 +1,6 @@
 package com.barcke.pojo;
 
+import com.barcke.annotation.TimeOrderedId;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -31,7 +32,7 @@ public class TodoAttachment {
      * 附件ID
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @TimeOrderedId
     @Column(name = "attachment_id", length = 64)
     private String attachmentId;
 
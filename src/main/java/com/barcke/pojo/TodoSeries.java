@@ -0,0 +1,167 @@
+package com.barcke.pojo;
+
+import com.barcke.annotation.EncryptField;
+import com.barcke.annotation.TimeOrderedId;
+import com.barcke.tool.BinaryCiphertextConverter;
+import com.barcke.tool.EncryptedFieldHolder;
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.Accessors;
+import org.hibernate.annotations.DynamicUpdate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className TodoSeries
+ * @date 2025/12/23
+ * @slogan: 源于生活 高于生活
+ * @description: 重复 Todo 序列实体类，重复规则和内容只存一份，查询时按日期范围展开为各次重复；
+ * 有自身状态（完成、修改、删除）的某次重复才写入 todo 表（series_id + occurrence_date 指向本序列）
+ **/
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Accessors(chain = true)
+@Entity
+@DynamicUpdate
+@Table(name = "todo_series", indexes = {
+    @Index(name = "idx_todo_series_user_start", columnList = "user_id, start_date")
+})
+public class TodoSeries {
+
+    /**
+     * 序列ID
+     */
+    @Id
+    @TimeOrderedId
+    @Column(name = "id", length = 64)
+    private String id;
+
+    /**
+     * 用户ID
+     */
+    @Column(name = "user_id", nullable = false, length = 64)
+    private String userId;
+
+    /**
+     * Todo 内容
+     */
+    @EncryptField(storage = EncryptField.Storage.BINARY)
+    @Convert(converter = BinaryCiphertextConverter.class)
+    @Column(name = "title", nullable = false, columnDefinition = "VARBINARY(8192)")
+    private String title;
+
+    /**
+     * 备注/备忘
+     * 懒解密：列表加载时不解密，读取时才解密（不参与 toString/equals/hashCode，避免打印日志、比较实体时解密）
+     */
+    @EncryptField(lazy = true, storage = EncryptField.Storage.BINARY, compressThreshold = 512)
+    @Convert(converter = BinaryCiphertextConverter.class)
+    @Column(name = "description", columnDefinition = "BLOB")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private String description;
+
+    /**
+     * 第一次重复的日期
+     */
+    @Column(name = "start_date", nullable = false)
+    private LocalDate startDate;
+
+    /**
+     * 最后一次重复日期的上界（按 UNTIL、COUNT 和 RDATE 换算），不限次数时为空
+     */
+    @Column(name = "end_date")
+    private LocalDate endDate;
+
+    /**
+     * COUNT 规则换算出的最后一次重复日期（展开时代替 COUNT，不需要从头计数）
+     */
+    @Column(name = "count_until")
+    private LocalDate countUntil;
+
+    /**
+     * 时间（可选）
+     */
+    @Column(name = "time")
+    private LocalTime time;
+
+    /**
+     * Todo 类型ID
+     */
+    @Column(name = "type_id", length = 64)
+    private String typeId;
+
+    /**
+     * 来源（normal/template）
+     */
+    @Column(name = "source", length = 20)
+    @Builder.Default
+    private String source = "normal";
+
+    /**
+     * 模板ID（可选，来源模板）
+     */
+    @Column(name = "template_id", length = 64)
+    private String templateId;
+
+    /**
+     * 重复类型（daily/weekly/monthly/yearly）
+     */
+    @Column(name = "repeat_type", nullable = false, length = 20)
+    private String repeatType;
+
+    /**
+     * 重复规则（JSON字符串，RepeatRule）
+     */
+    @Column(name = "repeat_rule", columnDefinition = "TEXT")
+    private String repeatRule;
+
+    /**
+     * 创建时间
+     */
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * 更新时间
+     */
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    /**
+     * 删除标志（false-正常，true-已删除）
+     */
+    @Column(name = "del_flag", nullable = false)
+    @Builder.Default
+    private Boolean delFlag = false;
+
+    /**
+     * 加密字段持有者（未修改的字段复用加载时的密文，懒解密字段读取时才解密）
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final transient EncryptedFieldHolder encryptedFieldHolder = new EncryptedFieldHolder();
+
+    public String getDescription() {
+        return encryptedFieldHolder.reveal("description", description);
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
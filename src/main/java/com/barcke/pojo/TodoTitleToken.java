@@ -0,0 +1,57 @@
+package com.barcke.pojo;
+
+import com.barcke.annotation.TimeOrderedId;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className TodoTitleToken
+ * @date 2025/12/21
+ * @slogan: 源于生活 高于生活
+ * @description: Todo 标题盲索引令牌实体类，每个令牌是标题的一个检索词（整体、单词前缀、汉字N元组）的HMAC，不包含明文
+ **/
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Accessors(chain = true)
+@Entity
+@Table(name = "todo_title_token", indexes = {
+    @Index(name = "idx_todo_title_token_user_token", columnList = "user_id, token"),
+    @Index(name = "idx_todo_title_token_todo", columnList = "todo_id")
+})
+public class TodoTitleToken {
+
+    /**
+     * 主键ID
+     */
+    @Id
+    @TimeOrderedId
+    @Column(name = "id", length = 64)
+    private String id;
+
+    /**
+     * 用户ID
+     */
+    @Column(name = "user_id", nullable = false, length = 64)
+    private String userId;
+
+    /**
+     * Todo ID
+     */
+    @Column(name = "todo_id", nullable = false, length = 64)
+    private String todoId;
+
+    /**
+     * 令牌（截断的HMAC，Base64url编码）
+     */
+    @Column(name = "token", nullable = false, length = 24)
+    private String token;
+}
@@ -1,12 +1,12 @@
 package com.barcke.pojo;
 
 import com.barcke.annotation.EncryptField;
+import com.barcke.tool.BinaryCiphertextConverter;
+import com.barcke.tool.EncryptedFieldHolder;
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
-import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.*;
 import lombok.experimental.Accessors;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDateTime;
 
@@ -25,6 +25,7 @@ import java.time.LocalDateTime;
 @Builder
 @Accessors(chain = true)
 @Entity
+@DynamicUpdate
 @Table(name = "user_info", uniqueConstraints = {
     @UniqueConstraint(columnNames = "username")
 })
@@ -59,15 +60,17 @@ public class UserInfo {
     /**
      * 邮箱
      */
-    @EncryptField
-    @Column(name = "email", length = 100)
+    @EncryptField(storage = EncryptField.Storage.BINARY)
+    @Convert(converter = BinaryCiphertextConverter.class)
+    @Column(name = "email", columnDefinition = "VARBINARY(512)")
     private String email;
 
     /**
      * 手机号
      */
-    @EncryptField
-    @Column(name = "phone", length = 20)
+    @EncryptField(storage = EncryptField.Storage.BINARY)
+    @Convert(converter = BinaryCiphertextConverter.class)
+    @Column(name = "phone", columnDefinition = "VARBINARY(128)")
     private String phone;
 
     /**
@@ -77,6 +80,12 @@ public class UserInfo {
     @Builder.Default
     private Boolean delFlag = false;
 
+    /**
+     * 注销时间（注销后用户密钥已销毁，该记录只作为注销标记保留）
+     */
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+
     /**
      * 创建时间
      */
@@ -89,6 +98,14 @@ public class UserInfo {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    /**
+     * 加密字段持有者（未修改的字段复用加载时的密文）
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final transient EncryptedFieldHolder encryptedFieldHolder = new EncryptedFieldHolder();
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -49,6 +49,12 @@ public class UserKey {
     @Column(name = "encrypted_key", nullable = false, columnDefinition = "TEXT")
     private String encryptedKey;
 
+    /**
+     * 包装该密钥的主密钥ID（为空表示主密钥环引入前包装的历史数据）
+     */
+    @Column(name = "master_key_id", length = 64)
+    private String masterKeyId;
+
     /**
      * 密钥版本号（用于密钥轮换）
      */
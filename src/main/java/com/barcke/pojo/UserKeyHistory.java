@@ -0,0 +1,74 @@
+package com.barcke.pojo;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+import java.time.LocalDateTime;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className UserKeyHistory
+ * @date 2025/12/19
+ * @slogan: 源于生活 高于生活
+ * @description: 用户历史密钥实体类，密钥轮换时保存旧版本密钥，保证旧版本密文可读
+ **/
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Accessors(chain = true)
+@Entity
+@Table(name = "user_key_history", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"user_id", "key_version"})
+})
+public class UserKeyHistory {
+
+    /**
+     * 主键ID
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "id", length = 64)
+    private String id;
+
+    /**
+     * 用户ID
+     */
+    @Column(name = "user_id", nullable = false, length = 64)
+    private String userId;
+
+    /**
+     * 加密后的用户密钥（使用主密钥加密）
+     */
+    @Column(name = "encrypted_key", nullable = false, columnDefinition = "TEXT")
+    private String encryptedKey;
+
+    /**
+     * 包装该密钥的主密钥ID（为空表示主密钥环引入前包装的历史数据）
+     */
+    @Column(name = "master_key_id", length = 64)
+    private String masterKeyId;
+
+    /**
+     * 密钥版本号
+     */
+    @Column(name = "key_version", nullable = false)
+    private Integer keyVersion;
+
+    /**
+     * 创建时间（即该版本被轮换下来的时间）
+     */
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
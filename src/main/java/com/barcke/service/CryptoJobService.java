@@ -0,0 +1,30 @@
+package com.barcke.service;
+
+import com.barcke.dto.kms.CryptoJobResponse;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className CryptoJobService
+ * @date 2025/12/19
+ * @slogan: 源于生活 高于生活
+ * @description: 加密后台任务服务接口
+ **/
+public interface CryptoJobService {
+
+    /**
+     * 轮换当前用户密钥，并创建后台重加密任务（旧版本密文改写为新版本密钥加密）
+     */
+    CryptoJobResponse rotateUserKey();
+
+    /**
+     * 查询当前用户最近一次重加密任务进度
+     */
+    CryptoJobResponse getReencryptProgress();
+
+    /**
+     * 执行待处理任务（每个任务执行一批，由定时任务调用）
+     */
+    void runPendingJobs();
+}
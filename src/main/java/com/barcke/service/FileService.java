@@ -35,5 +35,12 @@ public interface FileService {
      * 删除文件
      */
     void deleteFile(String fileId);
-}
 
+    /**
+     * 删除用户上传目录下的一批文件，全部删除后删除目录和未关联 Todo 的附件记录（注销清理使用）
+     *
+     * @param limit 最多删除的文件数
+     * @return 本次删除的文件数
+     */
+    int deleteUserFiles(String userId, int limit);
+}
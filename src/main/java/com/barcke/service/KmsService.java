@@ -1,5 +1,14 @@
 package com.barcke.service;
 
+import com.barcke.tool.KmsClient;
+import com.barcke.tool.KmsProvider;
+import com.barcke.tool.UserKeyCache;
+import com.barcke.tool.UserKeyRing;
+import com.barcke.tool.VersionedKey;
+
+import java.util.Collection;
+import java.util.List;
+
 /**
  * @author Barcke
  * @version 1.0
@@ -12,16 +21,40 @@ package com.barcke.service;
 public interface KmsService {
 
     /**
-     * 获取或生成用户密钥
+     * 获取或生成用户当前版本密钥
      * 如果用户密钥不存在，则生成新密钥并使用主密钥加密后存储
      *
      * @param userId 用户ID
-     * @return 用户密钥（明文，32字节）
+     * @return 用户当前版本密钥
+     */
+    VersionedKey getOrGenerateUserKey(String userId);
+
+    /**
+     * 获取用户当前版本密钥（不存在时不生成，用于解密）
+     *
+     * @param userId 用户ID
+     * @return 用户当前版本密钥，不存在返回null
+     */
+    VersionedKey getUserKey(String userId);
+
+    /**
+     * 获取用户指定版本密钥（包括已轮换的历史版本）
+     *
+     * @param userId     用户ID
+     * @param keyVersion 密钥版本
+     * @return 用户密钥，不存在返回null
      */
-    byte[] getOrGenerateUserKey(String userId);
+    VersionedKey getUserKey(String userId, int keyVersion);
 
     /**
-     * 使用主密钥加密用户密钥
+     * 获取用户密钥环（加密使用当前版本，解密按密文中的版本选择密钥）
+     *
+     * @param userId 用户ID
+     */
+    UserKeyRing getKeyRing(String userId);
+
+    /**
+     * 使用当前主密钥加密用户密钥
      *
      * @param userKey 用户密钥（明文）
      * @return 加密后的用户密钥（Base64编码）
@@ -32,16 +65,63 @@ public interface KmsService {
      * 使用主密钥解密用户密钥
      *
      * @param encryptedKey 加密后的用户密钥（Base64编码）
+     * @param masterKeyId  包装该密钥的主密钥ID（为空时依次尝试主密钥环中的所有主密钥）
      * @return 用户密钥（明文，32字节）
      */
-    byte[] decryptUserKey(String encryptedKey);
+    byte[] decryptUserKey(String encryptedKey, String masterKeyId);
 
     /**
-     * 密钥轮换（生成新密钥并更新版本号）
+     * 批量预加载用户当前版本密钥到缓存（一次查询、一次批量解包），用于处理多个用户数据的后台任务
+     *
+     * @param userIds 用户ID（已缓存的跳过，没有密钥的用户不生成）
+     */
+    void preloadUserKeys(Collection<String> userIds);
+
+    /**
+     * 当前主密钥ID（新包装的用户密钥记录该ID）
+     */
+    String getCurrentMasterKeyId();
+
+    /**
+     * 使用当前主密钥重新包装用户密钥（主密钥轮换后调用，用户密钥本身不变，已加密数据无需改写）
+     *
+     * @param encryptedKey 加密后的用户密钥（Base64编码）
+     * @param masterKeyId  原主密钥ID（可能为空）
+     * @return 使用当前主密钥加密后的用户密钥（Base64编码）
+     */
+    String rewrapUserKey(String encryptedKey, String masterKeyId);
+
+    /**
+     * 批量重新包装用户密钥（一次批量解包）
+     *
+     * @param wrappedKeys 加密后的用户密钥及原主密钥ID
+     * @return 使用当前主密钥加密后的用户密钥（与参数顺序一致）
+     */
+    List<String> rewrapUserKeys(List<KmsProvider.WrappedKey> wrappedKeys);
+
+    /**
+     * 密钥轮换（生成新密钥并更新版本号，旧版本密钥保存到历史表，旧密文仍可解密）
      *
      * @param userId 用户ID
-     * @return 新的用户密钥（明文，32字节）
+     * @return 新的用户密钥
      */
-    byte[] rotateUserKey(String userId);
-}
+    VersionedKey rotateUserKey(String userId);
 
+    /**
+     * 销毁用户的全部版本密钥并失效缓存（加密销毁：该用户的所有密文立即不可解密，标题索引同时失效）；
+     * 已注销的用户不会再生成新密钥
+     *
+     * @param userId 用户ID
+     */
+    void destroyUserKeys(String userId);
+
+    /**
+     * 获取用户密钥缓存统计（命中/未命中次数等）
+     */
+    UserKeyCache.Stats getKeyCacheStats();
+
+    /**
+     * 获取KMS提供者调用统计（解包请求数、合并数、实际调用次数）
+     */
+    KmsClient.Stats getProviderStats();
+}
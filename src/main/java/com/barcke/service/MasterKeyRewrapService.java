@@ -0,0 +1,30 @@
+package com.barcke.service;
+
+import com.barcke.dto.kms.CryptoJobResponse;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className MasterKeyRewrapService
+ * @date 2025/12/19
+ * @slogan: 源于生活 高于生活
+ * @description: 主密钥重新包装服务接口（主密钥轮换后把所有用户密钥改为当前主密钥包装，不改写任何业务数据）
+ **/
+public interface MasterKeyRewrapService {
+
+    /**
+     * 存在非当前主密钥包装的用户密钥时创建重新包装任务（应用启动时调用）
+     */
+    void scheduleRewrap();
+
+    /**
+     * 查询最近一次重新包装任务进度
+     */
+    CryptoJobResponse getRewrapProgress();
+
+    /**
+     * 执行待处理的重新包装任务（每个任务执行一轮，由定时任务调用）
+     */
+    void runPendingJobs();
+}
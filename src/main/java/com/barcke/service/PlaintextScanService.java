@@ -0,0 +1,30 @@
+package com.barcke.service;
+
+import com.barcke.dto.kms.CryptoJobResponse;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className PlaintextScanService
+ * @date 2025/12/20
+ * @slogan: 源于生活 高于生活
+ * @description: 明文扫描服务接口（扫描所有 @EncryptField 字段，把未加密的历史数据、旧格式密文改写为信封格式密文）
+ **/
+public interface PlaintextScanService {
+
+    /**
+     * 尚未完成过扫描（或配置了 kms.scan.rescan）时创建扫描任务（应用启动时调用）
+     */
+    void scheduleScan();
+
+    /**
+     * 查询最近一次扫描任务进度
+     */
+    CryptoJobResponse getScanProgress();
+
+    /**
+     * 执行待处理的扫描任务（每个任务执行一批，由定时任务调用）
+     */
+    void runPendingJobs();
+}
@@ -1,5 +1,7 @@
 package com.barcke.service;
 
+import com.barcke.dto.todo.TodoBulkRequest;
+import com.barcke.dto.todo.TodoBulkResponse;
 import com.barcke.dto.todo.TodoCreateRequest;
 import com.barcke.dto.todo.TodoResponse;
 import com.barcke.dto.todo.TodoUpdateRequest;
@@ -25,19 +27,28 @@ public interface TodoService {
 
     /**
      * 更新 Todo
+     *
+     * @param scope 重复 Todo 的修改范围：this（这一次）/following（这一次及之后）/all（全部），为空时为 this
      */
-    TodoResponse updateTodo(String id, TodoUpdateRequest request);
+    TodoResponse updateTodo(String id, TodoUpdateRequest request, String scope);
 
     /**
      * 删除 Todo（软删除）
+     *
+     * @param scope 重复 Todo 的删除范围：this（这一次）/following（这一次及之后）/all（全部），为空时为 this
      */
-    void deleteTodo(String id);
+    void deleteTodo(String id, String scope);
 
     /**
      * 标记完成
      */
     TodoResponse completeTodo(String id);
 
+    /**
+     * 批量操作 Todo（完成、删除、改期、修改类型），返回处理条数
+     */
+    TodoBulkResponse bulkOperate(TodoBulkRequest request);
+
     /**
      * 根据ID查询 Todo
      */
@@ -62,5 +73,14 @@ public interface TodoService {
      * 按日期范围和状态查询 Todo 列表
      */
     List<TodoResponse> getTodosByDateRangeAndStatus(LocalDate startDate, LocalDate endDate, String status);
+
+    /**
+     * 按标题检索 Todo（标题盲索引）
+     *
+     * @param keyword 关键词
+     * @param exact   是否精确匹配整个标题（否则按单词前缀匹配）
+     * @param limit   最多返回条数
+     */
+    List<TodoResponse> searchTodos(String keyword, boolean exact, Integer limit);
 }
 
@@ -0,0 +1,70 @@
+package com.barcke.service;
+
+import com.barcke.dto.kms.CryptoJobResponse;
+import com.barcke.pojo.Todo;
+import com.barcke.pojo.TodoSeries;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className TodoTitleIndexService
+ * @date 2025/12/21
+ * @slogan: 源于生活 高于生活
+ * @description: Todo 标题盲索引服务接口（标题加密后数据库无法检索，按标题检索词的HMAC令牌建立索引）
+ **/
+public interface TodoTitleIndexService {
+
+    /**
+     * 重建 Todo 的标题索引（Todo 需已保存、标题为明文；已删除的 Todo 只删除索引）
+     */
+    void index(Collection<Todo> todos);
+
+    /**
+     * 重建重复序列的标题索引（令牌关联序列ID；已删除的序列只删除索引）
+     */
+    void indexSeries(Collection<TodoSeries> seriesList);
+
+    /**
+     * 按主键重建一批 Todo 或重复序列的标题索引（密钥轮换后由重加密任务调用，令牌改用当前版本的索引密钥）
+     *
+     * @param entityName 实体名（Todo、TodoSeries），其他实体忽略
+     */
+    void reindex(String entityName, Collection<?> ids);
+
+    /**
+     * 删除 Todo（或重复序列）的标题索引
+     */
+    void remove(String todoId);
+
+    /**
+     * 批量删除 Todo（或重复序列）的标题索引
+     */
+    void remove(Collection<String> todoIds);
+
+    /**
+     * 按标题检索用户的 Todo（只查索引和命中的行，解密后校验；命中的重复序列返回其下一次重复）
+     *
+     * @param exact 是否精确匹配整个标题（否则按单词前缀匹配）
+     * @param limit 最多返回条数
+     */
+    List<Todo> search(String userId, String keyword, boolean exact, int limit);
+
+    /**
+     * 尚未完成过索引重建（或配置了 kms.index.rebuild）时创建重建任务（应用启动时调用）
+     */
+    void scheduleRebuild();
+
+    /**
+     * 查询最近一次索引重建任务进度
+     */
+    CryptoJobResponse getRebuildProgress();
+
+    /**
+     * 执行待处理的索引重建任务（每个任务执行一批，由定时任务调用）
+     */
+    void runPendingJobs();
+}
@@ -0,0 +1,25 @@
+package com.barcke.service;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className UserDataPurgeService
+ * @date 2025/12/22
+ * @slogan: 源于生活 高于生活
+ * @description: 注销用户数据清理服务接口（用户密钥销毁后数据已不可读，物理删除行和文件在后台分批完成）
+ **/
+public interface UserDataPurgeService {
+
+    /**
+     * 创建用户数据清理任务（同时取消该用户未完成的重加密任务）
+     *
+     * @param userId 已注销的用户ID
+     */
+    void schedulePurge(String userId);
+
+    /**
+     * 执行待处理的清理任务（每次调度每个任务只处理一批）
+     */
+    void runPendingJobs();
+}
@@ -42,6 +42,11 @@ public interface UserService {
      */
     void changePassword(String oldPassword, String newPassword);
 
+    /**
+     * 注销账号：销毁用户密钥（数据立即不可读），用户记录脱敏后保留为注销标记，数据和文件由后台任务分批删除
+     */
+    void deleteAccount(String password);
+
     /**
      * 根据ID查询用户
      */
@@ -34,6 +34,7 @@ public class CalendarServiceImpl implements CalendarService {
 
     private final TodoRepository todoRepository;
     private final TodoService todoService;
+    private final TodoSeriesExpander todoSeriesExpander;
 
     @Override
     public List<CalendarDayResponse> getMonthViewData(LocalDate yearMonth) {
@@ -49,8 +50,8 @@ public class CalendarServiceImpl implements CalendarService {
         // 获取统计数据
         List<Object[]> statistics = todoRepository.getMonthViewStatistics(userId, startDate, endDate);
 
-        // 获取所有日期范围内的 Todo
-        List<Todo> todos = todoRepository.findByUserIdAndDateBetweenAndDelFlagFalseOrderByDateAscTimeAsc(userId, startDate, endDate);
+        // 获取所有日期范围内的 Todo（包括重复序列展开的重复）
+        List<Todo> todos = todoSeriesExpander.findTodos(userId, startDate, endDate, null);
 
         // 构建日期单元格响应
         List<CalendarDayResponse> responses = new ArrayList<>();
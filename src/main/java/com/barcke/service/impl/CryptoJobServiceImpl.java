@@ -0,0 +1,280 @@
+package com.barcke.service.impl;
+
+import com.barcke.common.BarckeContext;
+import com.barcke.common.CommonException;
+import com.barcke.common.ResultEnum;
+import com.barcke.dao.CryptoJobRepository;
+import com.barcke.dto.kms.CryptoJobResponse;
+import com.barcke.pojo.CryptoJob;
+import com.barcke.service.CryptoJobService;
+import com.barcke.service.KmsService;
+import com.barcke.service.TodoTitleIndexService;
+import com.barcke.tool.CipherEnvelope;
+import com.barcke.tool.EncryptedEntityRegistry;
+import com.barcke.tool.EncryptedEntityRegistry.EncryptedField;
+import com.barcke.tool.UserKeyRing;
+import com.barcke.tool.VersionedKey;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className CryptoJobServiceImpl
+ * @date 2025/12/19
+ * @slogan: 源于生活 高于生活
+ * @description: 加密后台任务服务实现类
+ * 任务按实体、按主键键集分页，每次定时调度每个任务只处理一批（独立事务，检查点与数据改写一起提交），
+ * 通过批大小和调度间隔限制对前台请求的影响；应用重启后从检查点继续执行
+ **/
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CryptoJobServiceImpl implements CryptoJobService {
+
+    public static final String JOB_TYPE_REENCRYPT = "reencrypt";
+
+    public static final String STATUS_PENDING = "pending";
+    public static final String STATUS_RUNNING = "running";
+    public static final String STATUS_COMPLETED = "completed";
+    public static final String STATUS_FAILED = "failed";
+    public static final String STATUS_CANCELLED = "cancelled";
+
+    static final List<String> ACTIVE_STATUSES = List.of(STATUS_PENDING, STATUS_RUNNING);
+
+    private final CryptoJobRepository cryptoJobRepository;
+    private final KmsService kmsService;
+    private final EncryptedEntityRegistry entityRegistry;
+    private final TodoTitleIndexService todoTitleIndexService;
+    private final PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * 每批处理行数
+     */
+    @Value("${kms.reencrypt.batchSize:200}")
+    private int batchSize;
+
+    private TransactionTemplate batchTransaction;
+
+    /**
+     * 可重加密的实体（按实体名排序，保证检查点顺序稳定）
+     */
+    private List<EncryptedTable> entityTables;
+
+    @PostConstruct
+    public void init() {
+        batchTransaction = new TransactionTemplate(transactionManager);
+        entityTables = EncryptedTable.load(entityManager, entityRegistry);
+    }
+
+    @Override
+    @Transactional
+    public CryptoJobResponse rotateUserKey() {
+        String userId = BarckeContext.getUserId();
+        if (userId == null) {
+            throw new CommonException(ResultEnum.UNAUTHORIZED);
+        }
+
+        VersionedKey newKey = kmsService.rotateUserKey(userId);
+        if (newKey == null) {
+            throw CommonException.toast("KMS未启用，无法轮换密钥");
+        }
+
+        // 之前未完成的重加密任务由新任务接替（新任务会把所有旧版本密文改写为最新版本）
+        for (CryptoJob activeJob : cryptoJobRepository.findByUserIdAndJobTypeAndStatusIn(
+                userId, JOB_TYPE_REENCRYPT, ACTIVE_STATUSES)) {
+            activeJob.setStatus(STATUS_CANCELLED);
+            cryptoJobRepository.save(activeJob);
+        }
+
+        CryptoJob job = CryptoJob.builder()
+                .jobType(JOB_TYPE_REENCRYPT)
+                .userId(userId)
+                .targetKeyVersion(newKey.getKeyVersion())
+                .build();
+        cryptoJobRepository.save(job);
+        log.info("用户 {} 密钥已轮换到版本 {}，创建重加密任务: {}", userId, newKey.getKeyVersion(), job.getId());
+        return convertToResponse(job);
+    }
+
+    @Override
+    public CryptoJobResponse getReencryptProgress() {
+        String userId = BarckeContext.getUserId();
+        if (userId == null) {
+            throw new CommonException(ResultEnum.UNAUTHORIZED);
+        }
+        return cryptoJobRepository.findFirstByUserIdAndJobTypeOrderByCreatedAtDesc(userId, JOB_TYPE_REENCRYPT)
+                .map(CryptoJobServiceImpl::convertToResponse)
+                .orElse(null);
+    }
+
+    @Override
+    @Scheduled(initialDelayString = "${kms.reencrypt.intervalMs:200}", fixedDelayString = "${kms.reencrypt.intervalMs:200}")
+    public void runPendingJobs() {
+        for (CryptoJob job : cryptoJobRepository.findByJobTypeAndStatusInOrderByCreatedAtAsc(
+                JOB_TYPE_REENCRYPT, ACTIVE_STATUSES)) {
+            try {
+                batchTransaction.executeWithoutResult(status -> runBatch(job.getId()));
+            } catch (Exception e) {
+                log.error("加密任务执行失败: {}", job.getId(), e);
+                batchTransaction.executeWithoutResult(status -> cryptoJobRepository.findById(job.getId())
+                        .ifPresent(failedJob -> {
+                            failedJob.setStatus(STATUS_FAILED);
+                            failedJob.setErrorMessage(abbreviate(e.getMessage()));
+                            cryptoJobRepository.save(failedJob);
+                        }));
+            }
+        }
+    }
+
+    /**
+     * 执行任务的一批：从检查点开始读取一批行，改写后推进检查点
+     */
+    private void runBatch(String jobId) {
+        CryptoJob job = cryptoJobRepository.findById(jobId).orElse(null);
+        if (job == null || !ACTIVE_STATUSES.contains(job.getStatus())) {
+            return;
+        }
+
+        if (STATUS_PENDING.equals(job.getStatus())) {
+            job.setStatus(STATUS_RUNNING);
+            job.setTotalCount(countRows(job.getUserId()));
+            job.setEntityName(entityTables.isEmpty() ? null : entityTables.get(0).entityName());
+            job.setLastId(null);
+        }
+
+        EncryptedTable table = EncryptedTable.find(entityTables, job.getEntityName());
+        if (table == null) {
+            complete(job);
+            return;
+        }
+
+        UserKeyRing keyRing = kmsService.getKeyRing(job.getUserId());
+        VersionedKey currentKey = keyRing.latest();
+        if (currentKey == null || currentKey.getKeyVersion() != job.getTargetKeyVersion()) {
+            // 密钥已再次轮换或被销毁，由更新的任务接替
+            job.setStatus(STATUS_CANCELLED);
+            cryptoJobRepository.save(job);
+            return;
+        }
+
+        List<Object[]> rows = table.selectBatch(entityManager, job.getUserId(), job.getLastId(), batchSize);
+        long updated = 0;
+        for (Object[] row : rows) {
+            if (reencryptRow(table, row, keyRing, currentKey.getKeyVersion())) {
+                updated++;
+            }
+        }
+
+        // 标题盲索引密钥由当前版本密钥派生，Todo 和重复序列的令牌随密文一起重建
+        todoTitleIndexService.reindex(table.entityName(), rows.stream().map(row -> row[0]).toList());
+
+        job.setProcessedCount(job.getProcessedCount() + rows.size());
+        job.setUpdatedCount(job.getUpdatedCount() + updated);
+        if (rows.size() < batchSize) {
+            // 当前实体处理完毕，切换到下一个实体
+            EncryptedTable next = EncryptedTable.next(entityTables, table);
+            job.setEntityName(next != null ? next.entityName() : null);
+            job.setLastId(null);
+            if (next == null) {
+                complete(job);
+                return;
+            }
+        } else {
+            job.setLastId((String) rows.get(rows.size() - 1)[0]);
+        }
+        cryptoJobRepository.save(job);
+    }
+
+    /**
+     * 将一行中非目标版本的密文改写为目标版本
+     *
+     * @return 是否改写
+     */
+    private boolean reencryptRow(EncryptedTable table, Object[] row, UserKeyRing keyRing, int targetVersion) {
+        Map<String, String> changes = new LinkedHashMap<>();
+        for (int i = 0; i < table.fields().size(); i++) {
+            EncryptedField field = table.fields().get(i);
+            String fieldName = field.getName();
+            if (!(row[i + 2] instanceof String ciphertext) || ciphertext.isEmpty()) {
+                continue;
+            }
+            try {
+                if (CipherEnvelope.keyVersion(ciphertext) == targetVersion) {
+                    continue;
+                }
+                changes.put(fieldName, keyRing.encrypt(keyRing.decrypt(ciphertext), field));
+            } catch (Exception e) {
+                // 无法解密的值（未加密的历史数据、损坏的数据）保持原样，不影响任务继续
+                log.warn("重加密跳过字段: 实体={}, 主键={}, 字段={}, 错误={}",
+                        table.entityName(), row[0], fieldName, e.getMessage());
+            }
+        }
+        return !changes.isEmpty() && table.update(entityManager, row[0], changes);
+    }
+
+    private long countRows(String userId) {
+        long total = 0;
+        for (EncryptedTable table : entityTables) {
+            total += table.count(entityManager, userId);
+        }
+        return total;
+    }
+
+    private void complete(CryptoJob job) {
+        job.setStatus(STATUS_COMPLETED);
+        job.setCompletedAt(LocalDateTime.now());
+        cryptoJobRepository.save(job);
+        log.info("加密任务完成: {}, 扫描 {} 行, 改写 {} 行", job.getId(), job.getProcessedCount(), job.getUpdatedCount());
+    }
+
+    static String abbreviate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > 500 ? message.substring(0, 500) : message;
+    }
+
+    static CryptoJobResponse convertToResponse(CryptoJob job) {
+        int progress;
+        if (STATUS_COMPLETED.equals(job.getStatus())) {
+            progress = 100;
+        } else if (job.getTotalCount() == null || job.getTotalCount() == 0) {
+            progress = 0;
+        } else {
+            progress = (int) Math.min(99, job.getProcessedCount() * 100 / job.getTotalCount());
+        }
+
+        return CryptoJobResponse.builder()
+                .id(job.getId())
+                .jobType(job.getJobType())
+                .status(job.getStatus())
+                .targetKeyVersion(job.getTargetKeyVersion())
+                .targetMasterKeyId(job.getTargetMasterKeyId())
+                .entityName(job.getEntityName())
+                .totalCount(job.getTotalCount())
+                .processedCount(job.getProcessedCount())
+                .updatedCount(job.getUpdatedCount())
+                .progress(progress)
+                .errorMessage(job.getErrorMessage())
+                .createdAt(job.getCreatedAt())
+                .completedAt(job.getCompletedAt())
+                .build();
+    }
+}
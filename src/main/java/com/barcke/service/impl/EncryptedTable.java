@@ -0,0 +1,155 @@
+package com.barcke.service.impl;
+
+import com.barcke.tool.EncryptedEntityRegistry;
+import com.barcke.tool.EncryptedEntityRegistry.EncryptedField;
+import com.barcke.tool.EncryptedEntityRegistry.EntityMetadata;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.Query;
+import jakarta.persistence.metamodel.EntityType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className EncryptedTable
+ * @date 2025/12/20
+ * @slogan: 源于生活 高于生活
+ * @description: 加密后台任务处理的实体（JPQL实体名、主键属性名、加密字段），按主键键集分页扫描
+ *
+ * @param entityName JPQL实体名
+ * @param idName     主键属性名
+ * @param fields     加密字段
+ **/
+@Slf4j
+record EncryptedTable(String entityName, String idName, List<EncryptedField> fields) {
+
+    /**
+     * 实体中表示数据所属用户的属性名（UserInfo的主键即为userId）
+     */
+    static final String OWNER_PROPERTY_NAME = "userId";
+
+    /**
+     * 排除已注销用户的数据（密钥已销毁，清除任务删除前不能再解密或加密），用于不区分用户的全局任务
+     */
+    static final String LIVE_OWNER_CONDITION = " not in (select u.userId from UserInfo u where u.deletedAt is not null)";
+
+    /**
+     * 所有可由后台任务处理的加密实体（按实体名排序，保证检查点顺序稳定）
+     */
+    static List<EncryptedTable> load(EntityManager entityManager, EncryptedEntityRegistry entityRegistry) {
+        List<EncryptedTable> tables = new ArrayList<>();
+        for (EntityMetadata metadata : entityRegistry.getEncryptedEntities()) {
+            EntityType<?> entityType = entityManager.getMetamodel().entity(metadata.getEntityClass());
+            boolean hasOwner = entityType.getAttributes().stream()
+                    .anyMatch(attribute -> OWNER_PROPERTY_NAME.equals(attribute.getName()));
+            if (!hasOwner) {
+                log.warn("实体没有userId属性，不参与加密后台任务: {}", entityType.getName());
+                continue;
+            }
+            String idName = entityType.getId(entityType.getIdType().getJavaType()).getName();
+            tables.add(new EncryptedTable(entityType.getName(), idName, metadata.getEncryptedFields()));
+        }
+        tables.sort(Comparator.comparing(EncryptedTable::entityName));
+        return tables;
+    }
+
+    /**
+     * 下一个实体
+     *
+     * @return 下一个实体，已是最后一个时返回null
+     */
+    static EncryptedTable next(List<EncryptedTable> tables, EncryptedTable table) {
+        int index = tables.indexOf(table);
+        return index + 1 < tables.size() ? tables.get(index + 1) : null;
+    }
+
+    /**
+     * 按实体名查找
+     *
+     * @return 实体，不存在返回null
+     */
+    static EncryptedTable find(List<EncryptedTable> tables, String entityName) {
+        return tables.stream()
+                .filter(table -> table.entityName().equals(entityName))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * 键集分页读取一批行（主键、所属用户、加密字段原始值依次排列），加行锁避免与前台写入交错
+     * 标量查询不会触发加密监听器，读到的是数据库中的原始值
+     *
+     * @param userId 所属用户（为空时读取所有未注销用户的数据）
+     * @param lastId 检查点（为空时从头开始）
+     */
+    @SuppressWarnings("unchecked")
+    List<Object[]> selectBatch(EntityManager entityManager, String userId, String lastId, int batchSize) {
+        StringBuilder jpql = new StringBuilder("select e.").append(idName).append(", e.").append(OWNER_PROPERTY_NAME);
+        for (EncryptedField field : fields) {
+            jpql.append(", e.").append(field.getName());
+        }
+        jpql.append(" from ").append(entityName).append(" e where 1 = 1");
+        if (userId != null) {
+            jpql.append(" and e.").append(OWNER_PROPERTY_NAME).append(" = :userId");
+        } else {
+            jpql.append(" and e.").append(OWNER_PROPERTY_NAME).append(LIVE_OWNER_CONDITION);
+        }
+        if (lastId != null) {
+            jpql.append(" and e.").append(idName).append(" > :lastId");
+        }
+        jpql.append(" order by e.").append(idName);
+
+        Query query = entityManager.createQuery(jpql.toString())
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setMaxResults(batchSize);
+        if (userId != null) {
+            query.setParameter("userId", userId);
+        }
+        if (lastId != null) {
+            query.setParameter("lastId", lastId);
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * 统计行数
+     *
+     * @param userId 所属用户（为空时统计所有未注销用户的数据）
+     */
+    long count(EntityManager entityManager, String userId) {
+        if (userId == null) {
+            return entityManager.createQuery("select count(e) from " + entityName
+                            + " e where e." + OWNER_PROPERTY_NAME + LIVE_OWNER_CONDITION, Long.class)
+                    .getSingleResult();
+        }
+        return entityManager.createQuery("select count(e) from " + entityName
+                        + " e where e." + OWNER_PROPERTY_NAME + " = :userId", Long.class)
+                .setParameter("userId", userId)
+                .getSingleResult();
+    }
+
+    /**
+     * 批量更新指定行的字段（批量JPQL更新，不经过实体加载和加密监听器）
+     *
+     * @return 是否更新
+     */
+    boolean update(EntityManager entityManager, Object id, Map<String, String> changes) {
+        StringBuilder jpql = new StringBuilder("update ").append(entityName).append(" e set ");
+        int index = 0;
+        for (String fieldName : changes.keySet()) {
+            jpql.append(index++ > 0 ? ", " : "").append("e.").append(fieldName).append(" = :").append(fieldName);
+        }
+        jpql.append(" where e.").append(idName).append(" = :id");
+
+        Query update = entityManager.createQuery(jpql.toString()).setParameter("id", id);
+        changes.forEach(update::setParameter);
+        return update.executeUpdate() > 0;
+    }
+}
@@ -24,6 +24,9 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * @author Barcke
@@ -186,6 +189,37 @@ public class FileServiceImpl implements FileService {
         todoAttachmentRepository.delete(attachment);
     }
 
+    @Override
+    @Transactional
+    public int deleteUserFiles(String userId, int limit) {
+        Path userDir = Paths.get(BASE_UPLOAD_PATH, userId);
+        if (!Files.exists(userDir)) {
+            return 0;
+        }
+
+        try {
+            List<Path> files;
+            try (Stream<Path> paths = Files.walk(userDir)) {
+                files = paths.filter(Files::isRegularFile).limit(limit).toList();
+            }
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+            if (files.size() < limit) {
+                // 文件已全部删除，从深到浅删除空目录
+                try (Stream<Path> paths = Files.walk(userDir)) {
+                    for (Path dir : paths.sorted(Comparator.reverseOrder()).toList()) {
+                        Files.deleteIfExists(dir);
+                    }
+                }
+                todoAttachmentRepository.deleteUnlinkedByDirectory(userDir + File.separator);
+            }
+            return files.size();
+        } catch (IOException e) {
+            throw new IllegalStateException("删除用户文件失败: " + userDir, e);
+        }
+    }
+
     /**
      * 确定文件类型
      */
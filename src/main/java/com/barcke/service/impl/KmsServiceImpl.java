@@ -1,16 +1,31 @@
 package com.barcke.service.impl;
 
+import com.barcke.dao.UserKeyHistoryRepository;
+import com.barcke.dao.UserKeyJdbcRepository;
 import com.barcke.dao.UserKeyRepository;
 import com.barcke.pojo.UserKey;
+import com.barcke.pojo.UserKeyHistory;
 import com.barcke.service.KmsService;
 import com.barcke.tool.EncryptionUtil;
+import com.barcke.tool.KmsClient;
+import com.barcke.tool.KmsProvider;
+import com.barcke.tool.UserKeyCache;
+import com.barcke.tool.UserKeyRing;
+import com.barcke.tool.VersionedKey;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.Optional;
+import java.util.*;
 
 /**
  * @author Barcke
@@ -20,6 +35,8 @@ import java.util.Optional;
  * @date 2025/12/16
  * @slogan: 源于生活 高于生活
  * @description: 密钥管理服务实现类
+ * 用户密钥的包装/解包通过 {@link KmsClient} 交给配置的KMS提供者，解包后的用户密钥由 {@link UserKeyCache} 缓存；
+ * 密钥的查询/生成通过 {@link UserKeyJdbcRepository} 使用调用方事务的连接，加密监听器在刷新、加载过程中调用时不再占用第二个连接
  **/
 @Slf4j
 @Service
@@ -27,51 +44,201 @@ import java.util.Optional;
 public class KmsServiceImpl implements KmsService {
 
     private final UserKeyRepository userKeyRepository;
+    private final UserKeyHistoryRepository userKeyHistoryRepository;
+    private final UserKeyJdbcRepository userKeyJdbcRepository;
+    private final UserKeyCache userKeyCache;
+    private final PlatformTransactionManager transactionManager;
+    private final KmsClient kmsClient;
 
-    @Value("${kms.masterKey}")
-    private String masterKeyBase64;
+    /**
+     * 事务资源键：当前事务内的 userId -> 密钥环
+     */
+    private static final Object KEY_RING_RESOURCE = new Object();
 
     @Value("${kms.enabled:true}")
     private boolean kmsEnabled;
 
     /**
-     * 获取主密钥（字节数组）
+     * 只读事务中不能写入 user_key，此时新密钥在独立事务中生成（只读事务不会刷新，不在加密监听器的刷新过程中）
      */
-    private byte[] getMasterKey() {
-        return EncryptionUtil.keyFromBase64(masterKeyBase64);
+    private TransactionTemplate keyTransaction;
+
+    @PostConstruct
+    public void init() {
+        keyTransaction = new TransactionTemplate(transactionManager);
+        keyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     }
 
+    /**
+     * 注意：缓存命中时不会获取数据库连接；
+     * 未命中时用调用方事务的连接查询/生成密钥（不经过调用方Session，不会触发刷新），新密钥随调用方事务提交
+     */
     @Override
-    @Transactional
-    public byte[] getOrGenerateUserKey(String userId) {
+    public VersionedKey getOrGenerateUserKey(String userId) {
         if (!kmsEnabled) {
             log.warn("KMS未启用，返回空密钥");
             return null;
         }
 
+        // 优先从缓存获取，命中时无需查库和主密钥解包
+        VersionedKey cachedKey = userKeyCache.getCurrent(userId);
+        if (cachedKey != null) {
+            return cachedKey;
+        }
+
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return keyTransaction.execute(status -> loadOrGenerateUserKey(userId));
+        }
+        return loadOrGenerateUserKey(userId);
+    }
+
+    @Override
+    public VersionedKey getUserKey(String userId) {
+        if (!kmsEnabled) {
+            return null;
+        }
+
+        VersionedKey cachedKey = userKeyCache.getCurrent(userId);
+        if (cachedKey != null) {
+            return cachedKey;
+        }
+
+        long generation = userKeyCache.generation(userId);
+        return userKeyJdbcRepository.findByUserId(userId, false)
+                .map(userKey -> cacheUserKey(userKey, generation))
+                .orElse(null);
+    }
+
+    @Override
+    public VersionedKey getUserKey(String userId, int keyVersion) {
+        if (!kmsEnabled) {
+            return null;
+        }
+
+        VersionedKey cachedKey = userKeyCache.get(userId, keyVersion);
+        if (cachedKey != null) {
+            return cachedKey;
+        }
+
+        // 当前版本在user_key表中，历史版本在user_key_history表中
+        long generation = userKeyCache.generation(userId);
+        Optional<UserKey> current = userKeyJdbcRepository.findByUserId(userId, false);
+        if (current.isPresent() && current.get().getKeyVersion() == keyVersion) {
+            return cacheUserKey(current.get(), generation);
+        }
+        return userKeyJdbcRepository.findHistory(userId, keyVersion)
+                .map(history -> {
+                    byte[] plainKey = decryptUserKey(history.getEncryptedKey(), history.getMasterKeyId());
+                    userKeyCache.put(userId, keyVersion, plainKey, generation);
+                    return new VersionedKey(keyVersion, EncryptionUtil.keySpec(plainKey));
+                })
+                .orElse(null);
+    }
+
+    /**
+     * 事务内已解析的密钥环：同一事务中批量写入（saveAll）、批量加载的所有行共用一个密钥环，用户密钥只解析一次
+     */
+    @Override
+    public UserKeyRing getKeyRing(String userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new UserKeyRing(userId, this);
+        }
+        return transactionKeyRings().computeIfAbsent(userId, id -> new UserKeyRing(id, this));
+    }
+
+    /**
+     * 当前事务绑定的密钥环（事务挂起时解绑，REQUIRES_NEW的内层事务使用自己的密钥环；事务结束时释放）
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, UserKeyRing> transactionKeyRings() {
+        Map<String, UserKeyRing> keyRings =
+                (Map<String, UserKeyRing>) TransactionSynchronizationManager.getResource(KEY_RING_RESOURCE);
+        if (keyRings != null) {
+            return keyRings;
+        }
+
+        Map<String, UserKeyRing> boundKeyRings = new HashMap<>();
+        TransactionSynchronizationManager.bindResource(KEY_RING_RESOURCE, boundKeyRings);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void suspend() {
+                TransactionSynchronizationManager.unbindResourceIfPossible(KEY_RING_RESOURCE);
+            }
+
+            @Override
+            public void resume() {
+                TransactionSynchronizationManager.bindResource(KEY_RING_RESOURCE, boundKeyRings);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(KEY_RING_RESOURCE);
+            }
+        });
+        return boundKeyRings;
+    }
+
+    /**
+     * 移除当前事务中该用户的密钥环（密钥轮换后，同一事务内的后续加密使用新版本密钥）
+     */
+    private void evictKeyRing(String userId) {
+        Object keyRings = TransactionSynchronizationManager.getResource(KEY_RING_RESOURCE);
+        if (keyRings instanceof Map<?, ?> map) {
+            map.remove(userId);
+        }
+    }
+
+    private VersionedKey loadOrGenerateUserKey(String userId) {
         // 查询用户密钥
-        Optional<UserKey> userKeyOptional = userKeyRepository.findByUserId(userId);
+        long generation = userKeyCache.generation(userId);
+        Optional<UserKey> userKeyOptional = userKeyJdbcRepository.findByUserId(userId, false);
 
         if (userKeyOptional.isPresent()) {
-            // 密钥存在，解密后返回
-            UserKey userKey = userKeyOptional.get();
-            return decryptUserKey(userKey.getEncryptedKey());
-        } else {
-            // 密钥不存在，生成新密钥
-            log.info("为用户 {} 生成新密钥", userId);
-            byte[] newUserKey = EncryptionUtil.generateKey();
-            String encryptedKey = encryptUserKey(newUserKey);
+            // 密钥存在，解密后放入缓存
+            return cacheUserKey(userKeyOptional.get(), generation);
+        }
 
-            // 保存加密后的密钥
-            UserKey userKey = UserKey.builder()
-                    .userId(userId)
-                    .encryptedKey(encryptedKey)
-                    .keyVersion(1)
-                    .build();
+        // 已注销用户的密钥已销毁，不再生成（后台任务处理其残留数据时不会用新密钥改写）
+        if (userKeyJdbcRepository.isDeletedUser(userId)) {
+            log.warn("用户 {} 已注销，不生成密钥", userId);
+            return null;
+        }
 
-            userKeyRepository.save(userKey);
-            return newUserKey;
+        // 密钥不存在，生成新密钥（一次提供者调用同时得到明文和包装后的密钥）
+        log.info("为用户 {} 生成新密钥", userId);
+        KmsProvider.DataKey dataKey = kmsClient.generateDataKey();
+        byte[] newUserKey = dataKey.plainKey();
+
+        // 保存加密后的密钥
+        UserKey userKey = UserKey.builder()
+                .userId(userId)
+                .encryptedKey(dataKey.wrappedKey().ciphertext())
+                .masterKeyId(dataKey.wrappedKey().keyId())
+                .keyVersion(1)
+                .build();
+
+        try {
+            userKeyJdbcRepository.insert(userKey);
+        } catch (DuplicateKeyException e) {
+            // 并发请求已为该用户生成密钥（user_id唯一约束冲突），加锁读取对方已提交的密钥
+            log.info("用户 {} 密钥已被并发生成，重新读取", userId);
+            return userKeyJdbcRepository.findByUserId(userId, true)
+                    .map(existing -> cacheUserKey(existing, generation))
+                    .orElseThrow(() -> e);
         }
+
+        // 新密钥在事务提交后才放入缓存，避免事务回滚后缓存中残留不存在的密钥
+        afterCommit(() -> userKeyCache.putCurrent(userId, 1, newUserKey, generation));
+        return new VersionedKey(1, EncryptionUtil.keySpec(newUserKey));
+    }
+
+    /**
+     * @param generation 查询密钥前获取的缓存代数（期间发生轮换、销毁时不写入缓存）
+     */
+    private VersionedKey cacheUserKey(UserKey userKey, long generation) {
+        byte[] plainKey = decryptUserKey(userKey.getEncryptedKey(), userKey.getMasterKeyId());
+        userKeyCache.putCurrent(userKey.getUserId(), userKey.getKeyVersion(), plainKey, generation);
+        return new VersionedKey(userKey.getKeyVersion(), EncryptionUtil.keySpec(plainKey));
     }
 
     @Override
@@ -79,59 +246,167 @@ public class KmsServiceImpl implements KmsService {
         if (!kmsEnabled) {
             return EncryptionUtil.keyToBase64(userKey);
         }
-
-        // 将用户密钥转换为Base64字符串，然后使用主密钥加密
-        String userKeyBase64 = EncryptionUtil.keyToBase64(userKey);
-        byte[] masterKey = getMasterKey();
-        return EncryptionUtil.encrypt(userKeyBase64, masterKey);
+        return kmsClient.wrap(userKey).ciphertext();
     }
 
     @Override
-    public byte[] decryptUserKey(String encryptedKey) {
+    public byte[] decryptUserKey(String encryptedKey, String masterKeyId) {
         if (!kmsEnabled) {
             return EncryptionUtil.keyFromBase64(encryptedKey);
         }
+        return kmsClient.unwrap(new KmsProvider.WrappedKey(encryptedKey, masterKeyId));
+    }
+
+    @Override
+    public void preloadUserKeys(Collection<String> userIds) {
+        if (!kmsEnabled || userIds.isEmpty()) {
+            return;
+        }
+
+        Set<String> missing = new HashSet<>();
+        for (String userId : userIds) {
+            if (userId != null && userKeyCache.getCurrent(userId) == null) {
+                missing.add(userId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        Map<String, Long> generations = new HashMap<>();
+        missing.forEach(userId -> generations.put(userId, userKeyCache.generation(userId)));
+        List<UserKey> userKeys = userKeyJdbcRepository.findByUserIdIn(missing);
+        List<byte[]> plainKeys = kmsClient.unwrapAll(userKeys.stream()
+                .map(userKey -> new KmsProvider.WrappedKey(userKey.getEncryptedKey(), userKey.getMasterKeyId()))
+                .toList());
+        for (int i = 0; i < userKeys.size(); i++) {
+            String userId = userKeys.get(i).getUserId();
+            userKeyCache.putCurrent(userId, userKeys.get(i).getKeyVersion(), plainKeys.get(i),
+                    generations.get(userId));
+            Arrays.fill(plainKeys.get(i), (byte) 0);
+        }
+    }
 
-        // 使用主密钥解密
-        byte[] masterKey = getMasterKey();
-        String userKeyBase64 = EncryptionUtil.decrypt(encryptedKey, masterKey);
-        return EncryptionUtil.keyFromBase64(userKeyBase64);
+    @Override
+    public String getCurrentMasterKeyId() {
+        return kmsEnabled ? kmsClient.getCurrentKeyId() : null;
+    }
+
+    @Override
+    public String rewrapUserKey(String encryptedKey, String masterKeyId) {
+        byte[] userKey = decryptUserKey(encryptedKey, masterKeyId);
+        try {
+            return encryptUserKey(userKey);
+        } finally {
+            Arrays.fill(userKey, (byte) 0);
+        }
+    }
+
+    @Override
+    public List<String> rewrapUserKeys(List<KmsProvider.WrappedKey> wrappedKeys) {
+        // 一次批量解包，再逐个用当前主密钥包装
+        List<byte[]> userKeys = kmsClient.unwrapAll(wrappedKeys);
+        List<String> rewrapped = new ArrayList<>(userKeys.size());
+        for (byte[] userKey : userKeys) {
+            try {
+                rewrapped.add(encryptUserKey(userKey));
+            } finally {
+                Arrays.fill(userKey, (byte) 0);
+            }
+        }
+        return rewrapped;
     }
 
     @Override
     @Transactional
-    public byte[] rotateUserKey(String userId) {
+    public VersionedKey rotateUserKey(String userId) {
         if (!kmsEnabled) {
             log.warn("KMS未启用，无法轮换密钥");
             return null;
         }
 
         // 生成新密钥
-        byte[] newUserKey = EncryptionUtil.generateKey();
-        String encryptedKey = encryptUserKey(newUserKey);
+        KmsProvider.DataKey dataKey = kmsClient.generateDataKey();
+        byte[] newUserKey = dataKey.plainKey();
+        String encryptedKey = dataKey.wrappedKey().ciphertext();
+        String masterKeyId = dataKey.wrappedKey().keyId();
+
+        // 先失效缓存，提交后再失效一次，避免并发读取在提交前把旧密钥重新放回缓存
+        userKeyCache.invalidate(userId);
+        evictKeyRing(userId);
+        afterCommit(() -> userKeyCache.invalidate(userId));
 
         // 查询现有密钥
         Optional<UserKey> userKeyOptional = userKeyRepository.findByUserId(userId);
 
+        int keyVersion = 1;
         if (userKeyOptional.isPresent()) {
-            // 更新密钥和版本号
+            // 旧版本密钥保存到历史表，保证旧版本密文仍可解密
             UserKey userKey = userKeyOptional.get();
+            userKeyHistoryRepository.save(UserKeyHistory.builder()
+                    .userId(userId)
+                    .encryptedKey(userKey.getEncryptedKey())
+                    .masterKeyId(userKey.getMasterKeyId())
+                    .keyVersion(userKey.getKeyVersion())
+                    .build());
+
+            // 更新密钥和版本号
+            keyVersion = userKey.getKeyVersion() + 1;
             userKey.setEncryptedKey(encryptedKey);
-            userKey.setKeyVersion(userKey.getKeyVersion() + 1);
+            userKey.setMasterKeyId(masterKeyId);
+            userKey.setKeyVersion(keyVersion);
             userKeyRepository.save(userKey);
-            log.info("用户 {} 密钥已轮换，新版本: {}", userId, userKey.getKeyVersion());
+            log.info("用户 {} 密钥已轮换，新版本: {}", userId, keyVersion);
         } else {
             // 如果密钥不存在，创建新密钥
             UserKey userKey = UserKey.builder()
                     .userId(userId)
                     .encryptedKey(encryptedKey)
+                    .masterKeyId(masterKeyId)
                     .keyVersion(1)
                     .build();
             userKeyRepository.save(userKey);
             log.info("为用户 {} 创建新密钥", userId);
         }
 
-        return newUserKey;
+        return new VersionedKey(keyVersion, EncryptionUtil.keySpec(newUserKey));
     }
-}
 
+    @Override
+    @Transactional
+    public void destroyUserKeys(String userId) {
+        // 与轮换相同：先失效缓存，提交后再失效一次
+        userKeyCache.invalidate(userId);
+        evictKeyRing(userId);
+        afterCommit(() -> userKeyCache.invalidate(userId));
+
+        int destroyed = userKeyHistoryRepository.deleteByUserId(userId) + userKeyRepository.deleteByUserId(userId);
+        log.info("用户 {} 密钥已销毁，共 {} 个版本", userId, destroyed);
+    }
+
+    @Override
+    public UserKeyCache.Stats getKeyCacheStats() {
+        return userKeyCache.stats();
+    }
+
+    @Override
+    public KmsClient.Stats getProviderStats() {
+        return kmsClient.stats();
+    }
+
+    /**
+     * 在当前事务提交后执行（无事务时立即执行）
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
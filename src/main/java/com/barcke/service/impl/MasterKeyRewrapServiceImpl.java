@@ -0,0 +1,271 @@
+package com.barcke.service.impl;
+
+import com.barcke.dao.CryptoJobRepository;
+import com.barcke.dto.kms.CryptoJobResponse;
+import com.barcke.pojo.CryptoJob;
+import com.barcke.service.KmsService;
+import com.barcke.service.MasterKeyRewrapService;
+import com.barcke.tool.KmsProvider;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.barcke.service.impl.CryptoJobServiceImpl.*;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className MasterKeyRewrapServiceImpl
+ * @date 2025/12/19
+ * @slogan: 源于生活 高于生活
+ * @description: 主密钥重新包装服务实现类
+ * 每轮按主键键集读取 parallelism * chunkSize 个待处理主键，分块后由工作线程并行处理，每块一个独立事务；
+ * 所有块提交后才推进检查点，失败后重跑时已包装到当前主密钥的行会被跳过，因此可以安全重试
+ **/
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MasterKeyRewrapServiceImpl implements MasterKeyRewrapService {
+
+    public static final String JOB_TYPE_REWRAP = "rewrap";
+
+    /**
+     * 保存主密钥包装的用户密钥的实体（当前版本、历史版本）
+     */
+    private static final List<String> KEY_ENTITIES = List.of("UserKey", "UserKeyHistory");
+
+    private final CryptoJobRepository cryptoJobRepository;
+    private final KmsService kmsService;
+    private final PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${kms.enabled:true}")
+    private boolean kmsEnabled;
+
+    /**
+     * 每块行数（一个事务）
+     */
+    @Value("${kms.rewrap.chunkSize:100}")
+    private int chunkSize;
+
+    /**
+     * 并行工作线程数
+     */
+    @Value("${kms.rewrap.parallelism:4}")
+    private int parallelism;
+
+    private TransactionTemplate chunkTransaction;
+
+    private ExecutorService workers;
+
+    @PostConstruct
+    public void init() {
+        chunkTransaction = new TransactionTemplate(transactionManager);
+        AtomicInteger threadIndex = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "kms-rewrap-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        workers.shutdownNow();
+    }
+
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleRewrap() {
+        if (!kmsEnabled) {
+            return;
+        }
+        String masterKeyId = kmsService.getCurrentMasterKeyId();
+        chunkTransaction.executeWithoutResult(status -> {
+            boolean active = false;
+            for (CryptoJob job : cryptoJobRepository.findByJobTypeAndStatusInOrderByCreatedAtAsc(
+                    JOB_TYPE_REWRAP, ACTIVE_STATUSES)) {
+                if (masterKeyId.equals(job.getTargetMasterKeyId())) {
+                    active = true;
+                } else {
+                    // 主密钥在任务完成前再次轮换，由新任务接替
+                    job.setStatus(STATUS_CANCELLED);
+                    cryptoJobRepository.save(job);
+                }
+            }
+            if (active) {
+                return;
+            }
+
+            long stale = countStaleKeys(masterKeyId);
+            if (stale == 0) {
+                return;
+            }
+            CryptoJob job = CryptoJob.builder()
+                    .jobType(JOB_TYPE_REWRAP)
+                    .targetMasterKeyId(masterKeyId)
+                    .totalCount(stale)
+                    .build();
+            cryptoJobRepository.save(job);
+            log.info("发现 {} 个用户密钥未使用当前主密钥 {} 包装，创建重新包装任务: {}", stale, masterKeyId, job.getId());
+        });
+    }
+
+    @Override
+    public CryptoJobResponse getRewrapProgress() {
+        return cryptoJobRepository.findFirstByJobTypeOrderByCreatedAtDesc(JOB_TYPE_REWRAP)
+                .map(CryptoJobServiceImpl::convertToResponse)
+                .orElse(null);
+    }
+
+    @Override
+    @Scheduled(initialDelayString = "${kms.rewrap.intervalMs:200}", fixedDelayString = "${kms.rewrap.intervalMs:200}")
+    public void runPendingJobs() {
+        for (CryptoJob job : cryptoJobRepository.findByJobTypeAndStatusInOrderByCreatedAtAsc(
+                JOB_TYPE_REWRAP, ACTIVE_STATUSES)) {
+            try {
+                runRound(job);
+            } catch (Exception e) {
+                log.error("主密钥重新包装任务执行失败: {}", job.getId(), e);
+                job.setStatus(STATUS_FAILED);
+                job.setErrorMessage(abbreviate(e.getMessage()));
+                chunkTransaction.executeWithoutResult(status -> cryptoJobRepository.save(job));
+            }
+        }
+    }
+
+    /**
+     * 执行任务的一轮：读取一批待处理主键，分块并行重新包装，全部提交后推进检查点
+     */
+    private void runRound(CryptoJob job) {
+        String masterKeyId = kmsService.getCurrentMasterKeyId();
+        if (!masterKeyId.equals(job.getTargetMasterKeyId())) {
+            job.setStatus(STATUS_CANCELLED);
+            chunkTransaction.executeWithoutResult(status -> cryptoJobRepository.save(job));
+            return;
+        }
+
+        if (STATUS_PENDING.equals(job.getStatus())) {
+            job.setStatus(STATUS_RUNNING);
+            job.setEntityName(KEY_ENTITIES.get(0));
+            job.setLastId(null);
+        }
+
+        String entityName = job.getEntityName();
+        int limit = chunkSize * parallelism;
+        List<String> ids = chunkTransaction.execute(status ->
+                selectStaleIds(entityName, masterKeyId, job.getLastId(), limit));
+
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<String> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> chunkTransaction.execute(status -> rewrapChunk(entityName, chunk, masterKeyId)), workers));
+        }
+        // 任一块失败时join抛出异常，检查点不推进，任务标记为失败
+        long updated = futures.stream().mapToLong(CompletableFuture::join).sum();
+
+        job.setProcessedCount(job.getProcessedCount() + ids.size());
+        job.setUpdatedCount(job.getUpdatedCount() + updated);
+        if (ids.size() < limit) {
+            // 当前实体处理完毕，切换到下一个实体
+            int next = KEY_ENTITIES.indexOf(entityName) + 1;
+            job.setEntityName(next < KEY_ENTITIES.size() ? KEY_ENTITIES.get(next) : null);
+            job.setLastId(null);
+            if (job.getEntityName() == null) {
+                job.setStatus(STATUS_COMPLETED);
+                job.setCompletedAt(LocalDateTime.now());
+                log.info("主密钥重新包装任务完成: {}, 重新包装 {} 个用户密钥，当前主密钥以外的主密钥可以从配置中移除",
+                        job.getId(), job.getUpdatedCount());
+            }
+        } else {
+            job.setLastId(ids.get(ids.size() - 1));
+        }
+        chunkTransaction.executeWithoutResult(status -> cryptoJobRepository.save(job));
+    }
+
+    /**
+     * 键集分页读取非当前主密钥包装的用户密钥主键
+     */
+    private List<String> selectStaleIds(String entityName, String masterKeyId, String lastId, int limit) {
+        String jpql = "select e.id from " + entityName + " e where " + staleCondition()
+                + (lastId != null ? " and e.id > :lastId" : "") + " order by e.id";
+        var query = entityManager.createQuery(jpql, String.class)
+                .setParameter("masterKeyId", masterKeyId)
+                .setMaxResults(limit);
+        if (lastId != null) {
+            query.setParameter("lastId", lastId);
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * 在一个事务中重新包装一块用户密钥（加行锁，与密钥轮换互斥；已是当前主密钥包装的行跳过）
+     *
+     * @return 改写行数
+     */
+    @SuppressWarnings("unchecked")
+    private int rewrapChunk(String entityName, List<String> ids, String masterKeyId) {
+        List<Object[]> rows = entityManager.createQuery("select e.id, e.encryptedKey, e.masterKeyId from "
+                        + entityName + " e where e.id in :ids")
+                .setParameter("ids", ids)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+
+        Query update = entityManager.createQuery("update " + entityName
+                + " e set e.encryptedKey = :encryptedKey, e.masterKeyId = :masterKeyId where e.id = :id");
+        List<Object[]> stale = rows.stream()
+                .filter(row -> !masterKeyId.equals(row[2]))
+                .toList();
+        // 整块一次批量解包，远程KMS提供者每块只需一次解包往返
+        List<String> encryptedKeys = kmsService.rewrapUserKeys(stale.stream()
+                .map(row -> new KmsProvider.WrappedKey((String) row[1], (String) row[2]))
+                .toList());
+        int updated = 0;
+        for (int i = 0; i < stale.size(); i++) {
+            updated += update.setParameter("encryptedKey", encryptedKeys.get(i))
+                    .setParameter("masterKeyId", masterKeyId)
+                    .setParameter("id", stale.get(i)[0])
+                    .executeUpdate();
+        }
+        return updated;
+    }
+
+    private long countStaleKeys(String masterKeyId) {
+        long total = 0;
+        for (String entityName : KEY_ENTITIES) {
+            total += entityManager.createQuery("select count(e) from " + entityName + " e where "
+                            + staleCondition(), Long.class)
+                    .setParameter("masterKeyId", masterKeyId)
+                    .getSingleResult();
+        }
+        return total;
+    }
+
+    private static String staleCondition() {
+        return "(e.masterKeyId is null or e.masterKeyId <> :masterKeyId)";
+    }
+}
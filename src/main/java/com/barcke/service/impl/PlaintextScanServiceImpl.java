@@ -0,0 +1,267 @@
+package com.barcke.service.impl;
+
+import com.barcke.dao.CryptoJobRepository;
+import com.barcke.dto.kms.CryptoJobResponse;
+import com.barcke.pojo.CryptoJob;
+import com.barcke.service.KmsService;
+import com.barcke.service.PlaintextScanService;
+import com.barcke.tool.BinaryColumnInspector;
+import com.barcke.tool.CipherEnvelope;
+import com.barcke.tool.EncryptedEntityRegistry;
+import com.barcke.tool.EncryptedEntityRegistry.EncryptedField;
+import com.barcke.tool.UserKeyRing;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.crypto.AEADBadTagException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.barcke.service.impl.CryptoJobServiceImpl.*;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className PlaintextScanServiceImpl
+ * @date 2025/12/20
+ * @slogan: 源于生活 高于生活
+ * @description: 明文扫描服务实现类
+ * 与重加密任务相同：按实体、按主键键集分页，每次调度只处理一批（独立事务，检查点与数据改写一起提交），应用重启后从检查点继续；
+ * 扫描完成后所有加密字段都是信封格式密文，可以开启 kms.strict 去掉读取时的明文/旧格式兼容处理；
+ * 二进制存储字段中的文本信封格式密文同时转换为二进制格式（只做Base64解码，不重新加密），存在未转换的值时自动重新扫描
+ **/
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PlaintextScanServiceImpl implements PlaintextScanService {
+
+    public static final String JOB_TYPE_ENCRYPT = "encrypt";
+
+    private final CryptoJobRepository cryptoJobRepository;
+    private final KmsService kmsService;
+    private final EncryptedEntityRegistry entityRegistry;
+    private final PlatformTransactionManager transactionManager;
+    private final BinaryColumnInspector binaryColumnInspector;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${kms.enabled:true}")
+    private boolean kmsEnabled;
+
+    @Value("${kms.strict:false}")
+    private boolean strict;
+
+    /**
+     * 已完成过扫描时是否重新扫描（曾以 kms.enabled=false 运行、写入过明文时开启）
+     */
+    @Value("${kms.scan.rescan:false}")
+    private boolean rescan;
+
+    /**
+     * 每批处理行数
+     */
+    @Value("${kms.scan.batchSize:200}")
+    private int batchSize;
+
+    private TransactionTemplate batchTransaction;
+
+    private List<EncryptedTable> entityTables;
+
+    @PostConstruct
+    public void init() {
+        batchTransaction = new TransactionTemplate(transactionManager);
+        entityTables = EncryptedTable.load(entityManager, entityRegistry);
+    }
+
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleScan() {
+        if (!kmsEnabled) {
+            return;
+        }
+        batchTransaction.executeWithoutResult(status -> {
+            CryptoJob latest = cryptoJobRepository.findFirstByJobTypeOrderByCreatedAtDesc(JOB_TYPE_ENCRYPT)
+                    .orElse(null);
+            if (latest != null && (ACTIVE_STATUSES.contains(latest.getStatus())
+                    || (STATUS_COMPLETED.equals(latest.getStatus()) && !rescan && !binaryColumnInspector.hasTextValues()))) {
+                return;
+            }
+            if (strict) {
+                log.warn("已开启kms.strict，但明文扫描任务尚未完成，未加密的数据将无法读取");
+            }
+
+            CryptoJob job = CryptoJob.builder()
+                    .jobType(JOB_TYPE_ENCRYPT)
+                    .build();
+            cryptoJobRepository.save(job);
+            log.info("创建明文扫描任务: {}", job.getId());
+        });
+    }
+
+    @Override
+    public CryptoJobResponse getScanProgress() {
+        return cryptoJobRepository.findFirstByJobTypeOrderByCreatedAtDesc(JOB_TYPE_ENCRYPT)
+                .map(CryptoJobServiceImpl::convertToResponse)
+                .orElse(null);
+    }
+
+    @Override
+    @Scheduled(initialDelayString = "${kms.scan.intervalMs:500}", fixedDelayString = "${kms.scan.intervalMs:500}")
+    public void runPendingJobs() {
+        for (CryptoJob job : cryptoJobRepository.findByJobTypeAndStatusInOrderByCreatedAtAsc(
+                JOB_TYPE_ENCRYPT, ACTIVE_STATUSES)) {
+            try {
+                batchTransaction.executeWithoutResult(status -> runBatch(job.getId()));
+            } catch (Exception e) {
+                log.error("明文扫描任务执行失败: {}", job.getId(), e);
+                batchTransaction.executeWithoutResult(status -> cryptoJobRepository.findById(job.getId())
+                        .ifPresent(failedJob -> {
+                            failedJob.setStatus(STATUS_FAILED);
+                            failedJob.setErrorMessage(abbreviate(e.getMessage()));
+                            cryptoJobRepository.save(failedJob);
+                        }));
+            }
+        }
+    }
+
+    /**
+     * 执行任务的一批：从检查点开始读取一批行，加密其中的明文后推进检查点
+     */
+    private void runBatch(String jobId) {
+        CryptoJob job = cryptoJobRepository.findById(jobId).orElse(null);
+        if (job == null || !ACTIVE_STATUSES.contains(job.getStatus())) {
+            return;
+        }
+
+        if (STATUS_PENDING.equals(job.getStatus())) {
+            job.setStatus(STATUS_RUNNING);
+            job.setTotalCount(entityTables.stream().mapToLong(table -> table.count(entityManager, null)).sum());
+            job.setEntityName(entityTables.isEmpty() ? null : entityTables.get(0).entityName());
+            job.setLastId(null);
+        }
+
+        EncryptedTable table = EncryptedTable.find(entityTables, job.getEntityName());
+        if (table == null) {
+            complete(job);
+            return;
+        }
+
+        List<Object[]> rows = table.selectBatch(entityManager, null, job.getLastId(), batchSize);
+        // 批内各用户的密钥一次批量解包，远程KMS提供者不必为每个用户往返一次
+        kmsService.preloadUserKeys(rows.stream()
+                .filter(row -> row[1] != null)
+                .map(row -> row[1].toString())
+                .collect(Collectors.toSet()));
+        long updated = 0;
+        long[] binarySize = new long[2];
+        for (Object[] row : rows) {
+            if (encryptRow(table, row, binarySize)) {
+                updated++;
+            }
+        }
+        if (binarySize[0] > 0) {
+            log.info("二进制格式转换: 实体={}, 字段大小 {} 字节 -> {} 字节", table.entityName(), binarySize[0], binarySize[1]);
+        }
+
+        job.setProcessedCount(job.getProcessedCount() + rows.size());
+        job.setUpdatedCount(job.getUpdatedCount() + updated);
+        if (rows.size() < batchSize) {
+            // 当前实体处理完毕，切换到下一个实体
+            EncryptedTable next = EncryptedTable.next(entityTables, table);
+            job.setEntityName(next != null ? next.entityName() : null);
+            job.setLastId(null);
+            if (next == null) {
+                complete(job);
+                return;
+            }
+        } else {
+            job.setLastId(rows.get(rows.size() - 1)[0].toString());
+        }
+        cryptoJobRepository.save(job);
+    }
+
+    /**
+     * 把一行中的明文、旧格式密文改写为数据所属用户当前密钥加密的信封格式密文
+     *
+     * @param binarySize 累计二进制格式转换前后的字段字节数
+     * @return 是否改写
+     */
+    private boolean encryptRow(EncryptedTable table, Object[] row, long[] binarySize) {
+        if (row[1] == null) {
+            log.warn("明文扫描跳过没有所属用户的行: 实体={}, 主键={}", table.entityName(), row[0]);
+            return false;
+        }
+        // 同一事务内同一用户的行共用一个密钥环
+        UserKeyRing keyRing = kmsService.getKeyRing(row[1].toString());
+
+        Map<String, String> changes = new LinkedHashMap<>();
+        for (int i = 0; i < table.fields().size(); i++) {
+            EncryptedField field = table.fields().get(i);
+            String fieldName = field.getName();
+            if (!(row[i + 2] instanceof String value) || value.isEmpty()) {
+                continue;
+            }
+            try {
+                String envelope = toEnvelope(keyRing, value, field);
+                if (envelope != null) {
+                    changes.put(fieldName, envelope);
+                    if (field.isBinary()) {
+                        binarySize[0] += value.getBytes(StandardCharsets.UTF_8).length;
+                        binarySize[1] += envelope.length();
+                    }
+                }
+            } catch (Exception e) {
+                // 密文对应的密钥版本缺失等无法判断的情况保持原样，不影响任务继续
+                log.warn("明文扫描跳过字段: 实体={}, 主键={}, 字段={}, 错误={}",
+                        table.entityName(), row[0], fieldName, e.getMessage());
+            }
+        }
+        return !changes.isEmpty() && table.update(entityManager, row[0], changes);
+    }
+
+    /**
+     * 判断字段值是否为明文：能用用户密钥解密的是密文，格式错误或认证失败的是明文
+     *
+     * @return 改写后的信封格式密文，已是所需格式的信封格式密文时返回null
+     */
+    private String toEnvelope(UserKeyRing keyRing, String value, EncryptedField field)
+            throws GeneralSecurityException {
+        if (keyRing.latest() != null) {
+            try {
+                String plaintext = keyRing.decrypt(value);
+                if (!CipherEnvelope.isEnvelope(value)) {
+                    return keyRing.encrypt(plaintext, field);
+                }
+                return field.isBinary() && !CipherEnvelope.isBinary(value) ? CipherEnvelope.toBinary(value) : null;
+            } catch (IllegalArgumentException | AEADBadTagException e) {
+                // 不是密文
+            }
+        }
+        return keyRing.encrypt(value, field);
+    }
+
+    private void complete(CryptoJob job) {
+        job.setStatus(STATUS_COMPLETED);
+        job.setCompletedAt(LocalDateTime.now());
+        cryptoJobRepository.save(job);
+        log.info("明文扫描任务完成: {}, 扫描 {} 行, 改写 {} 行{}", job.getId(), job.getProcessedCount(),
+                job.getUpdatedCount(), strict ? "" : "，可以开启kms.strict");
+    }
+}
@@ -2,7 +2,6 @@ package com.barcke.service.impl;
 
 import com.barcke.common.BarckeContext;
 import com.barcke.common.CommonException;
-import com.barcke.dao.TodoRepository;
 import com.barcke.dao.TodoTypeRepository;
 import com.barcke.dto.todo.MonthStatisticsResponse;
 import com.barcke.dto.todo.TypeStatisticsResponse;
@@ -34,8 +33,8 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class StatisticsServiceImpl implements StatisticsService {
 
-    private final TodoRepository todoRepository;
     private final TodoTypeRepository todoTypeRepository;
+    private final TodoSeriesExpander todoSeriesExpander;
 
     @Override
     public MonthStatisticsResponse getCompletionStatsByMonth(String yearMonth) {
@@ -49,8 +48,8 @@ public class StatisticsServiceImpl implements StatisticsService {
         LocalDate startDate = month.withDayOfMonth(1);
         LocalDate endDate = month.withDayOfMonth(month.lengthOfMonth());
 
-        // 查询该月的所有 Todo
-        List<Todo> todos = todoRepository.findByUserIdAndDateBetweenAndDelFlagFalseOrderByDateAscTimeAsc(userId, startDate, endDate);
+        // 查询该月的所有 Todo（包括重复序列展开的重复）
+        List<Todo> todos = todoSeriesExpander.findTodos(userId, startDate, endDate, null);
 
         int totalCount = todos.size();
         long completedCount = todos.stream()
@@ -79,8 +78,8 @@ public class StatisticsServiceImpl implements StatisticsService {
         LocalDate startDate = month.withDayOfMonth(1);
         LocalDate endDate = month.withDayOfMonth(month.lengthOfMonth());
 
-        // 查询该月所有 Todo（包括已完成和未完成）
-        List<Todo> allTodos = todoRepository.findByUserIdAndDateBetweenAndDelFlagFalseOrderByDateAscTimeAsc(userId, startDate, endDate);
+        // 查询该月所有 Todo（包括已完成和未完成，以及重复序列展开的重复）
+        List<Todo> allTodos = todoSeriesExpander.findTodos(userId, startDate, endDate, null);
 
         // 按类型统计已完成和未完成的数量
         Map<String, Integer> completedCountMap = new HashMap<>();
@@ -0,0 +1,275 @@
+package com.barcke.service.impl;
+
+import com.barcke.common.CommonException;
+import com.barcke.dao.TodoRepository;
+import com.barcke.dao.TodoSeriesRepository;
+import com.barcke.dto.todo.TodoBulkFilter;
+import com.barcke.dto.todo.TodoBulkRequest;
+import com.barcke.dto.todo.TodoBulkResponse;
+import com.barcke.pojo.Todo;
+import com.barcke.pojo.TodoSeries;
+import com.barcke.service.TodoTitleIndexService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className TodoBulkExecutor
+ * @date 2025/12/24
+ * @slogan: 源于生活 高于生活
+ * @description: Todo 批量操作执行器（完成、删除、改期、修改类型）
+ * 已保存的 Todo 用一条限定用户的 JPQL 批量更新，不逐行加载、解密、保存；
+ * 按筛选条件删除、修改类型时，序列此后的重复全部在范围内的直接修改序列（见 {@link TodoSeriesEditor}），
+ * 其余选中的展开的重复按操作后的状态单独保存，一次批量插入
+ **/
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TodoBulkExecutor {
+
+    public static final String OPERATION_COMPLETE = "complete";
+    public static final String OPERATION_DELETE = "delete";
+    public static final String OPERATION_RESCHEDULE = "reschedule";
+    public static final String OPERATION_RETYPE = "retype";
+
+    /**
+     * ID列表最多条数
+     */
+    private static final int MAX_IDS = 1000;
+
+    /**
+     * 筛选条件的日期范围最多天数
+     */
+    private static final int MAX_FILTER_DAYS = 366;
+
+    /**
+     * 按筛选条件一次最多单独保存的重复条数（展开的重复需要逐条保存，删除时保存为已删除的重复）
+     */
+    private static final int MAX_SAVED_OCCURRENCES = 1000;
+
+    private final TodoRepository todoRepository;
+    private final TodoSeriesRepository todoSeriesRepository;
+    private final TodoSeriesExpander todoSeriesExpander;
+    private final TodoSeriesEditor todoSeriesEditor;
+    private final TodoTitleIndexService todoTitleIndexService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * 执行批量操作
+     */
+    public TodoBulkResponse execute(String userId, TodoBulkRequest request) {
+        String operation = request.getOperation();
+        String setClause = switch (operation) {
+            case OPERATION_COMPLETE -> "e.status = 'completed', e.completedAt = :now";
+            case OPERATION_DELETE -> "e.delFlag = true";
+            case OPERATION_RESCHEDULE -> "e.date = :date";
+            case OPERATION_RETYPE -> "e.typeId = :typeId";
+            default -> throw CommonException.toast("不支持的操作: " + operation);
+        };
+        if (OPERATION_RESCHEDULE.equals(operation) && request.getDate() == null) {
+            throw CommonException.toast("改期日期不能为空");
+        }
+        if (OPERATION_RETYPE.equals(operation) && (request.getTypeId() == null || request.getTypeId().isBlank())) {
+            throw CommonException.toast("类型ID不能为空");
+        }
+
+        boolean byIds = request.getIds() != null && !request.getIds().isEmpty();
+        if (byIds == (request.getFilter() != null)) {
+            throw CommonException.toast("ID列表和筛选条件需要二选一");
+        }
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("userId", userId);
+        StringBuilder where = new StringBuilder(" where e.userId = :userId and e.delFlag = false");
+        List<Todo> occurrences = byIds
+                ? selectByIds(userId, request.getIds(), where, parameters)
+                : selectByFilter(userId, request.getFilter(), where, parameters);
+        int selectedOccurrences = occurrences.size();
+        if (!byIds) {
+            occurrences = applyToWholeSeries(userId, request, occurrences);
+        }
+        if (OPERATION_COMPLETE.equals(operation)) {
+            where.append(" and e.status <> 'completed'");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        int updated = 0;
+        if (!byIds || parameters.containsKey("ids")) {
+            List<String> deletedIds = OPERATION_DELETE.equals(operation)
+                    ? createQuery("select e.id from Todo e" + where, parameters, String.class).getResultList()
+                    : List.of();
+
+            Query update = entityManager.createQuery("update Todo e set " + setClause + ", e.updatedAt = :now" + where);
+            parameters.forEach(update::setParameter);
+            update.setParameter("now", now);
+            if (OPERATION_RESCHEDULE.equals(operation)) {
+                update.setParameter("date", request.getDate());
+            }
+            if (OPERATION_RETYPE.equals(operation)) {
+                update.setParameter("typeId", request.getTypeId());
+            }
+            updated = update.executeUpdate();
+            todoTitleIndexService.remove(deletedIds);
+        }
+
+        if (!occurrences.isEmpty()) {
+            saveOccurrences(occurrences, request, now);
+        }
+        log.info("Todo 批量操作: 用户={}, 操作={}, 批量更新 {} 条, 展开的重复 {} 条（单独保存 {} 条）",
+                userId, operation, updated, selectedOccurrences, occurrences.size());
+        return TodoBulkResponse.builder()
+                .operation(operation)
+                .count(updated + selectedOccurrences)
+                .build();
+    }
+
+    /**
+     * 按ID列表选择：已保存的 Todo 加入更新条件，重复ID按序列分组一次解析为展开的重复（已单独保存的按保存的ID更新）
+     *
+     * @return 选中的展开的重复
+     */
+    private List<Todo> selectByIds(String userId, List<String> ids, StringBuilder where,
+                                   Map<String, Object> parameters) {
+        if (ids.size() > MAX_IDS) {
+            throw CommonException.toast("一次最多操作 " + MAX_IDS + " 条 Todo");
+        }
+        Set<String> uniqueIds = new LinkedHashSet<>(ids);
+        Map<String, Todo> resolved = todoSeriesExpander.findOccurrences(userId, uniqueIds.stream()
+                .filter(id -> id.indexOf(TodoSeriesExpander.OCCURRENCE_ID_SEPARATOR) >= 0)
+                .toList());
+        Set<String> savedIds = new LinkedHashSet<>();
+        List<Todo> occurrences = new ArrayList<>();
+        for (String id : uniqueIds) {
+            Todo todo = resolved.get(id);
+            if (todo == null) {
+                savedIds.add(id);
+            } else if (TodoSeriesExpander.isOccurrence(todo)) {
+                occurrences.add(todo);
+            } else {
+                savedIds.add(todo.getId());
+            }
+        }
+        if (!savedIds.isEmpty()) {
+            where.append(" and e.id in :ids");
+            parameters.put("ids", savedIds);
+        }
+        return occurrences;
+    }
+
+    /**
+     * 按筛选条件选择：条件加入更新条件，日期范围内的重复序列展开后按类型、状态筛选（展开的重复均为 pending）
+     *
+     * @return 选中的展开的重复
+     */
+    private List<Todo> selectByFilter(String userId, TodoBulkFilter filter, StringBuilder where,
+                                      Map<String, Object> parameters) {
+        if (filter.getStartDate() == null || filter.getEndDate() == null) {
+            throw CommonException.toast("筛选条件的开始日期和结束日期不能为空");
+        }
+        if (filter.getStartDate().isAfter(filter.getEndDate())) {
+            throw CommonException.toast("开始日期不能晚于结束日期");
+        }
+        if (ChronoUnit.DAYS.between(filter.getStartDate(), filter.getEndDate()) >= MAX_FILTER_DAYS) {
+            throw CommonException.toast("筛选条件的日期范围最多 " + MAX_FILTER_DAYS + " 天");
+        }
+        where.append(" and e.date between :startDate and :endDate");
+        parameters.put("startDate", filter.getStartDate());
+        parameters.put("endDate", filter.getEndDate());
+        if (filter.getTypeId() != null) {
+            where.append(" and e.typeId = :filterTypeId");
+            parameters.put("filterTypeId", filter.getTypeId());
+        }
+        if (filter.getStatus() != null) {
+            where.append(" and e.status = :status");
+            parameters.put("status", filter.getStatus());
+        }
+
+        if (filter.getStatus() != null && !"pending".equals(filter.getStatus())) {
+            return List.of();
+        }
+        return todoSeriesExpander.expand(userId, filter.getStartDate(), filter.getEndDate()).stream()
+                .filter(todo -> filter.getTypeId() == null || filter.getTypeId().equals(todo.getTypeId()))
+                .toList();
+    }
+
+    /**
+     * 删除、修改类型时，序列有结束日期且不晚于筛选的结束日期（范围内第一次选中的重复起，此后的重复全部选中），
+     * 由 TodoSeriesEditor 从这一次起截止序列或拆分出新类型的序列，不逐条保存；单独保存的重复已由批量更新按筛选条件处理
+     *
+     * @return 仍需单独保存的重复
+     */
+    private List<Todo> applyToWholeSeries(String userId, TodoBulkRequest request, List<Todo> occurrences) {
+        String operation = request.getOperation();
+        boolean seriesOperation = OPERATION_DELETE.equals(operation) || OPERATION_RETYPE.equals(operation);
+        List<TodoSeries> wholeSeries = List.of();
+        // 展开的重复按日期升序，每个序列第一条即范围内第一次选中的重复
+        Map<String, LocalDate> fromDates = new HashMap<>();
+        if (seriesOperation && !occurrences.isEmpty()) {
+            occurrences.forEach(todo -> fromDates.putIfAbsent(todo.getSeriesId(), todo.getOccurrenceDate()));
+            LocalDate endDate = request.getFilter().getEndDate();
+            wholeSeries = todoSeriesRepository.findByUserIdAndIdInAndDelFlagFalse(userId, fromDates.keySet()).stream()
+                    .filter(series -> series.getEndDate() != null && !series.getEndDate().isAfter(endDate))
+                    .toList();
+        }
+
+        Set<String> wholeSeriesIds = new HashSet<>();
+        wholeSeries.forEach(series -> wholeSeriesIds.add(series.getId()));
+        List<Todo> remaining = wholeSeriesIds.isEmpty() ? occurrences : occurrences.stream()
+                .filter(todo -> !wholeSeriesIds.contains(todo.getSeriesId()))
+                .toList();
+        if (remaining.size() > MAX_SAVED_OCCURRENCES) {
+            throw CommonException.toast("筛选范围内的重复超过 " + MAX_SAVED_OCCURRENCES
+                    + " 条，请缩小日期范围或修改整个重复序列");
+        }
+
+        for (TodoSeries series : wholeSeries) {
+            LocalDate from = fromDates.get(series.getId());
+            if (OPERATION_DELETE.equals(operation)) {
+                todoSeriesEditor.end(series, from);
+            } else {
+                todoSeriesEditor.retype(series, from, request.getTypeId());
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * 按操作后的状态单独保存展开的重复（一次批量插入，展开时跳过这些日期）
+     */
+    private void saveOccurrences(List<Todo> occurrences, TodoBulkRequest request, LocalDateTime now) {
+        for (Todo todo : occurrences) {
+            todo.setId(null);
+            switch (request.getOperation()) {
+                case OPERATION_COMPLETE -> todo.setStatus("completed").setCompletedAt(now);
+                case OPERATION_DELETE -> todo.setDelFlag(true);
+                case OPERATION_RESCHEDULE -> todo.setDate(request.getDate());
+                case OPERATION_RETYPE -> todo.setTypeId(request.getTypeId());
+                default -> throw new IllegalStateException(request.getOperation());
+            }
+        }
+        List<Todo> saved = todoRepository.insertAll(occurrences);
+        if (!OPERATION_DELETE.equals(request.getOperation())) {
+            todoTitleIndexService.index(saved);
+        }
+    }
+
+    private <T> TypedQuery<T> createQuery(String jpql, Map<String, Object> parameters, Class<T> resultClass) {
+        TypedQuery<T> query = entityManager.createQuery(jpql, resultClass);
+        parameters.forEach(query::setParameter);
+        return query;
+    }
+}
@@ -0,0 +1,127 @@
+package com.barcke.service.impl;
+
+import com.barcke.dao.TodoAttachmentRepository;
+import com.barcke.dao.TodoTypeRepository;
+import com.barcke.dto.todo.AttachmentResponse;
+import com.barcke.dto.todo.RepeatRule;
+import com.barcke.dto.todo.TodoResponse;
+import com.barcke.pojo.Todo;
+import com.barcke.pojo.TodoAttachment;
+import com.barcke.pojo.TodoType;
+import com.barcke.tool.EncryptedFieldRevealer;
+import cn.hutool.json.JSONUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className TodoResponseAssembler
+ * @date 2025/12/22
+ * @slogan: 源于生活 高于生活
+ * @description: Todo 响应组装器，一批 Todo 引用的类型、附件各用一次 IN 查询加载，查询次数与列表长度无关；
+ * 列表较大时描述（懒解密字段）先并行解密
+ **/
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TodoResponseAssembler {
+
+    private final TodoTypeRepository todoTypeRepository;
+    private final TodoAttachmentRepository todoAttachmentRepository;
+    private final EncryptedFieldRevealer encryptedFieldRevealer;
+
+    /**
+     * 转换单个 Todo
+     */
+    public TodoResponse toResponse(Todo todo) {
+        return toResponses(List.of(todo)).get(0);
+    }
+
+    /**
+     * 批量转换（保持原顺序）
+     */
+    public List<TodoResponse> toResponses(List<Todo> todos) {
+        if (todos.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Set<String> typeIds = todos.stream()
+                .map(Todo::getTypeId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        // 未设置类型的 Todo 按 null 查找，需要允许 null 键的 Map
+        Map<String, TodoType> types = new HashMap<>();
+        if (!typeIds.isEmpty()) {
+            types.putAll(todoTypeRepository.findAllById(typeIds).stream()
+                    .collect(Collectors.toMap(TodoType::getTypeId, Function.identity())));
+        }
+
+        Map<String, List<AttachmentResponse>> attachments = todoAttachmentRepository.findByTodoIdIn(todos.stream()
+                        .map(Todo::getId)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.groupingBy(TodoAttachment::getTodoId,
+                        Collectors.mapping(this::convertAttachmentToResponse, Collectors.toList())));
+
+        encryptedFieldRevealer.revealAll(todos, "description");
+        return todos.stream()
+                .map(todo -> convertToResponse(todo, types.get(todo.getTypeId()),
+                        attachments.getOrDefault(todo.getId(), new ArrayList<>())))
+                .collect(Collectors.toList());
+    }
+
+    private TodoResponse convertToResponse(Todo todo, TodoType todoType, List<AttachmentResponse> attachments) {
+        // 解析重复规则
+        RepeatRule repeatRule = null;
+        if (todo.getRepeatRule() != null) {
+            try {
+                repeatRule = JSONUtil.toBean(todo.getRepeatRule(), RepeatRule.class);
+            } catch (Exception e) {
+                log.warn("解析重复规则失败: {}", todo.getRepeatRule(), e);
+            }
+        }
+
+        return TodoResponse.builder()
+                .id(todo.getId())
+                .title(todo.getTitle())
+                .description(todo.getDescription())
+                .date(todo.getDate())
+                .time(todo.getTime())
+                .status(todo.getStatus())
+                .typeId(todo.getTypeId())
+                .typeName(todoType != null ? todoType.getTypeName() : null)
+                .typeIcon(todoType != null ? todoType.getIcon() : null)
+                .source(todo.getSource())
+                .templateId(todo.getTemplateId())
+                .repeatType(todo.getRepeatType())
+                .repeatRule(repeatRule)
+                .seriesId(todo.getSeriesId())
+                .attachments(attachments)
+                .createdAt(todo.getCreatedAt())
+                .completedAt(todo.getCompletedAt())
+                .updatedAt(todo.getUpdatedAt())
+                .build();
+    }
+
+    /**
+     * 转换附件为响应DTO
+     */
+    private AttachmentResponse convertAttachmentToResponse(TodoAttachment attachment) {
+        return AttachmentResponse.builder()
+                .attachmentId(attachment.getAttachmentId())
+                .type(attachment.getType())
+                .url(attachment.getUrl())
+                .previewUrl(attachment.getPreviewUrl())
+                .fileName(attachment.getFileName())
+                .fileSize(attachment.getFileSize())
+                .createdAt(attachment.getCreatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,380 @@
+package com.barcke.service.impl;
+
+import com.barcke.common.CommonException;
+import com.barcke.dao.TodoRepository;
+import com.barcke.dao.TodoSeriesRepository;
+import com.barcke.dto.todo.RepeatRule;
+import com.barcke.dto.todo.TodoUpdateRequest;
+import com.barcke.pojo.Todo;
+import com.barcke.pojo.TodoSeries;
+import com.barcke.service.KmsService;
+import com.barcke.service.TodoTitleIndexService;
+import com.barcke.tool.EncryptedEntityRegistry;
+import com.barcke.tool.EncryptedEntityRegistry.EncryptedField;
+import com.barcke.tool.RecurrenceRule;
+import com.barcke.tool.RecurrenceSet;
+import com.barcke.tool.UserKeyRing;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className TodoSeriesEditor
+ * @date 2025/12/24
+ * @slogan: 源于生活 高于生活
+ * @description: 重复 Todo 序列的整体修改和删除（此后的重复 / 全部重复）
+ * 序列只有一行，修改序列即修改所有展开的重复；单独保存的重复用一条 JPQL 批量更新/软删除，
+ * 修改的加密字段只加密一次（同一用户、同一明文），不逐行加载、加密、保存
+ **/
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TodoSeriesEditor {
+
+    /**
+     * 修改/删除范围：只修改这一次重复
+     */
+    public static final String SCOPE_THIS = "this";
+
+    /**
+     * 修改/删除范围：这一次及之后的重复（从这一次起拆分为新序列）
+     */
+    public static final String SCOPE_FOLLOWING = "following";
+
+    /**
+     * 修改/删除范围：序列的全部重复
+     */
+    public static final String SCOPE_ALL = "all";
+
+    private final TodoRepository todoRepository;
+    private final TodoSeriesRepository todoSeriesRepository;
+    private final TodoSeriesExpander todoSeriesExpander;
+    private final TodoTitleIndexService todoTitleIndexService;
+    private final KmsService kmsService;
+    private final EncryptedEntityRegistry entityRegistry;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${kms.enabled:true}")
+    private boolean kmsEnabled;
+
+    /**
+     * 校验修改/删除范围，为空时为 this
+     */
+    public static String normalizeScope(String scope) {
+        if (scope == null || scope.isBlank()) {
+            return SCOPE_THIS;
+        }
+        if (!SCOPE_THIS.equals(scope) && !SCOPE_FOLLOWING.equals(scope) && !SCOPE_ALL.equals(scope)) {
+            throw CommonException.toast("无效的修改范围: " + scope);
+        }
+        return scope;
+    }
+
+    /**
+     * 校验重复规则并设置序列的重复类型、重复规则、结束日期（设置了 rrule 时以 RRULE 为准规范化保存）
+     */
+    public void applyRecurrence(TodoSeries series, String repeatType, RepeatRule repeatRule) {
+        RecurrenceSet recurrence;
+        try {
+            recurrence = TodoSeriesExpander.recurrence(series.getStartDate(), repeatType, repeatRule);
+        } catch (IllegalArgumentException e) {
+            throw CommonException.toast("重复规则无效: " + e.getMessage());
+        }
+        if (!recurrence.hasRuleDates()) {
+            throw CommonException.toast("重复规则不会产生任何日期: " + recurrence.getRule());
+        }
+        if (repeatRule.getRrule() != null && !repeatRule.getRrule().isBlank()) {
+            repeatType = frequencyType(recurrence.getRule());
+            repeatRule.setRrule(recurrence.getRule().toString());
+            repeatRule.setType(repeatType);
+            repeatRule.setDays(null);
+        }
+
+        // COUNT 规则在这里数出最后一次重复，之后展开任意范围都不需要从头计数
+        series.setRepeatType(repeatType);
+        series.setRepeatRule(TodoSeriesExpander.toJson(repeatRule));
+        series.setEndDate(recurrence.lastDate());
+        series.setCountUntil(recurrence.countUntil());
+    }
+
+    /**
+     * 修改序列中某次重复及之后（following）或全部（all）的重复
+     *
+     * @param todo 用户选中的重复（展开的或单独保存的）
+     * @return 修改后的这一次重复
+     */
+    public Todo update(Todo todo, String scope, TodoUpdateRequest request) {
+        TodoSeries series = todoSeriesRepository.findByUserIdAndIdAndDelFlagFalse(todo.getUserId(), todo.getSeriesId());
+        if (series == null) {
+            throw CommonException.toast("重复序列不存在");
+        }
+        if (request.getDate() != null && !request.getDate().equals(todo.getDate())) {
+            throw CommonException.toast("修改多次重复时不能修改日期，请修改重复规则");
+        }
+        if ("none".equals(request.getRepeatType())) {
+            throw CommonException.toast("取消重复请删除此后的重复");
+        }
+
+        LocalDate from = todo.getOccurrenceDate();
+        if (SCOPE_ALL.equals(scope) || !from.isAfter(series.getStartDate())) {
+            applyChanges(series, series.getStartDate(), request);
+            todoSeriesRepository.saveAndFlush(series);
+            updateSavedOccurrences(series, series.getId(), series.getStartDate(), request);
+            todoTitleIndexService.indexSeries(List.of(series));
+            return reload(todo, series);
+        }
+
+        // 从这一次起拆分：原序列截止到前一天，这一次及之后归入新序列
+        TodoSeries following = split(series, from);
+        applyChanges(following, from, request);
+        following = todoSeriesRepository.saveAndFlush(following);
+        todoSeriesRepository.saveAndFlush(series);
+        updateSavedOccurrences(following, series.getId(), from, request);
+        todoTitleIndexService.indexSeries(List.of(following));
+        return reload(todo, following);
+    }
+
+    /**
+     * 删除序列中某次重复及之后（following）或全部（all）的重复
+     *
+     * @param todo 用户选中的重复（展开的或单独保存的）
+     */
+    public void delete(Todo todo, String scope) {
+        TodoSeries series = todoSeriesRepository.findByUserIdAndIdAndDelFlagFalse(todo.getUserId(), todo.getSeriesId());
+        if (series == null) {
+            throw CommonException.toast("重复序列不存在");
+        }
+
+        LocalDate from = todo.getOccurrenceDate();
+        List<String> removedIds;
+        if (SCOPE_ALL.equals(scope) || !from.isAfter(series.getStartDate())) {
+            from = series.getStartDate();
+            series.setDelFlag(true);
+            removedIds = new ArrayList<>(todoRepository.findSavedOccurrenceIds(series.getId(), from));
+            removedIds.add(series.getId());
+        } else {
+            truncate(series, from);
+            removedIds = todoRepository.findSavedOccurrenceIds(series.getId(), from);
+        }
+        todoSeriesRepository.save(series);
+        int deleted = todoRepository.softDeleteOccurrences(series.getId(), from, LocalDateTime.now());
+        todoTitleIndexService.remove(removedIds);
+        log.info("删除重复序列 {} 的重复: 范围={}, 单独保存的重复 {} 条", series.getId(), scope, deleted);
+    }
+
+    /**
+     * 序列从指定日期起（含）不再展开重复（从开始日期起即删除序列），单独保存的重复不修改（批量操作按筛选条件另行更新）
+     */
+    public void end(TodoSeries series, LocalDate from) {
+        if (from.isAfter(series.getStartDate())) {
+            truncate(series, from);
+        } else {
+            series.setDelFlag(true);
+            todoTitleIndexService.remove(List.of(series.getId()));
+        }
+        todoSeriesRepository.save(series);
+    }
+
+    /**
+     * 序列从指定日期起（含）的重复改为新类型（从开始日期起即修改整个序列，否则拆分出新序列），
+     * 单独保存的重复只随拆分归入新序列，类型不修改（批量操作按筛选条件另行更新）
+     */
+    public void retype(TodoSeries series, LocalDate from, String typeId) {
+        if (!from.isAfter(series.getStartDate())) {
+            series.setTypeId(typeId);
+            todoSeriesRepository.save(series);
+            return;
+        }
+        TodoSeries following = split(series, from);
+        following.setTypeId(typeId);
+        following = todoSeriesRepository.saveAndFlush(following);
+        todoSeriesRepository.saveAndFlush(series);
+        updateSavedOccurrences(following, series.getId(), from, new TodoUpdateRequest());
+        todoTitleIndexService.indexSeries(List.of(following));
+    }
+
+    /**
+     * 把修改应用到序列（修改重复规则时从 startDate 起重新换算）
+     */
+    private void applyChanges(TodoSeries series, LocalDate startDate, TodoUpdateRequest request) {
+        if (request.getTitle() != null) {
+            series.setTitle(request.getTitle());
+        }
+        if (request.getDescription() != null) {
+            series.setDescription(request.getDescription());
+        }
+        if (request.getTime() != null) {
+            series.setTime(request.getTime());
+        }
+        if (request.getTypeId() != null) {
+            series.setTypeId(request.getTypeId());
+        }
+        if (request.getRepeatRule() != null) {
+            series.setStartDate(startDate);
+            applyRecurrence(series, request.getRepeatType() != null ? request.getRepeatType() : series.getRepeatType(),
+                    request.getRepeatRule());
+        }
+    }
+
+    /**
+     * 拆分序列：原序列截止到指定日期前一天，返回从指定日期开始、规则和内容相同的新序列（未保存）
+     */
+    private TodoSeries split(TodoSeries series, LocalDate from) {
+        RecurrenceSet recurrence = todoSeriesExpander.recurrence(series);
+        RepeatRule repeatRule = Optional.ofNullable(TodoSeriesExpander.parseRepeatRule(series.getRepeatRule()))
+                .orElseGet(RepeatRule::new);
+        // COUNT 规则已换算为 UNTIL（最后一次重复），新序列不需要重新计数
+        RepeatRule followingRule = RepeatRule.builder()
+                .type(frequencyType(recurrence.getRule()))
+                .rrule(recurrence.getRule().toString())
+                .rdates(onOrAfter(repeatRule.getRdates(), from))
+                .exdates(onOrAfter(repeatRule.getExdates(), from))
+                .build();
+
+        TodoSeries following = TodoSeries.builder()
+                .userId(series.getUserId())
+                .title(series.getTitle())
+                .description(series.getDescription())
+                .startDate(from)
+                .time(series.getTime())
+                .typeId(series.getTypeId())
+                .source(series.getSource())
+                .templateId(series.getTemplateId())
+                .delFlag(false)
+                .build();
+        applyRecurrence(following, followingRule.getType(), followingRule);
+
+        truncate(series, from);
+        return following;
+    }
+
+    /**
+     * 序列截止到指定日期前一天（规则加 UNTIL，之后的 RDATE、EXDATE 去掉）
+     */
+    private void truncate(TodoSeries series, LocalDate from) {
+        RecurrenceSet recurrence = todoSeriesExpander.recurrence(series);
+        RecurrenceRule rule = recurrence.getRule();
+        LocalDate until = from.minusDays(1);
+        if (rule.getUntil() != null && rule.getUntil().isBefore(until)) {
+            until = rule.getUntil();
+        }
+        RepeatRule repeatRule = Optional.ofNullable(TodoSeriesExpander.parseRepeatRule(series.getRepeatRule()))
+                .orElseGet(RepeatRule::new);
+        RepeatRule truncated = RepeatRule.builder()
+                .type(frequencyType(rule))
+                .rrule(rule.withUntil(until).toString())
+                .rdates(before(repeatRule.getRdates(), from))
+                .exdates(before(repeatRule.getExdates(), from))
+                .build();
+        applyRecurrence(series, truncated.getType(), truncated);
+    }
+
+    /**
+     * 一条 JPQL 批量更新序列中单独保存的重复（指定日期及之后，包括已删除的）：归入目标序列，应用修改的字段；
+     * 修改的加密字段只加密一次，所有行写入同一密文
+     *
+     * @param target   修改后重复所属的序列
+     * @param seriesId 重复原来所属的序列ID
+     */
+    private void updateSavedOccurrences(TodoSeries target, String seriesId, LocalDate from, TodoUpdateRequest request) {
+        List<String> indexedIds = request.getTitle() != null
+                ? todoRepository.findSavedOccurrenceIds(seriesId, from)
+                : List.of();
+
+        Map<String, Object> changes = new LinkedHashMap<>();
+        if (!target.getId().equals(seriesId)) {
+            changes.put("seriesId", target.getId());
+        }
+        putEncrypted(changes, target.getUserId(), "title", request.getTitle());
+        putEncrypted(changes, target.getUserId(), "description", request.getDescription());
+        if (request.getTime() != null) {
+            changes.put("time", request.getTime());
+        }
+        if (request.getTypeId() != null) {
+            changes.put("typeId", request.getTypeId());
+        }
+        if (request.getRepeatRule() != null) {
+            changes.put("repeatType", target.getRepeatType());
+            changes.put("repeatRule", target.getRepeatRule());
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        changes.put("updatedAt", LocalDateTime.now());
+
+        StringBuilder jpql = new StringBuilder("update Todo e set ");
+        int index = 0;
+        for (String fieldName : changes.keySet()) {
+            jpql.append(index++ > 0 ? ", " : "").append("e.").append(fieldName).append(" = :").append(fieldName);
+        }
+        jpql.append(" where e.seriesId = :oldSeriesId and e.occurrenceDate >= :fromDate");
+        Query update = entityManager.createQuery(jpql.toString())
+                .setParameter("oldSeriesId", seriesId)
+                .setParameter("fromDate", from);
+        changes.forEach(update::setParameter);
+        int updated = update.executeUpdate();
+        log.info("批量修改重复序列 {} 单独保存的重复 {} 条", seriesId, updated);
+
+        if (!indexedIds.isEmpty()) {
+            todoTitleIndexService.index(indexedIds.stream()
+                    .map(id -> Todo.builder().id(id).userId(target.getUserId()).title(request.getTitle())
+                            .delFlag(false).build())
+                    .toList());
+        }
+    }
+
+    /**
+     * 加密字段的新值（批量 JPQL 更新不经过加密监听器，在这里加密）
+     */
+    private void putEncrypted(Map<String, Object> changes, String userId, String fieldName, String plaintext) {
+        if (plaintext == null) {
+            return;
+        }
+        if (!kmsEnabled) {
+            changes.put(fieldName, plaintext);
+            return;
+        }
+        UserKeyRing keyRing = kmsService.getKeyRing(userId);
+        EncryptedField field = entityRegistry.get(Todo.class).getEncryptedFields().stream()
+                .filter(candidate -> candidate.getName().equals(fieldName))
+                .findFirst()
+                .orElseThrow();
+        changes.put(fieldName, keyRing.encrypt(plaintext, field));
+    }
+
+    /**
+     * 修改后的这一次重复：单独保存的重新加载，展开的按所属序列重新展开
+     */
+    private Todo reload(Todo todo, TodoSeries series) {
+        if (TodoSeriesExpander.isOccurrence(todo)) {
+            return todoSeriesExpander.toOccurrence(series, todo.getOccurrenceDate());
+        }
+        entityManager.refresh(todo);
+        return todo;
+    }
+
+    private static String frequencyType(RecurrenceRule rule) {
+        return rule.getFrequency().name().toLowerCase(Locale.ROOT);
+    }
+
+    private static List<LocalDate> onOrAfter(List<LocalDate> dates, LocalDate from) {
+        return dates == null ? null : dates.stream().filter(date -> !date.isBefore(from)).toList();
+    }
+
+    private static List<LocalDate> before(List<LocalDate> dates, LocalDate from) {
+        return dates == null ? null : dates.stream().filter(date -> date.isBefore(from)).toList();
+    }
+}
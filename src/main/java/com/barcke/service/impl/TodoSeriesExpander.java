@@ -0,0 +1,382 @@
+package com.barcke.service.impl;
+
+import com.barcke.dao.TodoRepository;
+import com.barcke.dao.TodoSeriesRepository;
+import com.barcke.dto.todo.RepeatRule;
+import com.barcke.pojo.Todo;
+import com.barcke.pojo.TodoSeries;
+import com.barcke.tool.RecurrenceRule;
+import com.barcke.tool.RecurrenceSet;
+import cn.hutool.json.JSONConfig;
+import cn.hutool.json.JSONUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className TodoSeriesExpander
+ * @date 2025/12/23
+ * @slogan: 源于生活 高于生活
+ * @description: 重复 Todo 序列展开器，按查询的日期范围把序列展开为各次重复（不落库的 Todo，ID 为 序列ID_日期），
+ * 跳过已单独保存（完成、修改、删除）的重复；展开的耗时只与查询范围有关，与序列已持续多久无关
+ **/
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TodoSeriesExpander {
+
+    /**
+     * 重复ID中序列ID与日期的分隔符
+     */
+    public static final char OCCURRENCE_ID_SEPARATOR = '_';
+
+    /**
+     * 检索命中序列时，在多少天内查找下一次重复
+     */
+    private static final int NEXT_OCCURRENCE_SEARCH_DAYS = 366;
+
+    /**
+     * 按日期、时间排序（未设置时间的排在前面，与数据库排序一致）
+     */
+    public static final Comparator<Todo> TODO_ORDER = Comparator.comparing(Todo::getDate)
+            .thenComparing(Todo::getTime, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    /**
+     * 重复规则 JSON 中的日期格式
+     */
+    private static final JSONConfig JSON_CONFIG = JSONConfig.create().setDateFormat("yyyy-MM-dd");
+
+    private final TodoRepository todoRepository;
+    private final TodoSeriesRepository todoSeriesRepository;
+
+    /**
+     * 未指定日期范围的查询（如待办列表）向后展开的周数，随当前日期滚动
+     */
+    @Value("${todo.series.horizonWeeks:52}")
+    private int horizonWeeks;
+
+    /**
+     * 查询日期范围内的 Todo：单独保存的 Todo 与序列展开的重复合并，按日期、时间排序
+     *
+     * @param status 状态（为空时不过滤；序列展开的重复均为 pending）
+     */
+    public List<Todo> findTodos(String userId, LocalDate startDate, LocalDate endDate, String status) {
+        List<Todo> todos = new ArrayList<>(status == null
+                ? todoRepository.findByUserIdAndDateBetweenAndDelFlagFalseOrderByDateAscTimeAsc(userId, startDate, endDate)
+                : todoRepository.findByUserIdAndDateBetweenAndStatusAndDelFlagFalseOrderByDateAscTimeAsc(
+                        userId, startDate, endDate, status));
+        if (status == null || "pending".equals(status)) {
+            List<Todo> occurrences = expand(userId, startDate, endDate);
+            if (!occurrences.isEmpty()) {
+                todos.addAll(occurrences);
+                todos.sort(TODO_ORDER);
+            }
+        }
+        return todos;
+    }
+
+    /**
+     * 展开用户的序列在日期范围内尚未单独保存的重复
+     */
+    public List<Todo> expand(String userId, LocalDate startDate, LocalDate endDate) {
+        List<TodoSeries> seriesList =
+                todoSeriesRepository.findActiveSeries(userId, startDate, endDate);
+        if (seriesList.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Set<String> savedIds = findSavedOccurrenceIds(seriesList, startDate, endDate);
+        List<Todo> occurrences = new ArrayList<>();
+        for (TodoSeries series : seriesList) {
+            for (LocalDate date : occurrenceDates(series, startDate, endDate)) {
+                if (!savedIds.contains(occurrenceId(series.getId(), date))) {
+                    occurrences.add(toOccurrence(series, date));
+                }
+            }
+        }
+        occurrences.sort(TODO_ORDER);
+        return occurrences;
+    }
+
+    /**
+     * 未指定日期范围时展开的截止日期（今天起 todo.series.horizonWeeks 周），序列不会在某一天之后停止展开
+     */
+    public LocalDate horizon() {
+        return LocalDate.now().plusWeeks(horizonWeeks);
+    }
+
+    /**
+     * 各序列从指定日期起（含当天）下一次尚未单独保存的重复，一年内没有则跳过
+     */
+    public List<Todo> nextOccurrences(List<TodoSeries> seriesList, LocalDate from) {
+        if (seriesList.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        LocalDate to = from.plusDays(NEXT_OCCURRENCE_SEARCH_DAYS);
+        Set<String> savedIds = findSavedOccurrenceIds(seriesList, from, to);
+        List<Todo> occurrences = new ArrayList<>();
+        for (TodoSeries series : seriesList) {
+            Iterator<LocalDate> dates = recurrence(series).iterator(from);
+            while (dates.hasNext()) {
+                LocalDate date = dates.next();
+                if (date.isAfter(to)) {
+                    break;
+                }
+                if (!savedIds.contains(occurrenceId(series.getId(), date))) {
+                    occurrences.add(toOccurrence(series, date));
+                    break;
+                }
+            }
+        }
+        return occurrences;
+    }
+
+    /**
+     * 按重复ID查找用户的某次重复
+     *
+     * @return 已单独保存时返回保存的 Todo（已删除返回null），否则返回展开的重复；ID 不是序列中的某次重复返回null
+     */
+    public Todo findOccurrence(String userId, String occurrenceId) {
+        LocalDate date = parseOccurrenceDate(occurrenceId);
+        if (date == null) {
+            return null;
+        }
+
+        TodoSeries series = todoSeriesRepository.findByUserIdAndIdAndDelFlagFalse(userId,
+                occurrenceId.substring(0, occurrenceId.lastIndexOf(OCCURRENCE_ID_SEPARATOR)));
+        if (series == null || !recurrence(series).contains(date)) {
+            return null;
+        }
+        Todo saved = todoRepository.findBySeriesIdAndOccurrenceDate(series.getId(), date);
+        if (saved != null) {
+            return Boolean.TRUE.equals(saved.getDelFlag()) ? null : saved;
+        }
+        return toOccurrence(series, date);
+    }
+
+    /**
+     * 按重复ID批量查找用户的重复，序列、单独保存的重复各查询一次
+     *
+     * @return 重复ID对应的展开的重复，已单独保存的只返回保存的ID、序列ID和原始日期（不加载）；
+     * 已删除、不是序列中某次重复的ID不在结果中
+     */
+    public Map<String, Todo> findOccurrences(String userId, Collection<String> occurrenceIds) {
+        Map<String, Map<LocalDate, String>> idsBySeries = new HashMap<>();
+        for (String occurrenceId : occurrenceIds) {
+            LocalDate date = parseOccurrenceDate(occurrenceId);
+            if (date != null) {
+                idsBySeries.computeIfAbsent(occurrenceId.substring(0, occurrenceId.lastIndexOf(OCCURRENCE_ID_SEPARATOR)),
+                        seriesId -> new HashMap<>()).put(date, occurrenceId);
+            }
+        }
+        if (idsBySeries.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        List<TodoSeries> seriesList = todoSeriesRepository.findByUserIdAndIdInAndDelFlagFalse(userId,
+                idsBySeries.keySet());
+        Map<String, Todo> occurrences = new HashMap<>();
+        LocalDate startDate = null;
+        LocalDate endDate = null;
+        for (TodoSeries series : seriesList) {
+            RecurrenceSet recurrence = recurrence(series);
+            for (LocalDate date : idsBySeries.get(series.getId()).keySet()) {
+                if (recurrence.contains(date)) {
+                    occurrences.put(occurrenceId(series.getId(), date), toOccurrence(series, date));
+                    startDate = startDate == null || date.isBefore(startDate) ? date : startDate;
+                    endDate = endDate == null || date.isAfter(endDate) ? date : endDate;
+                }
+            }
+        }
+        if (occurrences.isEmpty()) {
+            return occurrences;
+        }
+
+        for (Object[] row : todoRepository.findOccurrenceDates(seriesList.stream().map(TodoSeries::getId).toList(),
+                startDate, endDate)) {
+            String seriesId = (String) row[0];
+            LocalDate date = (LocalDate) row[1];
+            String occurrenceId = occurrenceId(seriesId, date);
+            if (!occurrences.containsKey(occurrenceId)) {
+                continue;
+            }
+            if (Boolean.TRUE.equals(row[3])) {
+                occurrences.remove(occurrenceId);
+            } else {
+                occurrences.put(occurrenceId, Todo.builder()
+                        .id((String) row[2])
+                        .seriesId(seriesId)
+                        .occurrenceDate(date)
+                        .build());
+            }
+        }
+        return occurrences;
+    }
+
+    /**
+     * 重复ID中的原始日期，不是重复ID返回null
+     */
+    private static LocalDate parseOccurrenceDate(String occurrenceId) {
+        int separator = occurrenceId.lastIndexOf(OCCURRENCE_ID_SEPARATOR);
+        if (separator <= 0) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(occurrenceId.substring(separator + 1));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 是否为展开的重复（尚未单独保存）
+     */
+    public static boolean isOccurrence(Todo todo) {
+        return todo.getSeriesId() != null
+                && occurrenceId(todo.getSeriesId(), todo.getOccurrenceDate()).equals(todo.getId());
+    }
+
+    /**
+     * 重复ID
+     */
+    public static String occurrenceId(String seriesId, LocalDate date) {
+        return seriesId + OCCURRENCE_ID_SEPARATOR + date;
+    }
+
+    /**
+     * 序列在日期范围内的重复日期（升序），由重复规则直接定位到范围开始，不枚举范围之前的日期
+     */
+    public List<LocalDate> occurrenceDates(TodoSeries series, LocalDate startDate, LocalDate endDate) {
+        return recurrence(series).between(startDate, endDate);
+    }
+
+    /**
+     * 序列的重复日期集合（COUNT 规则使用保存时换算出的最后一次重复）
+     */
+    public RecurrenceSet recurrence(TodoSeries series) {
+        RepeatRule repeatRule = parseRepeatRule(series.getRepeatRule());
+        try {
+            return recurrence(series.getStartDate(), series.getRepeatType(), repeatRule)
+                    .withCountUntil(series.getCountUntil());
+        } catch (IllegalArgumentException e) {
+            // 保存时已校验，只有历史数据可能无效：按只在开始日期发生处理
+            log.warn("重复序列 {} 的重复规则无效: {}", series.getId(), e.getMessage());
+            return RecurrenceSet.of(series.getStartDate(),
+                    RecurrenceRule.parse("FREQ=DAILY;UNTIL=" + series.getStartDate()), null, null);
+        }
+    }
+
+    /**
+     * 根据重复类型和重复规则构建重复日期集合：设置了 rrule 时直接使用，否则把 type/days 换算为 RRULE
+     *
+     * @throws IllegalArgumentException 重复规则无效
+     */
+    public static RecurrenceSet recurrence(LocalDate startDate, String repeatType, RepeatRule repeatRule) {
+        RecurrenceRule rule = repeatRule != null && repeatRule.getRrule() != null && !repeatRule.getRrule().isBlank()
+                ? RecurrenceRule.parse(repeatRule.getRrule())
+                : RecurrenceRule.parse(toRrule(startDate, repeatType, repeatRule != null ? repeatRule.getDays() : null));
+        return RecurrenceSet.of(startDate, rule,
+                repeatRule != null ? repeatRule.getRdates() : null,
+                repeatRule != null ? repeatRule.getExdates() : null);
+    }
+
+    /**
+     * 重复规则序列化为 JSON（日期按 yyyy-MM-dd 保存，与时区无关）
+     */
+    public static String toJson(RepeatRule repeatRule) {
+        return repeatRule != null ? JSONUtil.toJsonStr(repeatRule, JSON_CONFIG) : null;
+    }
+
+    /**
+     * 解析 JSON 格式的重复规则，无效时返回null
+     */
+    public static RepeatRule parseRepeatRule(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return JSONUtil.toBean(json, RepeatRule.class);
+        } catch (Exception e) {
+            log.warn("解析重复规则失败: {}", json, e);
+            return null;
+        }
+    }
+
+    /**
+     * 把原有的 type/days 规则换算为 RRULE
+     */
+    private static String toRrule(LocalDate startDate, String repeatType, List<Integer> days) {
+        boolean hasDays = days != null && !days.isEmpty();
+        if (hasDays && "weekly".equals(repeatType) && days.stream().anyMatch(day -> day == null || day < 1 || day > 7)) {
+            throw new IllegalArgumentException("周几需要在 1~7 之间: " + days);
+        }
+        switch (repeatType) {
+            case "daily":
+                return "FREQ=DAILY";
+            case "weekly":
+                // days: 周几（1=周一，7=周日），未指定时每周同一天
+                return hasDays
+                        ? "FREQ=WEEKLY;BYDAY=" + days.stream()
+                                .map(day -> RecurrenceRule.dayCode(DayOfWeek.of(day)))
+                                .collect(Collectors.joining(","))
+                        : "FREQ=WEEKLY";
+            case "monthly":
+                // days: 每月几号，没有该日的月份跳过；未指定时每月同一天，没有该日的月份使用最后一天
+                if (hasDays) {
+                    return "FREQ=MONTHLY;BYMONTHDAY=" + days.stream().map(String::valueOf)
+                            .collect(Collectors.joining(","));
+                }
+                int dayOfMonth = startDate.getDayOfMonth();
+                return dayOfMonth > 28 ? "FREQ=MONTHLY;BYMONTHDAY=" + dayOfMonth + ",-1;BYSETPOS=1" : "FREQ=MONTHLY";
+            default:
+                throw new IllegalArgumentException("未知的重复类型: " + repeatType);
+        }
+    }
+
+    /**
+     * 日期范围内已单独保存（包括已删除）的重复ID
+     */
+    private Set<String> findSavedOccurrenceIds(List<TodoSeries> seriesList, LocalDate startDate, LocalDate endDate) {
+        return todoRepository.findOccurrenceDates(seriesList.stream().map(TodoSeries::getId).toList(),
+                        startDate, endDate)
+                .stream()
+                .map(row -> occurrenceId((String) row[0], (LocalDate) row[1]))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * 序列的某次重复（不落库）
+     */
+    public Todo toOccurrence(TodoSeries series, LocalDate date) {
+        return Todo.builder()
+                .id(occurrenceId(series.getId(), date))
+                .userId(series.getUserId())
+                .title(series.getTitle())
+                .description(series.getDescription())
+                .date(date)
+                .time(series.getTime())
+                .typeId(series.getTypeId())
+                .status("pending")
+                .source(series.getSource())
+                .templateId(series.getTemplateId())
+                .repeatType(series.getRepeatType())
+                .repeatRule(series.getRepeatRule())
+                .seriesId(series.getId())
+                .occurrenceDate(date)
+                .createdAt(series.getCreatedAt())
+                .updatedAt(series.getUpdatedAt())
+                .delFlag(false)
+                .build();
+    }
+}
@@ -4,28 +4,27 @@ import com.barcke.common.BarckeContext;
 import com.barcke.common.CommonException;
 import com.barcke.dao.TodoAttachmentRepository;
 import com.barcke.dao.TodoRepository;
-import com.barcke.dao.TodoTypeRepository;
-import com.barcke.dto.todo.AttachmentResponse;
+import com.barcke.dao.TodoSeriesRepository;
 import com.barcke.dto.todo.RepeatRule;
+import com.barcke.dto.todo.TodoBulkRequest;
+import com.barcke.dto.todo.TodoBulkResponse;
 import com.barcke.dto.todo.TodoCreateRequest;
 import com.barcke.dto.todo.TodoResponse;
 import com.barcke.dto.todo.TodoUpdateRequest;
 import com.barcke.pojo.Todo;
 import com.barcke.pojo.TodoAttachment;
-import com.barcke.pojo.TodoType;
+import com.barcke.pojo.TodoSeries;
 import com.barcke.service.TodoService;
-import cn.hutool.json.JSONUtil;
+import com.barcke.service.TodoTitleIndexService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * @author Barcke
@@ -42,8 +41,18 @@ import java.util.stream.Collectors;
 public class TodoServiceImpl implements TodoService {
 
     private final TodoRepository todoRepository;
-    private final TodoTypeRepository todoTypeRepository;
+    private final TodoSeriesRepository todoSeriesRepository;
     private final TodoAttachmentRepository todoAttachmentRepository;
+    private final TodoTitleIndexService todoTitleIndexService;
+    private final TodoResponseAssembler todoResponseAssembler;
+    private final TodoSeriesExpander todoSeriesExpander;
+    private final TodoSeriesEditor todoSeriesEditor;
+    private final TodoBulkExecutor todoBulkExecutor;
+
+    /**
+     * 检索最多返回条数
+     */
+    private static final int MAX_SEARCH_LIMIT = 100;
 
     @Override
     @Transactional
@@ -56,8 +65,13 @@ public class TodoServiceImpl implements TodoService {
         String repeatType = request.getRepeatType() != null ? request.getRepeatType() : "none";
         RepeatRule repeatRule = request.getRepeatRule();
 
-        // 构建第一个 Todo 实体
-        Todo firstTodo = Todo.builder()
+        // 重复 Todo 只保存一条序列，查询时按日期范围展开
+        boolean hasRrule = repeatRule != null && repeatRule.getRrule() != null && !repeatRule.getRrule().isBlank();
+        if (repeatRule != null && (!"none".equals(repeatType) || hasRrule)) {
+            return createSeries(request, userId, repeatType, repeatRule);
+        }
+
+        Todo todo = Todo.builder()
                 .userId(userId)
                 .title(request.getTitle())
                 .description(request.getDescription())
@@ -67,58 +81,36 @@ public class TodoServiceImpl implements TodoService {
                 .status("pending")
                 .source("normal")
                 .repeatType(repeatType)
-                .repeatRule(repeatRule != null ? JSONUtil.toJsonStr(repeatRule) : null)
+                .repeatRule(TodoSeriesExpander.toJson(repeatRule))
                 .delFlag(false)
                 .build();
 
-        firstTodo = todoRepository.save(firstTodo);
+        todo = todoRepository.save(todo);
 
-        // 关联附件到第一个 Todo
+        // 关联附件
         if (request.getAttachmentIds() != null && !request.getAttachmentIds().isEmpty()) {
-            associateAttachments(firstTodo.getId(), request.getAttachmentIds(), userId);
-        }
-
-        // 如果设置了重复规则，生成重复的 Todo
-        if (!"none".equals(repeatType) && repeatRule != null) {
-            List<LocalDate> repeatDates = generateRepeatDates(request.getDate(), repeatType, repeatRule);
-            if (!repeatDates.isEmpty()) {
-                List<Todo> repeatTodos = new ArrayList<>();
-                for (LocalDate date : repeatDates) {
-                    Todo repeatTodo = Todo.builder()
-                            .userId(userId)
-                            .title(request.getTitle())
-                            .description(request.getDescription())
-                            .date(date)
-                            .time(request.getTime())
-                            .typeId(request.getTypeId())
-                            .status("pending")
-                            .source("normal")
-                            .repeatType(repeatType)
-                            .repeatRule(JSONUtil.toJsonStr(repeatRule))
-                            .delFlag(false)
-                            .build();
-                    repeatTodos.add(repeatTodo);
-                }
-                // 批量保存重复的 Todo
-                todoRepository.saveAll(repeatTodos);
-            }
+            associateAttachments(todo.getId(), request.getAttachmentIds(), userId);
         }
+        todoTitleIndexService.index(List.of(todo));
 
-        return convertToResponse(firstTodo);
+        return todoResponseAssembler.toResponse(todo);
     }
 
     @Override
     @Transactional
-    public TodoResponse updateTodo(String id, TodoUpdateRequest request) {
+    public TodoResponse updateTodo(String id, TodoUpdateRequest request, String scope) {
         String userId = BarckeContext.getUserId();
         if (userId == null) {
             throw CommonException.toast("用户未登录");
         }
 
-        Todo todo = todoRepository.findByUserIdAndIdAndDelFlagFalse(userId, id);
-        if (todo == null) {
-            throw CommonException.toast("Todo 不存在");
+        scope = TodoSeriesEditor.normalizeScope(scope);
+        Todo todo = findTodo(userId, id);
+        if (todo.getSeriesId() != null && !TodoSeriesEditor.SCOPE_THIS.equals(scope)) {
+            // 修改序列和其中单独保存的重复（附件属于某一次重复，不随序列修改）
+            return todoResponseAssembler.toResponse(todoSeriesEditor.update(todo, scope, request));
         }
+        todo = materialize(todo);
 
         // 更新字段
         if (request.getTitle() != null) {
@@ -140,15 +132,18 @@ public class TodoServiceImpl implements TodoService {
             todo.setRepeatType(request.getRepeatType());
         }
         if (request.getRepeatRule() != null) {
-            todo.setRepeatRule(JSONUtil.toJsonStr(request.getRepeatRule()));
+            todo.setRepeatRule(TodoSeriesExpander.toJson(request.getRepeatRule()));
         }
 
         todo = todoRepository.save(todo);
+        if (request.getTitle() != null) {
+            todoTitleIndexService.index(List.of(todo));
+        }
 
         // 更新附件关联
         if (request.getAttachmentIds() != null) {
             // 先取消现有关联
-            List<TodoAttachment> existingAttachments = todoAttachmentRepository.findByTodoId(id);
+            List<TodoAttachment> existingAttachments = todoAttachmentRepository.findByTodoId(todo.getId());
             for (TodoAttachment attachment : existingAttachments) {
                 attachment.setTodoId(null);
                 todoAttachmentRepository.save(attachment);
@@ -159,24 +154,34 @@ public class TodoServiceImpl implements TodoService {
             }
         }
 
-        return convertToResponse(todo);
+        return todoResponseAssembler.toResponse(todo);
     }
 
     @Override
     @Transactional
-    public void deleteTodo(String id) {
+    public void deleteTodo(String id, String scope) {
         String userId = BarckeContext.getUserId();
         if (userId == null) {
             throw CommonException.toast("用户未登录");
         }
 
-        Todo todo = todoRepository.findByUserIdAndIdAndDelFlagFalse(userId, id);
-        if (todo == null) {
-            throw CommonException.toast("Todo 不存在");
+        scope = TodoSeriesEditor.normalizeScope(scope);
+        Todo todo = findTodo(userId, id);
+        if (todo.getSeriesId() != null && !TodoSeriesEditor.SCOPE_THIS.equals(scope)) {
+            todoSeriesEditor.delete(todo, scope);
+            return;
+        }
+        if (TodoSeriesExpander.isOccurrence(todo)) {
+            // 删除序列中的某次重复：单独保存为已删除，展开时跳过该日期
+            todo.setId(null);
+            todo.setDelFlag(true);
+            todoRepository.save(todo);
+            return;
         }
 
         todo.setDelFlag(true);
         todoRepository.save(todo);
+        todoTitleIndexService.remove(todo.getId());
     }
 
     @Override
@@ -187,31 +192,33 @@ public class TodoServiceImpl implements TodoService {
             throw CommonException.toast("用户未登录");
         }
 
-        Todo todo = todoRepository.findByUserIdAndIdAndDelFlagFalse(userId, id);
-        if (todo == null) {
-            throw CommonException.toast("Todo 不存在");
-        }
-
+        Todo todo = materialize(findTodo(userId, id));
         todo.setStatus("completed");
         todo.setCompletedAt(LocalDateTime.now());
         todo = todoRepository.save(todo);
 
-        return convertToResponse(todo);
+        return todoResponseAssembler.toResponse(todo);
     }
 
     @Override
-    public TodoResponse getTodoById(String id) {
+    @Transactional
+    public TodoBulkResponse bulkOperate(TodoBulkRequest request) {
         String userId = BarckeContext.getUserId();
         if (userId == null) {
             throw CommonException.toast("用户未登录");
         }
 
-        Todo todo = todoRepository.findByUserIdAndIdAndDelFlagFalse(userId, id);
-        if (todo == null) {
-            throw CommonException.toast("Todo 不存在");
+        return todoBulkExecutor.execute(userId, request);
+    }
+
+    @Override
+    public TodoResponse getTodoById(String id) {
+        String userId = BarckeContext.getUserId();
+        if (userId == null) {
+            throw CommonException.toast("用户未登录");
         }
 
-        return convertToResponse(todo);
+        return todoResponseAssembler.toResponse(findTodo(userId, id));
     }
 
     @Override
@@ -221,10 +228,8 @@ public class TodoServiceImpl implements TodoService {
             throw CommonException.toast("用户未登录");
         }
 
-        List<Todo> todos = todoRepository.findByUserIdAndDateAndDelFlagFalseOrderByTimeAsc(userId, date);
-        return todos.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        List<Todo> todos = todoSeriesExpander.findTodos(userId, date, date, null);
+        return todoResponseAssembler.toResponses(todos);
     }
 
     @Override
@@ -234,10 +239,8 @@ public class TodoServiceImpl implements TodoService {
             throw CommonException.toast("用户未登录");
         }
 
-        List<Todo> todos = todoRepository.findByUserIdAndDateBetweenAndDelFlagFalseOrderByDateAscTimeAsc(userId, startDate, endDate);
-        return todos.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        List<Todo> todos = todoSeriesExpander.findTodos(userId, startDate, endDate, null);
+        return todoResponseAssembler.toResponses(todos);
     }
 
     @Override
@@ -247,10 +250,14 @@ public class TodoServiceImpl implements TodoService {
             throw CommonException.toast("用户未登录");
         }
 
-        List<Todo> todos = todoRepository.findByUserIdAndStatusAndDelFlagFalseOrderByDateAscTimeAsc(userId, status);
-        return todos.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        List<Todo> todos = new ArrayList<>(
+                todoRepository.findByUserIdAndStatusAndDelFlagFalseOrderByDateAscTimeAsc(userId, status));
+        if ("pending".equals(status)) {
+            // 重复序列可能不限次数，未指定日期范围时只展开到滚动截止日期
+            todos.addAll(todoSeriesExpander.expand(userId, LocalDate.EPOCH, todoSeriesExpander.horizon()));
+            todos.sort(TodoSeriesExpander.TODO_ORDER);
+        }
+        return todoResponseAssembler.toResponses(todos);
     }
 
     @Override
@@ -260,113 +267,77 @@ public class TodoServiceImpl implements TodoService {
             throw CommonException.toast("用户未登录");
         }
 
-        List<Todo> todos = todoRepository.findByUserIdAndDateBetweenAndStatusAndDelFlagFalseOrderByDateAscTimeAsc(userId, startDate, endDate, status);
-        return todos.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        List<Todo> todos = todoSeriesExpander.findTodos(userId, startDate, endDate, status);
+        return todoResponseAssembler.toResponses(todos);
+    }
+
+    @Override
+    public List<TodoResponse> searchTodos(String keyword, boolean exact, Integer limit) {
+        String userId = BarckeContext.getUserId();
+        if (userId == null) {
+            throw CommonException.toast("用户未登录");
+        }
+        if (keyword == null || keyword.isBlank()) {
+            throw CommonException.toast("检索关键词不能为空");
+        }
+
+        int size = limit != null && limit > 0 ? Math.min(limit, MAX_SEARCH_LIMIT) : 20;
+        List<Todo> todos = todoTitleIndexService.search(userId, keyword, exact, size);
+        return todoResponseAssembler.toResponses(todos);
     }
 
     /**
-     * 根据重复规则生成重复日期列表
-     * 
-     * @param startDate 开始日期
-     * @param repeatType 重复类型（daily/weekly/monthly）
-     * @param repeatRule 重复规则
-     * @return 重复日期列表
+     * 创建重复序列（一次插入），返回第一次重复
      */
-    private List<LocalDate> generateRepeatDates(LocalDate startDate, String repeatType, RepeatRule repeatRule) {
-        List<LocalDate> dates = new ArrayList<>();
-        LocalDate endDate = startDate.plusYears(1); // 默认生成未来一年的重复日期
-
-        switch (repeatType) {
-            case "daily":
-                // 每天重复，生成未来365天
-                LocalDate currentDate = startDate.plusDays(1);
-                while (!currentDate.isAfter(endDate)) {
-                    dates.add(currentDate);
-                    currentDate = currentDate.plusDays(1);
-                }
-                break;
-
-            case "weekly":
-                // 按周重复，根据 days 数组（周几）生成
-                if (repeatRule.getDays() != null && !repeatRule.getDays().isEmpty()) {
-                    // 从开始日期之后的第一周开始，生成未来52周
-                    for (int week = 1; week <= 52; week++) {
-                        LocalDate weekStart = startDate.plusWeeks(week);
-                        // 获取该周的第一天（周一）
-                        LocalDate mondayOfWeek = weekStart.with(DayOfWeek.MONDAY);
-                        for (Integer dayOfWeek : repeatRule.getDays()) {
-                            // dayOfWeek: 1=周一, 7=周日
-                            // Java DayOfWeek: 1=周一, 7=周日
-                            DayOfWeek targetDayOfWeek = DayOfWeek.of(dayOfWeek);
-                            LocalDate targetDate = mondayOfWeek.with(targetDayOfWeek);
-                            // 确保日期在开始日期之后且在结束日期之前
-                            if (targetDate.isAfter(startDate) && !targetDate.isAfter(endDate)) {
-                                dates.add(targetDate);
-                            }
-                        }
-                    }
-                } else {
-                    // 如果没有指定周几，默认每周同一天
-                    LocalDate currentWeekDate = startDate.plusWeeks(1);
-                    while (!currentWeekDate.isAfter(endDate)) {
-                        dates.add(currentWeekDate);
-                        currentWeekDate = currentWeekDate.plusWeeks(1);
-                    }
-                }
-                break;
-
-            case "monthly":
-                // 按月重复，根据 days 数组（每月几号）生成
-                if (repeatRule.getDays() != null && !repeatRule.getDays().isEmpty()) {
-                    // 从开始日期之后的第一个月开始，生成未来12个月
-                    for (int month = 1; month <= 12; month++) {
-                        LocalDate targetMonth = startDate.plusMonths(month);
-                        // 获取该月的第一天
-                        LocalDate firstDayOfMonth = targetMonth.withDayOfMonth(1);
-                        for (Integer dayOfMonth : repeatRule.getDays()) {
-                            try {
-                                LocalDate targetDate = firstDayOfMonth.withDayOfMonth(dayOfMonth);
-                                // 确保日期在开始日期之后且在结束日期之前
-                                if (targetDate.isAfter(startDate) && !targetDate.isAfter(endDate)) {
-                                    dates.add(targetDate);
-                                }
-                            } catch (Exception e) {
-                                // 如果该月没有这一天（如2月30日），跳过
-                                log.debug("跳过无效日期: {}月{}日", firstDayOfMonth.getMonthValue(), dayOfMonth);
-                            }
-                        }
-                    }
-                } else {
-                    // 如果没有指定日期，默认每月同一天
-                    int dayOfMonth = startDate.getDayOfMonth();
-                    LocalDate currentMonthDate = startDate.plusMonths(1);
-                    while (!currentMonthDate.isAfter(endDate)) {
-                        try {
-                            LocalDate targetDate = currentMonthDate.withDayOfMonth(dayOfMonth);
-                            dates.add(targetDate);
-                            currentMonthDate = currentMonthDate.plusMonths(1);
-                        } catch (Exception e) {
-                            // 如果该月没有这一天，使用该月最后一天
-                            LocalDate lastDayOfMonth = currentMonthDate.withDayOfMonth(currentMonthDate.lengthOfMonth());
-                            dates.add(lastDayOfMonth);
-                            currentMonthDate = currentMonthDate.plusMonths(1);
-                        }
-                    }
-                }
-                break;
+    private TodoResponse createSeries(TodoCreateRequest request, String userId, String repeatType, RepeatRule repeatRule) {
+        TodoSeries series = TodoSeries.builder()
+                .userId(userId)
+                .title(request.getTitle())
+                .description(request.getDescription())
+                .startDate(request.getDate())
+                .time(request.getTime())
+                .typeId(request.getTypeId())
+                .source("normal")
+                .delFlag(false)
+                .build();
+        todoSeriesEditor.applyRecurrence(series, repeatType, repeatRule);
+        series = todoSeriesRepository.save(series);
+        todoTitleIndexService.indexSeries(List.of(series));
 
-            default:
-                log.warn("未知的重复类型: {}", repeatType);
-                break;
+        Todo firstTodo = todoSeriesExpander.toOccurrence(series, series.getStartDate());
+        // 附件属于某一次重复，关联附件时单独保存第一次重复
+        if (request.getAttachmentIds() != null && !request.getAttachmentIds().isEmpty()) {
+            firstTodo = materialize(firstTodo);
+            associateAttachments(firstTodo.getId(), request.getAttachmentIds(), userId);
+        }
+        return todoResponseAssembler.toResponse(firstTodo);
+    }
+
+    /**
+     * 查询用户的 Todo（ID 也可以是重复序列展开的某次重复）
+     */
+    private Todo findTodo(String userId, String id) {
+        Todo todo = todoRepository.findByUserIdAndIdAndDelFlagFalse(userId, id);
+        if (todo == null) {
+            todo = todoSeriesExpander.findOccurrence(userId, id);
+        }
+        if (todo == null) {
+            throw CommonException.toast("Todo 不存在");
         }
+        return todo;
+    }
 
-        // 去重并排序
-        return dates.stream()
-                .distinct()
-                .sorted()
-                .collect(Collectors.toList());
+    /**
+     * 单独保存序列展开的某次重复（之后按普通 Todo 修改），已保存的 Todo 原样返回
+     */
+    private Todo materialize(Todo todo) {
+        if (!TodoSeriesExpander.isOccurrence(todo)) {
+            return todo;
+        }
+        todo.setId(null);
+        todo = todoRepository.save(todo);
+        todoTitleIndexService.index(List.of(todo));
+        return todo;
     }
 
     /**
@@ -388,66 +359,4 @@ public class TodoServiceImpl implements TodoService {
             }
         }
     }
-
-    /**
-     * 转换为响应DTO
-     */
-    private TodoResponse convertToResponse(Todo todo) {
-        TodoType todoType = null;
-        if (todo.getTypeId() != null) {
-            todoType = todoTypeRepository.findById(todo.getTypeId()).orElse(null);
-        }
-
-        // 解析重复规则
-        RepeatRule repeatRule = null;
-        if (todo.getRepeatRule() != null) {
-            try {
-                repeatRule = JSONUtil.toBean(todo.getRepeatRule(), RepeatRule.class);
-            } catch (Exception e) {
-                log.warn("解析重复规则失败: {}", todo.getRepeatRule(), e);
-            }
-        }
-
-        // 查询附件
-        List<TodoAttachment> attachments = todoAttachmentRepository.findByTodoId(todo.getId());
-        List<AttachmentResponse> attachmentResponses = attachments.stream()
-                .map(this::convertAttachmentToResponse)
-                .collect(Collectors.toList());
-
-        return TodoResponse.builder()
-                .id(todo.getId())
-                .title(todo.getTitle())
-                .description(todo.getDescription())
-                .date(todo.getDate())
-                .time(todo.getTime())
-                .status(todo.getStatus())
-                .typeId(todo.getTypeId())
-                .typeName(todoType != null ? todoType.getTypeName() : null)
-                .typeIcon(todoType != null ? todoType.getIcon() : null)
-                .source(todo.getSource())
-                .templateId(todo.getTemplateId())
-                .repeatType(todo.getRepeatType())
-                .repeatRule(repeatRule)
-                .attachments(attachmentResponses)
-                .createdAt(todo.getCreatedAt())
-                .completedAt(todo.getCompletedAt())
-                .updatedAt(todo.getUpdatedAt())
-                .build();
-    }
-
-    /**
-     * 转换附件为响应DTO
-     */
-    private AttachmentResponse convertAttachmentToResponse(TodoAttachment attachment) {
-        return AttachmentResponse.builder()
-                .attachmentId(attachment.getAttachmentId())
-                .type(attachment.getType())
-                .url(attachment.getUrl())
-                .previewUrl(attachment.getPreviewUrl())
-                .fileName(attachment.getFileName())
-                .fileSize(attachment.getFileSize())
-                .createdAt(attachment.getCreatedAt())
-                .build();
-    }
 }
-
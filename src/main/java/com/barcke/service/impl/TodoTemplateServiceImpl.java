@@ -3,21 +3,19 @@ package com.barcke.service.impl;
 import com.barcke.common.BarckeContext;
 import com.barcke.common.CommonException;
 import com.barcke.dao.TemplateTodoRepository;
-import com.barcke.dao.TodoAttachmentRepository;
 import com.barcke.dao.TodoRepository;
 import com.barcke.dao.TodoTemplateRepository;
 import com.barcke.dao.TodoTypeRepository;
-import com.barcke.dto.todo.AttachmentResponse;
 import com.barcke.dto.todo.TemplateCreateRequest;
 import com.barcke.dto.todo.TemplateResponse;
 import com.barcke.dto.todo.TemplateTodoResponse;
 import com.barcke.dto.todo.TodoResponse;
-import com.barcke.pojo.TodoAttachment;
 import com.barcke.pojo.TemplateTodo;
 import com.barcke.pojo.Todo;
 import com.barcke.pojo.TodoTemplate;
 import com.barcke.pojo.TodoType;
 import com.barcke.service.TodoTemplateService;
+import com.barcke.service.TodoTitleIndexService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -47,7 +45,8 @@ public class TodoTemplateServiceImpl implements TodoTemplateService {
     private final TemplateTodoRepository templateTodoRepository;
     private final TodoTypeRepository todoTypeRepository;
     private final TodoRepository todoRepository;
-    private final TodoAttachmentRepository todoAttachmentRepository;
+    private final TodoTitleIndexService todoTitleIndexService;
+    private final TodoResponseAssembler todoResponseAssembler;
 
     @Override
     @Transactional
@@ -236,11 +235,11 @@ public class TodoTemplateServiceImpl implements TodoTemplateService {
         }
 
         List<TemplateTodo> templateTodos = templateTodoRepository.findByTemplateIdOrderBySortOrderAsc(templateId);
-        List<TodoResponse> createdTodos = new ArrayList<>();
+        List<Todo> todos = new ArrayList<>();
 
         // 直接使用 TodoRepository 创建 Todo，以便设置 templateId
         for (TemplateTodo templateTodo : templateTodos) {
-            Todo todo = Todo.builder()
+            todos.add(Todo.builder()
                     .userId(userId)
                     .title(templateTodo.getTitle())
                     .date(date)
@@ -251,57 +250,13 @@ public class TodoTemplateServiceImpl implements TodoTemplateService {
                     .templateId(templateId)
                     .repeatType("none")
                     .delFlag(false)
-                    .build();
-
-            todo = todoRepository.save(todo);
-            createdTodos.add(convertTodoToResponse(todo));
+                    .build());
         }
+        // 一次批量插入，不逐条保存
+        List<Todo> savedTodos = todoRepository.insertAll(todos);
+        todoTitleIndexService.index(savedTodos);
 
-        return createdTodos;
-    }
-
-    private TodoResponse convertTodoToResponse(Todo todo) {
-        TodoType todoType = null;
-        if (todo.getTypeId() != null) {
-            todoType = todoTypeRepository.findById(todo.getTypeId()).orElse(null);
-        }
-
-        // 查询附件
-        List<TodoAttachment> attachments = todoAttachmentRepository.findByTodoId(todo.getId());
-        List<AttachmentResponse> attachmentResponses = attachments.stream()
-                .map(this::convertAttachmentToResponse)
-                .collect(Collectors.toList());
-
-        return TodoResponse.builder()
-                .id(todo.getId())
-                .title(todo.getTitle())
-                .description(todo.getDescription())
-                .date(todo.getDate())
-                .time(todo.getTime())
-                .status(todo.getStatus())
-                .typeId(todo.getTypeId())
-                .typeName(todoType != null ? todoType.getTypeName() : null)
-                .typeIcon(todoType != null ? todoType.getIcon() : null)
-                .source(todo.getSource())
-                .templateId(todo.getTemplateId())
-                .repeatType(todo.getRepeatType())
-                .attachments(attachmentResponses)
-                .createdAt(todo.getCreatedAt())
-                .completedAt(todo.getCompletedAt())
-                .updatedAt(todo.getUpdatedAt())
-                .build();
-    }
-
-    private AttachmentResponse convertAttachmentToResponse(TodoAttachment attachment) {
-        return AttachmentResponse.builder()
-                .attachmentId(attachment.getAttachmentId())
-                .type(attachment.getType())
-                .url(attachment.getUrl())
-                .previewUrl(attachment.getPreviewUrl())
-                .fileName(attachment.getFileName())
-                .fileSize(attachment.getFileSize())
-                .createdAt(attachment.getCreatedAt())
-                .build();
+        return todoResponseAssembler.toResponses(savedTodos);
     }
 
     private TemplateResponse convertToResponse(TodoTemplate template) {
@@ -0,0 +1,350 @@
+package com.barcke.service.impl;
+
+import com.barcke.dao.CryptoJobRepository;
+import com.barcke.dao.TodoRepository;
+import com.barcke.dao.TodoSeriesRepository;
+import com.barcke.dao.TodoTitleTokenRepository;
+import com.barcke.dto.kms.CryptoJobResponse;
+import com.barcke.pojo.CryptoJob;
+import com.barcke.pojo.Todo;
+import com.barcke.pojo.TodoSeries;
+import com.barcke.pojo.TodoTitleToken;
+import com.barcke.service.KmsService;
+import com.barcke.service.TodoTitleIndexService;
+import com.barcke.tool.BlindIndex;
+import com.barcke.tool.UserKeyRing;
+import com.barcke.tool.VersionedKey;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.crypto.SecretKey;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.barcke.service.impl.CryptoJobServiceImpl.*;
+import static com.barcke.service.impl.TodoSeriesExpander.TODO_ORDER;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className TodoTitleIndexServiceImpl
+ * @date 2025/12/21
+ * @slogan: 源于生活 高于生活
+ * @description: Todo 标题盲索引服务实现类
+ * 写入 Todo 时在同一事务内重建其令牌；检索时按令牌查询命中的 Todo，耗时取决于命中行数而不是用户的 Todo 总数。
+ * 索引功能上线前的 Todo 由 index 任务按主键键集分页补建（与明文扫描任务相同，每次调度只处理一批，应用重启后从检查点继续）
+ **/
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TodoTitleIndexServiceImpl implements TodoTitleIndexService {
+
+    public static final String JOB_TYPE_INDEX = "index";
+
+    private final TodoTitleTokenRepository todoTitleTokenRepository;
+    /**
+     * 重建任务依次处理的实体
+     */
+    private static final String ENTITY_TODO = "Todo";
+    private static final String ENTITY_SERIES = "TodoSeries";
+
+    private final TodoRepository todoRepository;
+    private final TodoSeriesRepository todoSeriesRepository;
+    private final TodoSeriesExpander todoSeriesExpander;
+    private final CryptoJobRepository cryptoJobRepository;
+    private final KmsService kmsService;
+    private final PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${kms.enabled:true}")
+    private boolean kmsEnabled;
+
+    /**
+     * 已完成过重建时是否重新重建（检索词规则变化、曾以 kms.enabled=false 运行时开启）
+     */
+    @Value("${kms.index.rebuild:false}")
+    private boolean rebuild;
+
+    /**
+     * 每批处理行数
+     */
+    @Value("${kms.index.batchSize:200}")
+    private int batchSize;
+
+    private TransactionTemplate batchTransaction;
+
+    @PostConstruct
+    public void init() {
+        batchTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    @Transactional
+    public void index(Collection<Todo> todos) {
+        indexTitles(todos.stream()
+                .map(todo -> new IndexedTitle(todo.getId(), todo.getUserId(), todo.getTitle(), todo.getDelFlag()))
+                .toList());
+    }
+
+    @Override
+    @Transactional
+    public void indexSeries(Collection<TodoSeries> seriesList) {
+        indexTitles(seriesList.stream()
+                .map(series -> new IndexedTitle(series.getId(), series.getUserId(), series.getTitle(),
+                        series.getDelFlag()))
+                .toList());
+    }
+
+    @Override
+    @Transactional
+    public void reindex(String entityName, Collection<?> ids) {
+        if (ENTITY_TODO.equals(entityName)) {
+            index(load(Todo.class, new ArrayList<>(ids)));
+        } else if (ENTITY_SERIES.equals(entityName)) {
+            indexSeries(load(TodoSeries.class, new ArrayList<>(ids)));
+        }
+    }
+
+    @Override
+    @Transactional
+    public void remove(String todoId) {
+        todoTitleTokenRepository.deleteByTodoIds(List.of(todoId));
+    }
+
+    @Override
+    @Transactional
+    public void remove(Collection<String> todoIds) {
+        if (!todoIds.isEmpty()) {
+            todoTitleTokenRepository.deleteByTodoIds(todoIds);
+        }
+    }
+
+    @Override
+    public List<Todo> search(String userId, String keyword, boolean exact, int limit) {
+        Set<String> terms = BlindIndex.queryTerms(keyword, exact);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        UserKeyRing keyRing = kmsService.getKeyRing(userId);
+        VersionedKey latest = keyRing.latest();
+        if (latest == null) {
+            return List.of();
+        }
+
+        Set<String> tokens = BlindIndex.tokens(keyRing.indexKey(), terms);
+        int tokenCount = tokens.size();
+        if (isReindexing(userId)) {
+            // 重加密任务完成前，部分令牌仍由旧版本的索引密钥生成；每个 Todo 的令牌整体重建，只属于一个版本，
+            // 合并各版本的令牌后按单个版本的令牌数匹配
+            tokens = new HashSet<>(tokens);
+            for (int version = latest.getKeyVersion() - 1; version >= 1; version--) {
+                SecretKey indexKey = keyRing.indexKey(version);
+                if (indexKey != null) {
+                    tokens.addAll(BlindIndex.tokens(indexKey, terms));
+                }
+            }
+        }
+        PageRequest page = PageRequest.of(0, limit);
+        List<Todo> todos = new ArrayList<>(todoRepository.searchByTitleTokens(userId, tokens, tokenCount, page));
+        todos.addAll(todoSeriesExpander.nextOccurrences(
+                todoSeriesRepository.searchByTitleTokens(userId, tokens, tokenCount, page), LocalDate.now()));
+        return todos.stream()
+                .filter(todo -> BlindIndex.matches(todo.getTitle(), keyword, exact))
+                .sorted(TODO_ORDER.reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleRebuild() {
+        if (!kmsEnabled) {
+            return;
+        }
+        batchTransaction.executeWithoutResult(status -> {
+            CryptoJob latest = cryptoJobRepository.findFirstByJobTypeOrderByCreatedAtDesc(JOB_TYPE_INDEX)
+                    .orElse(null);
+            if (latest != null && (ACTIVE_STATUSES.contains(latest.getStatus())
+                    || (STATUS_COMPLETED.equals(latest.getStatus()) && !rebuild))) {
+                return;
+            }
+
+            CryptoJob job = CryptoJob.builder()
+                    .jobType(JOB_TYPE_INDEX)
+                    .build();
+            cryptoJobRepository.save(job);
+            log.info("创建标题索引重建任务: {}", job.getId());
+        });
+    }
+
+    @Override
+    public CryptoJobResponse getRebuildProgress() {
+        return cryptoJobRepository.findFirstByJobTypeOrderByCreatedAtDesc(JOB_TYPE_INDEX)
+                .map(CryptoJobServiceImpl::convertToResponse)
+                .orElse(null);
+    }
+
+    @Override
+    @Scheduled(initialDelayString = "${kms.index.intervalMs:500}", fixedDelayString = "${kms.index.intervalMs:500}")
+    public void runPendingJobs() {
+        for (CryptoJob job : cryptoJobRepository.findByJobTypeAndStatusInOrderByCreatedAtAsc(
+                JOB_TYPE_INDEX, ACTIVE_STATUSES)) {
+            try {
+                batchTransaction.executeWithoutResult(status -> runBatch(job.getId()));
+            } catch (Exception e) {
+                log.error("标题索引重建任务执行失败: {}", job.getId(), e);
+                batchTransaction.executeWithoutResult(status -> cryptoJobRepository.findById(job.getId())
+                        .ifPresent(failedJob -> {
+                            failedJob.setStatus(STATUS_FAILED);
+                            failedJob.setErrorMessage(abbreviate(e.getMessage()));
+                            cryptoJobRepository.save(failedJob);
+                        }));
+            }
+        }
+    }
+
+    /**
+     * 执行任务的一批：从检查点开始加载一批 Todo（加载时解密标题），重建其令牌后推进检查点
+     */
+    private void runBatch(String jobId) {
+        CryptoJob job = cryptoJobRepository.findById(jobId).orElse(null);
+        if (job == null || !ACTIVE_STATUSES.contains(job.getStatus())) {
+            return;
+        }
+
+        if (STATUS_PENDING.equals(job.getStatus())) {
+            job.setStatus(STATUS_RUNNING);
+            job.setTotalCount(todoRepository.count() + todoSeriesRepository.count());
+            job.setEntityName(ENTITY_TODO);
+            job.setLastId(null);
+        }
+
+        // 先只读主键和所属用户，批量预加载这些用户的密钥后再加载实体（加载时逐行解密标题）
+        // 已注销用户的密钥已销毁，跳过其数据（由清除任务删除）
+        String entityName = job.getEntityName();
+        TypedQuery<Object[]> query = entityManager.createQuery("select t.id, t.userId from " + entityName
+                + " t where t.userId" + EncryptedTable.LIVE_OWNER_CONDITION
+                + (job.getLastId() != null ? " and t.id > :lastId" : "") + " order by t.id", Object[].class);
+        if (job.getLastId() != null) {
+            query.setParameter("lastId", job.getLastId());
+        }
+        List<Object[]> keys = query.setMaxResults(batchSize).getResultList();
+        kmsService.preloadUserKeys(keys.stream()
+                .filter(key -> key[1] != null)
+                .map(key -> key[1].toString())
+                .collect(Collectors.toSet()));
+        List<Object> ids = keys.stream().map(key -> key[0]).toList();
+        if (ENTITY_SERIES.equals(entityName)) {
+            List<TodoSeries> seriesList = load(TodoSeries.class, ids);
+            indexSeries(seriesList);
+            job.setProcessedCount(job.getProcessedCount() + seriesList.size());
+            job.setUpdatedCount(job.getUpdatedCount()
+                    + seriesList.stream().filter(series -> !Boolean.TRUE.equals(series.getDelFlag())).count());
+        } else {
+            List<Todo> todos = load(Todo.class, ids);
+            index(todos);
+            job.setProcessedCount(job.getProcessedCount() + todos.size());
+            job.setUpdatedCount(job.getUpdatedCount()
+                    + todos.stream().filter(todo -> !Boolean.TRUE.equals(todo.getDelFlag())).count());
+        }
+
+        if (keys.size() < batchSize && ENTITY_TODO.equals(entityName)) {
+            // Todo 处理完后处理重复序列
+            job.setEntityName(ENTITY_SERIES);
+            job.setLastId(null);
+        } else if (keys.size() < batchSize) {
+            job.setStatus(STATUS_COMPLETED);
+            job.setCompletedAt(LocalDateTime.now());
+            job.setEntityName(null);
+            job.setLastId(null);
+            log.info("标题索引重建任务完成: {}, 扫描 {} 行, 索引 {} 行", job.getId(), job.getProcessedCount(),
+                    job.getUpdatedCount());
+        } else {
+            job.setLastId(keys.get(keys.size() - 1)[0].toString());
+        }
+        cryptoJobRepository.save(job);
+    }
+
+    /**
+     * 用户最近一次密钥轮换的重加密任务是否尚未完成（此时部分令牌仍是旧版本索引密钥生成的）
+     */
+    private boolean isReindexing(String userId) {
+        return cryptoJobRepository.findFirstByUserIdAndJobTypeOrderByCreatedAtDesc(userId, JOB_TYPE_REENCRYPT)
+                .filter(job -> !STATUS_COMPLETED.equals(job.getStatus()))
+                .isPresent();
+    }
+
+    /**
+     * 重建标题的令牌（先删除这些ID的旧令牌）
+     */
+    private void indexTitles(List<IndexedTitle> titles) {
+        if (titles.isEmpty()) {
+            return;
+        }
+        todoTitleTokenRepository.deleteByTodoIds(titles.stream().map(IndexedTitle::id).toList());
+
+        // 重复 Todo 的标题相同，同一用户的同一标题只计算一次令牌
+        Map<String, Set<String>> tokensByTitle = new HashMap<>();
+        List<TodoTitleToken> rows = new ArrayList<>();
+        for (IndexedTitle entry : titles) {
+            if (Boolean.TRUE.equals(entry.delFlag()) || entry.title() == null) {
+                continue;
+            }
+            // 新用户的密钥在第一个 Todo 插入时才生成，而此时 Todo 可能还没有刷新到数据库，先确保密钥存在
+            UserKeyRing keyRing = kmsService.getKeyRing(entry.userId());
+            SecretKey indexKey = keyRing.current() != null ? keyRing.indexKey() : null;
+            if (indexKey == null) {
+                continue;
+            }
+            Set<String> tokens = tokensByTitle.computeIfAbsent(entry.userId() + '\n' + entry.title(),
+                    k -> BlindIndex.tokens(indexKey, BlindIndex.indexTerms(entry.title())));
+            for (String token : tokens) {
+                rows.add(TodoTitleToken.builder()
+                        .userId(entry.userId())
+                        .todoId(entry.id())
+                        .token(token)
+                        .build());
+            }
+        }
+        todoTitleTokenRepository.insertAll(rows);
+    }
+
+    /**
+     * 按主键加载一批实体（加载时解密）
+     */
+    private <T> List<T> load(Class<T> entityClass, List<Object> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return entityManager.createQuery("select t from " + entityClass.getSimpleName()
+                        + " t where t.id in :ids order by t.id", entityClass)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    /**
+     * 建立索引的标题
+     *
+     * @param id 令牌关联的ID（Todo ID 或重复序列ID）
+     */
+    private record IndexedTitle(String id, String userId, String title, Boolean delFlag) {
+    }
+}
@@ -0,0 +1,187 @@
+package com.barcke.service.impl;
+
+import com.barcke.dao.CryptoJobRepository;
+import com.barcke.pojo.CryptoJob;
+import com.barcke.service.FileService;
+import com.barcke.service.UserDataPurgeService;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.barcke.service.impl.CryptoJobServiceImpl.*;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className UserDataPurgeServiceImpl
+ * @date 2025/12/22
+ * @slogan: 源于生活 高于生活
+ * @description: 注销用户数据清理服务实现类
+ * 注销时已销毁用户密钥，剩余的行只是无法解密的密文，清理不需要解密：按阶段（实体、上传文件）每次调度删除一批，
+ * 检查点（当前阶段）与删除一起提交，应用重启后从当前阶段继续
+ **/
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserDataPurgeServiceImpl implements UserDataPurgeService {
+
+    public static final String JOB_TYPE_PURGE = "purge";
+
+    /**
+     * 上传文件阶段（其余阶段为实体名）
+     */
+    private static final String STAGE_FILES = "UploadFile";
+
+    /**
+     * 清理阶段，按依赖顺序：令牌、附件依赖 Todo，模板内容依赖模板，最后删除上传文件
+     */
+    private static final List<PurgeStage> STAGES = List.of(
+            new PurgeStage("TodoTitleToken", "id", "e.userId = :userId"),
+            new PurgeStage("TodoAttachment", "attachmentId",
+                    "e.todoId in (select t.id from Todo t where t.userId = :userId)"),
+            new PurgeStage("Todo", "id", "e.userId = :userId"),
+            new PurgeStage("TodoSeries", "id", "e.userId = :userId"),
+            new PurgeStage("TemplateTodo", "id",
+                    "e.templateId in (select t.templateId from TodoTemplate t where t.userId = :userId)"),
+            new PurgeStage("TodoTemplate", "templateId", "e.userId = :userId"),
+            new PurgeStage("TodoType", "typeId", "e.userId = :userId"),
+            new PurgeStage(STAGE_FILES, null, null));
+
+    private final CryptoJobRepository cryptoJobRepository;
+    private final FileService fileService;
+    private final PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * 每批删除行数（文件数）
+     */
+    @Value("${kms.purge.batchSize:500}")
+    private int batchSize;
+
+    private TransactionTemplate batchTransaction;
+
+    @PostConstruct
+    public void init() {
+        batchTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    @Transactional
+    public void schedulePurge(String userId) {
+        // 用户密钥已销毁，该用户所有未完成的任务（重加密、扫描、索引等）都无法继续；
+        // 不区分用户的全局任务在读取时跳过已注销用户的行（见 EncryptedTable#LIVE_OWNER_CONDITION）
+        for (CryptoJob activeJob : cryptoJobRepository.findByUserIdAndStatusIn(userId, ACTIVE_STATUSES)) {
+            if (JOB_TYPE_PURGE.equals(activeJob.getJobType())) {
+                continue;
+            }
+            activeJob.setStatus(STATUS_CANCELLED);
+            cryptoJobRepository.save(activeJob);
+            log.info("用户 {} 已注销，取消任务: {}（{}）", userId, activeJob.getId(), activeJob.getJobType());
+        }
+
+        CryptoJob job = CryptoJob.builder()
+                .jobType(JOB_TYPE_PURGE)
+                .userId(userId)
+                .build();
+        cryptoJobRepository.save(job);
+        log.info("用户 {} 已注销，创建数据清理任务: {}", userId, job.getId());
+    }
+
+    @Override
+    @Scheduled(initialDelayString = "${kms.purge.intervalMs:1000}", fixedDelayString = "${kms.purge.intervalMs:1000}")
+    public void runPendingJobs() {
+        for (CryptoJob job : cryptoJobRepository.findByJobTypeAndStatusInOrderByCreatedAtAsc(
+                JOB_TYPE_PURGE, ACTIVE_STATUSES)) {
+            try {
+                batchTransaction.executeWithoutResult(status -> runBatch(job.getId()));
+            } catch (Exception e) {
+                log.error("用户数据清理任务执行失败: {}", job.getId(), e);
+                batchTransaction.executeWithoutResult(status -> cryptoJobRepository.findById(job.getId())
+                        .ifPresent(failedJob -> {
+                            failedJob.setStatus(STATUS_FAILED);
+                            failedJob.setErrorMessage(abbreviate(e.getMessage()));
+                            cryptoJobRepository.save(failedJob);
+                        }));
+            }
+        }
+    }
+
+    /**
+     * 执行任务的一批：删除当前阶段的一批行（文件），阶段内没有剩余时切换到下一阶段
+     */
+    private void runBatch(String jobId) {
+        CryptoJob job = cryptoJobRepository.findById(jobId).orElse(null);
+        if (job == null || !ACTIVE_STATUSES.contains(job.getStatus())) {
+            return;
+        }
+
+        if (STATUS_PENDING.equals(job.getStatus())) {
+            job.setStatus(STATUS_RUNNING);
+            job.setEntityName(STAGES.get(0).name());
+        }
+
+        PurgeStage stage = STAGES.stream()
+                .filter(candidate -> candidate.name().equals(job.getEntityName()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("未知的清理阶段: " + job.getEntityName()));
+        int deleted = STAGE_FILES.equals(stage.name())
+                ? fileService.deleteUserFiles(job.getUserId(), batchSize)
+                : deleteRows(stage, job.getUserId());
+
+        job.setProcessedCount(job.getProcessedCount() + deleted);
+        if (deleted < batchSize) {
+            int next = STAGES.indexOf(stage) + 1;
+            job.setEntityName(next < STAGES.size() ? STAGES.get(next).name() : null);
+            if (job.getEntityName() == null) {
+                job.setStatus(STATUS_COMPLETED);
+                job.setCompletedAt(LocalDateTime.now());
+                log.info("用户数据清理任务完成: {}, 用户 {}, 删除 {} 行（文件）", job.getId(), job.getUserId(),
+                        job.getProcessedCount());
+            }
+        }
+        cryptoJobRepository.save(job);
+    }
+
+    /**
+     * 删除一批行（只查询主键、批量删除，不加载实体，不需要解密）
+     *
+     * @return 删除行数
+     */
+    private int deleteRows(PurgeStage stage, String userId) {
+        List<?> ids = entityManager.createQuery("select e." + stage.idField() + " from " + stage.name()
+                        + " e where " + stage.ownerCondition())
+                .setParameter("userId", userId)
+                .setMaxResults(batchSize)
+                .getResultList();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return entityManager.createQuery("delete from " + stage.name() + " e where e." + stage.idField() + " in :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    /**
+     * 清理阶段
+     *
+     * @param name           实体名（上传文件阶段为 {@link #STAGE_FILES}）
+     * @param idField        主键字段
+     * @param ownerCondition 属于该用户的条件（参数 :userId）
+     */
+    private record PurgeStage(String name, String idField, String ownerCondition) {
+    }
+}
@@ -9,6 +9,8 @@ import com.barcke.dto.RegisterRequest;
 import com.barcke.dto.UpdateProfileRequest;
 import com.barcke.dto.UserResponse;
 import com.barcke.pojo.UserInfo;
+import com.barcke.service.KmsService;
+import com.barcke.service.UserDataPurgeService;
 import com.barcke.service.UserService;
 import com.barcke.tool.JwtTool;
 import lombok.RequiredArgsConstructor;
@@ -17,6 +19,7 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 /**
@@ -35,8 +38,15 @@ public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
     private final JwtTool jwtTool;
+    private final KmsService kmsService;
+    private final UserDataPurgeService userDataPurgeService;
     private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
 
+    /**
+     * 注销后用户名改为该前缀 + 用户ID，原用户名可以重新注册
+     */
+    private static final String DELETED_USERNAME_PREFIX = "deleted-";
+
     @Override
     @Transactional
     public UserResponse register(RegisterRequest request) {
@@ -175,6 +185,37 @@ public class UserServiceImpl implements UserService {
         userRepository.save(userInfo);
     }
 
+    @Override
+    @Transactional
+    public void deleteAccount(String password) {
+        String userId = BarckeContext.getUserId();
+        if (userId == null) {
+            throw new CommonException(ResultEnum.UNAUTHORIZED);
+        }
+
+        UserInfo userInfo = getById(userId);
+
+        // 验证密码
+        if (!passwordEncoder.matches(password, userInfo.getPassword())) {
+            throw new CommonException(ResultEnum.PASSWORD_ERROR);
+        }
+
+        // 先销毁用户密钥，所有加密字段立即不可读，不需要同步删除大量数据
+        kmsService.destroyUserKeys(userId);
+
+        // 用户记录脱敏后保留为注销标记（已签发的Token被拦截器拒绝，不再为该用户生成密钥）
+        userInfo.setUsername(DELETED_USERNAME_PREFIX + userId);
+        userInfo.setPassword("");
+        userInfo.setNickname(null);
+        userInfo.setEmail(null);
+        userInfo.setPhone(null);
+        userInfo.setDelFlag(true);
+        userInfo.setDeletedAt(LocalDateTime.now());
+        userRepository.save(userInfo);
+
+        userDataPurgeService.schedulePurge(userId);
+    }
+
     @Override
     public UserInfo getById(String userId) {
         return userRepository.findById(userId)
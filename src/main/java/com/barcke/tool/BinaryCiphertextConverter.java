@@ -0,0 +1,29 @@
+package com.barcke.tool;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className BinaryCiphertextConverter
+ * @date 2025/12/20
+ * @slogan: 源于生活 高于生活
+ * @description: 二进制密文列转换器，用于 @EncryptField(storage = BINARY) 的字段
+ * 加密监听器在内存中使用二进制信封格式（ISO-8859-1映射的字符串），本转换器与列的原始字节互转；
+ * 兼容迁移前写入的Base64文本（读取为文本，由明文扫描任务转换为二进制）
+ **/
+@Converter
+public class BinaryCiphertextConverter implements AttributeConverter<String, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(String attribute) {
+        return attribute != null ? CipherEnvelope.toBytes(attribute) : null;
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] dbData) {
+        return dbData != null ? CipherEnvelope.fromBytes(dbData) : null;
+    }
+}
@@ -0,0 +1,163 @@
+package com.barcke.tool;
+
+import com.barcke.tool.EncryptedEntityRegistry.EncryptedField;
+import com.barcke.tool.EncryptedEntityRegistry.EntityMetadata;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.Column;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className BinaryColumnInspector
+ * @date 2025/12/20
+ * @slogan: 源于生活 高于生活
+ * @description: 二进制密文列迁移与检查
+ * ddl-auto=update 只会新增列，不会修改已有列的类型。字段改为二进制存储后，启动时（Hibernate建表之后、处理请求之前）
+ * 检查这些列的实际类型，仍是字符类型的用 ALTER TABLE 改为 @Column 声明的 VARBINARY/BLOB，
+ * 列中已有的Base64文本按字节保留（ASCII，与字符集无关，读取时仍可解密）；
+ * 之后检查是否还有这样的文本值，有则由明文扫描任务在后台转换为二进制格式
+ **/
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BinaryColumnInspector {
+
+    private final DataSource dataSource;
+    private final EntityManagerFactory entityManagerFactory;
+    private final EncryptedEntityRegistry entityRegistry;
+
+    /**
+     * 二进制存储的列类型
+     */
+    private static final Set<Integer> BINARY_TYPES = Set.of(Types.BINARY, Types.VARBINARY, Types.LONGVARBINARY, Types.BLOB);
+
+    /**
+     * 启动时是否自动修改列类型（MySQL修改列类型会复制整表，大表可以关闭后按日志中的语句在维护窗口手动执行）
+     */
+    @Value("${kms.binaryColumns.alterOnStartup:true}")
+    private boolean alterOnStartup;
+
+    /**
+     * 把仍是字符类型的二进制存储列改为声明的类型
+     *
+     * @throws IllegalStateException 修改失败（继续运行会把二进制密文写入字符列）
+     */
+    @PostConstruct
+    public void migrateColumnTypes() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (EntityMetadata metadata : entityRegistry.getEncryptedEntities()) {
+                if (!(sessionFactory.getMappingMetamodel().getEntityDescriptor(metadata.getEntityClass())
+                        instanceof AbstractEntityPersister persister)) {
+                    continue;
+                }
+                for (EncryptedField field : metadata.getEncryptedFields()) {
+                    Column column = field.getField().getAnnotation(Column.class);
+                    if (!field.isBinary() || column == null || column.columnDefinition().isEmpty()) {
+                        continue;
+                    }
+                    String table = persister.getTableName();
+                    String columnName = persister.getPropertyColumnNames(field.getName())[0];
+                    Integer columnType = columnType(metaData, table, columnName);
+                    if (columnType == null || BINARY_TYPES.contains(columnType)) {
+                        continue;
+                    }
+
+                    String sql = alterColumnSql(metaData.getDatabaseProductName(), table, columnName, column);
+                    if (!alterOnStartup) {
+                        log.warn("二进制存储列仍是字符类型，需要手动执行: {}", sql);
+                        continue;
+                    }
+                    long start = System.currentTimeMillis();
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute(sql);
+                    }
+                    log.info("二进制存储列类型已修改: {}（耗时 {}ms）", sql, System.currentTimeMillis() - start);
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("修改二进制存储列类型失败", e);
+        }
+    }
+
+    /**
+     * 二进制存储列中是否存在非二进制格式的值（首字节不是魔数）
+     */
+    public boolean hasTextValues() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        try (Connection connection = dataSource.getConnection()) {
+            for (EntityMetadata metadata : entityRegistry.getEncryptedEntities()) {
+                if (!(sessionFactory.getMappingMetamodel().getEntityDescriptor(metadata.getEntityClass())
+                        instanceof AbstractEntityPersister persister)) {
+                    continue;
+                }
+                for (EncryptedField field : metadata.getEncryptedFields()) {
+                    if (field.isBinary() && hasTextValues(connection, persister.getTableName(),
+                            persister.getPropertyColumnNames(field.getName())[0])) {
+                        log.info("二进制存储列中存在文本格式的值: {}.{}", persister.getTableName(), field.getName());
+                        return true;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            log.error("检查二进制密文列失败", e);
+        }
+        return false;
+    }
+
+    /**
+     * 列的JDBC类型（{@link Types}）
+     *
+     * @return 类型，列不存在返回null
+     */
+    private static Integer columnType(DatabaseMetaData metaData, String table, String column) throws SQLException {
+        if (metaData.storesUpperCaseIdentifiers()) {
+            table = table.toUpperCase(Locale.ROOT);
+            column = column.toUpperCase(Locale.ROOT);
+        } else if (metaData.storesLowerCaseIdentifiers()) {
+            table = table.toLowerCase(Locale.ROOT);
+            column = column.toLowerCase(Locale.ROOT);
+        }
+        try (ResultSet resultSet = metaData.getColumns(metaData.getConnection().getCatalog(), null, table, column)) {
+            return resultSet.next() ? resultSet.getInt("DATA_TYPE") : null;
+        }
+    }
+
+    /**
+     * 修改列类型的语句（MySQL用 MODIFY COLUMN 并保留非空约束，H2等使用标准的 SET DATA TYPE）
+     */
+    private static String alterColumnSql(String databaseProductName, String table, String column, Column definition) {
+        String product = databaseProductName.toLowerCase(Locale.ROOT);
+        if (product.contains("mysql") || product.contains("mariadb")) {
+            return "alter table " + table + " modify column " + column + " " + definition.columnDefinition()
+                    + (definition.nullable() ? "" : " not null");
+        }
+        return "alter table " + table + " alter column " + column + " set data type " + definition.columnDefinition();
+    }
+
+    private static boolean hasTextValues(Connection connection, String table, String column) throws SQLException {
+        String sql = "select 1 from " + table + " where " + column + " is not null and substring("
+                + column + ", 1, 1) <> ?";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setMaxRows(1);
+            statement.setBytes(1, new byte[]{CipherEnvelope.MAGIC});
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next();
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.barcke.tool;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className BlindIndex
+ * @date 2025/12/21
+ * @slogan: 源于生活 高于生活
+ * @description: 盲索引，对加密字段的检索词计算带密钥的HMAC令牌，数据库中只保存令牌，按令牌等值查询
+ * 检索词：整体（精确匹配）、每个单词的前缀（最长16个字符）、汉字按位置起始的1~4字N元组（中文没有空格分词）；
+ * 相同的检索词得到相同的令牌，因此同一用户内标题（前缀）是否相同对数据库可见，不同用户的索引密钥不同，令牌不可比较
+ **/
+public final class BlindIndex {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    /**
+     * 索引密钥派生上下文
+     */
+    private static final byte[] KEY_CONTEXT = "calendar-design/blind-index/v1".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * 令牌长度（截断的HMAC字节数，偶发的碰撞由查询后解密校验排除）
+     */
+    private static final int TOKEN_BYTES = 12;
+
+    /**
+     * 单词前缀最大长度（码点数）
+     */
+    private static final int MAX_PREFIX_LENGTH = 16;
+
+    /**
+     * 汉字N元组最大长度
+     */
+    private static final int MAX_HAN_GRAM = 4;
+
+    /**
+     * 每个值最多的检索词数
+     */
+    private static final int MAX_TERMS = 512;
+
+    private static final String EXACT = "=";
+    private static final String PREFIX = "^";
+
+    /**
+     * 每个线程复用一个Mac实例
+     */
+    private static final ThreadLocal<Mac> MAC = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance(HMAC_ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("不支持的HMAC算法: " + HMAC_ALGORITHM, e);
+        }
+    });
+
+    private BlindIndex() {
+    }
+
+    /**
+     * 由用户密钥派生索引密钥
+     */
+    public static SecretKey deriveKey(SecretKey userKey) {
+        byte[] keyBytes = hmac(userKey, KEY_CONTEXT);
+        try {
+            return new SecretKeySpec(keyBytes, HMAC_ALGORITHM);
+        } finally {
+            Arrays.fill(keyBytes, (byte) 0);
+        }
+    }
+
+    /**
+     * 计算检索词令牌
+     */
+    public static Set<String> tokens(SecretKey indexKey, Collection<String> terms) {
+        Set<String> tokens = new LinkedHashSet<>(terms.size() * 2);
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        for (String term : terms) {
+            byte[] digest = hmac(indexKey, term.getBytes(StandardCharsets.UTF_8));
+            tokens.add(encoder.encodeToString(Arrays.copyOf(digest, TOKEN_BYTES)));
+        }
+        return tokens;
+    }
+
+    /**
+     * 值的全部检索词（写入索引）
+     */
+    public static Set<String> indexTerms(String value) {
+        String normalized = normalize(value);
+        Set<String> terms = new LinkedHashSet<>();
+        if (normalized.isEmpty()) {
+            return terms;
+        }
+        terms.add(EXACT + normalized);
+        for (Segment segment : segments(normalized)) {
+            int[] codePoints = segment.text().codePoints().toArray();
+            int starts = segment.han() ? codePoints.length : 1;
+            int maxLength = segment.han() ? MAX_HAN_GRAM : MAX_PREFIX_LENGTH;
+            for (int start = 0; start < starts; start++) {
+                for (int length = 1; length <= maxLength && start + length <= codePoints.length; length++) {
+                    if (terms.size() >= MAX_TERMS) {
+                        return terms;
+                    }
+                    terms.add(PREFIX + new String(codePoints, start, length));
+                }
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * 查询的检索词，值需包含全部检索词
+     *
+     * @param exact 是否精确匹配（否则按单词前缀匹配）
+     */
+    public static Set<String> queryTerms(String keyword, boolean exact) {
+        String normalized = normalize(keyword);
+        Set<String> terms = new LinkedHashSet<>();
+        if (normalized.isEmpty()) {
+            return terms;
+        }
+        if (exact) {
+            terms.add(EXACT + normalized);
+            return terms;
+        }
+        for (Segment segment : segments(normalized)) {
+            int[] codePoints = segment.text().codePoints().toArray();
+            if (!segment.han()) {
+                terms.add(PREFIX + new String(codePoints, 0, Math.min(codePoints.length, MAX_PREFIX_LENGTH)));
+                continue;
+            }
+            // 超过N元组长度的连续汉字拆成多段，相邻关系由解密后校验保证
+            for (int start = 0; start < codePoints.length; start += MAX_HAN_GRAM) {
+                terms.add(PREFIX + new String(codePoints, start, Math.min(MAX_HAN_GRAM, codePoints.length - start)));
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * 解密后校验值是否匹配查询（排除令牌碰撞、汉字分段导致的误匹配）
+     */
+    public static boolean matches(String value, String keyword, boolean exact) {
+        String normalizedValue = normalize(value);
+        String normalizedKeyword = normalize(keyword);
+        if (exact) {
+            return !normalizedKeyword.isEmpty() && normalizedValue.equals(normalizedKeyword);
+        }
+        if (!indexTerms(value).containsAll(queryTerms(keyword, false))) {
+            return false;
+        }
+        for (Segment segment : segments(normalizedKeyword)) {
+            if (!normalizedValue.contains(segment.text())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 规范化：Unicode兼容分解（全角转半角等）、转小写、合并空白
+     */
+    public static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(value, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        return normalized.strip().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * 拆分为单词和连续汉字，其余字符作为分隔符
+     */
+    private static List<Segment> segments(String normalized) {
+        List<Segment> segments = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean currentHan = false;
+        for (int i = 0; i < normalized.length(); ) {
+            int codePoint = normalized.codePointAt(i);
+            i += Character.charCount(codePoint);
+            boolean han = Character.UnicodeScript.of(codePoint) == Character.UnicodeScript.HAN;
+            boolean wordChar = han || Character.isLetterOrDigit(codePoint);
+            if (!current.isEmpty() && (!wordChar || han != currentHan)) {
+                segments.add(new Segment(current.toString(), currentHan));
+                current.setLength(0);
+            }
+            if (wordChar) {
+                current.appendCodePoint(codePoint);
+                currentHan = han;
+            }
+        }
+        if (!current.isEmpty()) {
+            segments.add(new Segment(current.toString(), currentHan));
+        }
+        return segments;
+    }
+
+    private static byte[] hmac(SecretKey key, byte[] data) {
+        Mac mac = MAC.get();
+        try {
+            mac.init(key);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("索引密钥无效", e);
+        }
+        return mac.doFinal(data);
+    }
+
+    private record Segment(String text, boolean han) {
+    }
+}
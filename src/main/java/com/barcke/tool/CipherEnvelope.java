@@ -0,0 +1,297 @@
+package com.barcke.tool;
+
+import javax.crypto.SecretKey;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className CipherEnvelope
+ * @date 2025/12/19
+ * @slogan: 源于生活 高于生活
+ * @description: 带版本的密文信封格式
+ * 文本格式："$" + Base64(头部 + IV + 密文 + 认证标签)，头部 = 魔数(1字节 0xEC) + 标志位(1字节) + 密钥版本(4字节，大端)；
+ * 头部作为GCM附加认证数据，篡改版本号、标志位会导致解密失败。
+ * 标志位 {@link #FLAG_DEFLATE} 表示明文先经Deflate压缩再加密（最高位保留为0，用于区分二进制格式与UTF-8文本）。
+ * 二进制格式：头部 + IV + 密文 + 认证标签 的原始字节，存入 VARBINARY/BLOB 列（见 {@link BinaryCiphertextConverter}），
+ * 在内存中按 ISO-8859-1 逐字节映射为字符串（首字符为魔数），与字节数组互转只是数组拷贝，不做Base64编解码。
+ * 不以 "$" 开头的文本值为历史格式 Base64(IV + 密文 + 认证标签)，不携带密钥版本（Base64字符集不包含 "$"，两种格式不会混淆）
+ **/
+public final class CipherEnvelope {
+
+    /**
+     * 文本格式前缀
+     */
+    public static final char TEXT_PREFIX = '$';
+
+    /**
+     * 魔数
+     */
+    public static final byte MAGIC = (byte) 0xEC;
+
+    /**
+     * 二进制格式在内存中的首字符（魔数按 ISO-8859-1 映射）
+     */
+    public static final char BINARY_PREFIX = (char) (MAGIC & 0xFF);
+
+    /**
+     * 头部长度：魔数 + 标志位 + 密钥版本
+     */
+    public static final int HEADER_LENGTH = 6;
+
+    /**
+     * 历史格式（未携带密钥版本）
+     */
+    public static final int LEGACY_VERSION = 0;
+
+    /**
+     * 标志位：明文经Deflate压缩
+     */
+    public static final int FLAG_DEFLATE = 0x01;
+
+    /**
+     * 不压缩
+     */
+    public static final int NO_COMPRESSION = -1;
+
+    /**
+     * 解压后明文的最大长度
+     */
+    private static final int MAX_INFLATED_LENGTH = 16 * 1024 * 1024;
+
+    /**
+     * 每个线程复用一个Deflater/Inflater实例，避免每次分配zlib本地缓冲区
+     */
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+
+    private CipherEnvelope() {
+    }
+
+    /**
+     * 是否为信封格式（文本或二进制）
+     */
+    public static boolean isEnvelope(String value) {
+        return isText(value) || isBinary(value);
+    }
+
+    /**
+     * 是否为二进制格式
+     * 标志位最高位为0，而UTF-8多字节字符的第二个字节最高位为1，不会把以 0xEC 开头的UTF-8文本误判为二进制密文
+     */
+    public static boolean isBinary(String value) {
+        return value != null && value.length() >= HEADER_LENGTH
+                && value.charAt(0) == BINARY_PREFIX && value.charAt(1) < 0x80;
+    }
+
+    private static boolean isText(String value) {
+        return value != null && !value.isEmpty() && value.charAt(0) == TEXT_PREFIX;
+    }
+
+    /**
+     * 读取密文中的密钥版本
+     *
+     * @return 密钥版本，历史格式返回 {@link #LEGACY_VERSION}
+     */
+    public static int keyVersion(String value) {
+        if (isBinary(value)) {
+            return readVersion(value.substring(0, HEADER_LENGTH).getBytes(StandardCharsets.ISO_8859_1));
+        }
+        if (!isText(value)) {
+            return LEGACY_VERSION;
+        }
+        // 头部6字节对应Base64前8个字符，只解码这部分
+        if (value.length() < 9) {
+            throw new IllegalArgumentException("密文信封长度不足");
+        }
+        byte[] header = Base64.getDecoder().decode(value.substring(1, 9));
+        checkMagic(header);
+        return readVersion(header);
+    }
+
+    /**
+     * 加密为文本信封格式（不压缩）
+     */
+    public static String seal(String plaintext, VersionedKey key) {
+        return seal(plaintext, key, false, NO_COMPRESSION);
+    }
+
+    /**
+     * 加密为信封格式
+     *
+     * @param binary            是否为二进制格式
+     * @param compressThreshold 明文UTF-8字节数达到该值时先压缩再加密（压缩后不更小则不压缩），{@link #NO_COMPRESSION} 表示不压缩
+     */
+    public static String seal(String plaintext, VersionedKey key, boolean binary, int compressThreshold) {
+        if (plaintext == null || plaintext.isEmpty()) {
+            return plaintext;
+        }
+        try {
+            byte[] payload = plaintext.getBytes(StandardCharsets.UTF_8);
+            int flags = 0;
+            if (compressThreshold >= 0 && payload.length >= compressThreshold) {
+                byte[] compressed = deflate(payload);
+                if (compressed != null) {
+                    payload = compressed;
+                    flags |= FLAG_DEFLATE;
+                }
+            }
+            byte[] data = EncryptionUtil.encrypt(payload, header(key.getKeyVersion(), flags), key.getKey());
+            return binary ? new String(data, StandardCharsets.ISO_8859_1)
+                    : TEXT_PREFIX + Base64.getEncoder().encodeToString(data);
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("加密失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 文本信封格式转换为二进制格式（只做Base64解码，不重新加密）
+     */
+    public static String toBinary(String value) {
+        if (!isText(value)) {
+            throw new IllegalArgumentException("不是文本信封格式");
+        }
+        byte[] data = Base64.getDecoder().decode(value.substring(1));
+        if (data.length < HEADER_LENGTH) {
+            throw new IllegalArgumentException("密文信封长度不足");
+        }
+        checkMagic(data);
+        return new String(data, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * 字段值转换为二进制列的字节：二进制格式直接拷贝，文本信封格式解码为二进制，其他值（历史格式、未加密数据）按UTF-8保存
+     */
+    public static byte[] toBytes(String value) {
+        if (isBinary(value)) {
+            return value.getBytes(StandardCharsets.ISO_8859_1);
+        }
+        if (isText(value)) {
+            try {
+                return toBinary(value).getBytes(StandardCharsets.ISO_8859_1);
+            } catch (IllegalArgumentException e) {
+                // 以 "$" 开头的普通文本
+            }
+        }
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 二进制列的字节转换为字段值：二进制密文映射为二进制格式，其他字节（迁移前的Base64文本、未加密数据）按UTF-8读取
+     */
+    public static String fromBytes(byte[] data) {
+        if (data.length >= HEADER_LENGTH && data[0] == MAGIC && data[1] >= 0) {
+            return new String(data, StandardCharsets.ISO_8859_1);
+        }
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 解密（兼容历史格式）
+     *
+     * @param value 信封格式（文本或二进制）或历史格式密文
+     * @param key   与密文密钥版本对应的密钥
+     * @return 明文
+     * @throws IllegalArgumentException 数据格式错误（非Base64、长度不足、魔数不匹配）
+     * @throws GeneralSecurityException 密钥错误或数据被篡改
+     */
+    public static String open(String value, SecretKey key) throws GeneralSecurityException {
+        if (value == null || value.isEmpty()) {
+            return value;
+        }
+
+        byte[] data;
+        if (isBinary(value)) {
+            data = value.getBytes(StandardCharsets.ISO_8859_1);
+        } else if (isText(value)) {
+            data = Base64.getDecoder().decode(value.substring(1));
+            if (data.length < HEADER_LENGTH) {
+                throw new IllegalArgumentException("密文信封长度不足");
+            }
+            checkMagic(data);
+        } else {
+            return new String(EncryptionUtil.decrypt(Base64.getDecoder().decode(value), key), StandardCharsets.UTF_8);
+        }
+
+        byte[] plaintext = EncryptionUtil.decrypt(data, HEADER_LENGTH, key);
+        int flags = data[1];
+        if ((flags & ~FLAG_DEFLATE) != 0) {
+            throw new GeneralSecurityException("不支持的密文标志位: " + flags);
+        }
+        if ((flags & FLAG_DEFLATE) != 0) {
+            plaintext = inflate(plaintext);
+        }
+        return new String(plaintext, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Deflate压缩
+     *
+     * @return 压缩结果，压缩后不比原数据小时返回null
+     */
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+        // 输出缓冲区与原数据等长，写满仍未结束说明压缩无收益
+        byte[] buffer = new byte[data.length];
+        int length = 0;
+        while (!deflater.finished() && length < buffer.length) {
+            length += deflater.deflate(buffer, length, buffer.length - length);
+        }
+        return deflater.finished() && length < data.length ? Arrays.copyOf(buffer, length) : null;
+    }
+
+    private static byte[] inflate(byte[] data) throws GeneralSecurityException {
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(data);
+        ByteArrayOutputStream output = new ByteArrayOutputStream(data.length * 4);
+        byte[] buffer = new byte[8192];
+        try {
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new GeneralSecurityException("压缩数据不完整");
+                }
+                output.write(buffer, 0, length);
+                if (output.size() > MAX_INFLATED_LENGTH) {
+                    throw new GeneralSecurityException("解压后数据超过长度上限");
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new GeneralSecurityException("压缩数据格式错误", e);
+        }
+        return output.toByteArray();
+    }
+
+    private static byte[] header(int keyVersion, int flags) {
+        return new byte[]{
+                MAGIC,
+                (byte) flags,
+                (byte) (keyVersion >>> 24),
+                (byte) (keyVersion >>> 16),
+                (byte) (keyVersion >>> 8),
+                (byte) keyVersion
+        };
+    }
+
+    private static int readVersion(byte[] header) {
+        return ((header[2] & 0xFF) << 24) | ((header[3] & 0xFF) << 16) | ((header[4] & 0xFF) << 8) | (header[5] & 0xFF);
+    }
+
+    private static void checkMagic(byte[] header) {
+        if (header[0] != MAGIC) {
+            throw new IllegalArgumentException("密文信封魔数不匹配");
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.barcke.tool;
+
+import com.barcke.annotation.EncryptField;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.metamodel.EntityType;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className EncryptedEntityRegistry
+ * @date 2025/12/18
+ * @slogan: 源于生活 高于生活
+ * @description: 加密实体元数据注册表，启动时扫描所有JPA实体的 @EncryptField 字段，使用 VarHandle 访问字段，避免每次反射
+ **/
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EncryptedEntityRegistry {
+
+    /**
+     * 实体中表示数据所属用户的字段名
+     */
+    private static final String OWNER_FIELD_NAME = "userId";
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final ConcurrentMap<Class<?>, EntityMetadata> registry = new ConcurrentHashMap<>();
+
+    /**
+     * 启动时根据JPA元模型预先构建所有实体的元数据
+     */
+    @PostConstruct
+    public void init() {
+        for (EntityType<?> entityType : entityManagerFactory.getMetamodel().getEntities()) {
+            Class<?> entityClass = entityType.getJavaType();
+            EntityMetadata metadata = registry.computeIfAbsent(entityClass, EncryptedEntityRegistry::scan);
+            if (metadata.isEncrypted()) {
+                log.info("加密实体: {}, 加密字段: {}", entityClass.getSimpleName(),
+                        metadata.getEncryptedFields().stream().map(EncryptedField::getName).toList());
+            }
+        }
+    }
+
+    /**
+     * 获取实体类的元数据（Hibernate代理等子类首次访问时按需构建）
+     */
+    public EntityMetadata get(Class<?> entityClass) {
+        return registry.computeIfAbsent(entityClass, EncryptedEntityRegistry::scan);
+    }
+
+    /**
+     * 所有包含加密字段的实体
+     */
+    public List<EntityMetadata> getEncryptedEntities() {
+        return registry.values().stream()
+                .filter(EntityMetadata::isEncrypted)
+                .filter(metadata -> metadata.getEntityClass().isAnnotationPresent(Entity.class))
+                .toList();
+    }
+
+    private static EntityMetadata scan(Class<?> entityClass) {
+        List<Field> annotatedFields = new ArrayList<>();
+        VarHandle ownerHandle = null;
+        VarHandle holderHandle = null;
+
+        Class<?> currentClass = entityClass;
+        while (currentClass != null && currentClass != Object.class) {
+            for (Field field : currentClass.getDeclaredFields()) {
+                EncryptField encryptField = field.getAnnotation(EncryptField.class);
+                if (encryptField != null && encryptField.enabled()) {
+                    if (field.getType() != String.class) {
+                        log.warn("@EncryptField 仅支持String字段，忽略: {}.{}", currentClass.getSimpleName(), field.getName());
+                        continue;
+                    }
+                    annotatedFields.add(field);
+                }
+                if (ownerHandle == null && OWNER_FIELD_NAME.equals(field.getName())) {
+                    ownerHandle = varHandle(field);
+                }
+                if (holderHandle == null && field.getType() == EncryptedFieldHolder.class) {
+                    holderHandle = varHandle(field);
+                }
+            }
+            currentClass = currentClass.getSuperclass();
+        }
+
+        List<EncryptedField> encryptedFields = new ArrayList<>();
+        for (Field field : annotatedFields) {
+            EncryptField encryptField = field.getAnnotation(EncryptField.class);
+            boolean lazy = encryptField.lazy();
+            if (lazy && holderHandle == null) {
+                log.warn("实体未声明EncryptedFieldHolder字段，懒解密字段按普通加密字段处理: {}.{}",
+                        entityClass.getSimpleName(), field.getName());
+                lazy = false;
+            }
+            boolean binary = encryptField.storage() == EncryptField.Storage.BINARY;
+            if (binary && !field.isAnnotationPresent(Convert.class)) {
+                log.warn("二进制存储字段未声明 @Convert(converter = BinaryCiphertextConverter.class)，按文本格式处理: {}.{}",
+                        entityClass.getSimpleName(), field.getName());
+                binary = false;
+            }
+            int compressThreshold = encryptField.compressThreshold() >= 0
+                    ? encryptField.compressThreshold() : CipherEnvelope.NO_COMPRESSION;
+            encryptedFields.add(new EncryptedField(field, encryptField, lazy, binary, compressThreshold,
+                    varHandle(field)));
+        }
+
+        return new EntityMetadata(entityClass, Collections.unmodifiableList(encryptedFields),
+                ownerHandle, holderHandle);
+    }
+
+    private static VarHandle varHandle(Field field) {
+        try {
+            return MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup())
+                    .unreflectVarHandle(field);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("无法访问字段: " + field, e);
+        }
+    }
+
+    /**
+     * 实体元数据
+     */
+    @Getter
+    public static class EntityMetadata {
+        private final Class<?> entityClass;
+
+        /**
+         * 加密字段
+         */
+        private final List<EncryptedField> encryptedFields;
+
+        /**
+         * 所属用户字段（可能为空）
+         */
+        @Getter(AccessLevel.NONE)
+        private final VarHandle ownerHandle;
+
+        /**
+         * 加密字段持有者（可能为空）
+         */
+        @Getter(AccessLevel.NONE)
+        private final VarHandle holderHandle;
+
+        EntityMetadata(Class<?> entityClass, List<EncryptedField> encryptedFields,
+                       VarHandle ownerHandle, VarHandle holderHandle) {
+            this.entityClass = entityClass;
+            this.encryptedFields = encryptedFields;
+            this.ownerHandle = ownerHandle;
+            this.holderHandle = holderHandle;
+        }
+
+        public boolean isEncrypted() {
+            return !encryptedFields.isEmpty();
+        }
+
+        /**
+         * 读取实体所属用户ID（直接读字段，不触发懒加载）
+         */
+        public String getOwnerId(Object entity) {
+            if (ownerHandle == null) {
+                return null;
+            }
+            Object userId = ownerHandle.get(entity);
+            return userId != null ? userId.toString() : null;
+        }
+
+        /**
+         * 读取实体的加密字段持有者（实体未声明时返回null）
+         */
+        public EncryptedFieldHolder getFieldHolder(Object entity) {
+            return holderHandle != null ? (EncryptedFieldHolder) holderHandle.get(entity) : null;
+        }
+    }
+
+    /**
+     * 加密字段访问器
+     */
+    @Getter
+    public static class EncryptedField {
+        private final String name;
+
+        private final Field field;
+
+        private final EncryptField annotation;
+
+        /**
+         * 是否懒解密（实体未声明持有者字段时为false）
+         */
+        private final boolean lazy;
+
+        /**
+         * 是否以二进制格式存储（字段未声明转换器时为false）
+         */
+        private final boolean binary;
+
+        /**
+         * 压缩阈值（明文UTF-8字节数），{@link CipherEnvelope#NO_COMPRESSION} 表示不压缩
+         */
+        private final int compressThreshold;
+
+        @Getter(AccessLevel.NONE)
+        private final VarHandle handle;
+
+        EncryptedField(Field field, EncryptField annotation, boolean lazy, boolean binary, int compressThreshold,
+                       VarHandle handle) {
+            this.name = field.getName();
+            this.field = field;
+            this.annotation = annotation;
+            this.lazy = lazy;
+            this.binary = binary;
+            this.compressThreshold = compressThreshold;
+            this.handle = handle;
+        }
+
+        public String get(Object entity) {
+            return (String) handle.get(entity);
+        }
+
+        public void set(Object entity, String value) {
+            handle.set(entity, value);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.barcke.tool;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className EncryptedFieldHolder
+ * @date 2025/12/18
+ * @slogan: 源于生活 高于生活
+ * @description: 加密字段持有者，作为实体的 @Transient 字段使用，记录每个加密字段加载（或最近一次写入）时的密文
+ * 1. 字段值未变化时，加密监听器直接复用记录的密文，不重新加密
+ * 2. 懒解密字段加载后保存的仍是密文（与Hibernate快照一致，不会被判定为脏数据），getter首次读取时才解密并缓存明文；
+ * 字段被业务代码重新赋值后直接返回新值；解密使用加载时传入的密钥环，不在getter中查找Spring Bean
+ **/
+@Slf4j
+public class EncryptedFieldHolder {
+
+    /**
+     * 数据所属用户的密钥环（加载、写库时由加密监听器传入，用于懒解密）
+     * 只用于解密本实体记录的密文，密文按头部中的版本选择密钥，密钥轮换不影响已记录密文的解密
+     */
+    private UserKeyRing keyRing;
+
+    /**
+     * 字段名 -> 加载时的密文及明文
+     */
+    private Map<String, LoadedValue> loadedValues;
+
+    /**
+     * 记录字段的密文及对应明文（由加密监听器在实体加载、写库时调用）
+     *
+     * @param keyRing   数据所属用户的密钥环
+     * @param plaintext 明文，懒解密字段加载时尚未解密传null
+     */
+    public void loaded(UserKeyRing keyRing, String fieldName, String ciphertext, String plaintext) {
+        if (loadedValues == null) {
+            loadedValues = new HashMap<>(4);
+        }
+        this.keyRing = keyRing;
+        loadedValues.put(fieldName, new LoadedValue(ciphertext, plaintext));
+    }
+
+    /**
+     * 字段当前值是否为加载时保留的密文（懒解密字段未被重新赋值）
+     */
+    public boolean isLoadedCiphertext(String fieldName, Object value) {
+        if (loadedValues == null || value == null) {
+            return false;
+        }
+        LoadedValue loadedValue = loadedValues.get(fieldName);
+        return loadedValue != null && loadedValue.ciphertext.equals(value);
+    }
+
+    /**
+     * 获取可复用的密文：字段当前值仍是记录的密文（懒解密字段未读取、未赋值）或与记录的明文相同
+     *
+     * @return 记录的密文，字段值已变化返回null
+     */
+    public String reusableCiphertext(String fieldName, Object value) {
+        if (loadedValues == null || value == null) {
+            return null;
+        }
+        LoadedValue loadedValue = loadedValues.get(fieldName);
+        if (loadedValue == null) {
+            return null;
+        }
+        if (loadedValue.ciphertext.equals(value) || value.equals(loadedValue.plaintext)) {
+            return loadedValue.ciphertext;
+        }
+        return null;
+    }
+
+    /**
+     * 读取字段明文
+     *
+     * @param fieldName 字段名
+     * @param value     字段当前值
+     * @return 当前值为加载时的密文则返回解密结果（解密失败返回null，不返回密文），否则原样返回
+     */
+    public String reveal(String fieldName, String value) {
+        if (!isLoadedCiphertext(fieldName, value)) {
+            return value;
+        }
+
+        LoadedValue loadedValue = loadedValues.get(fieldName);
+        if (loadedValue.plaintext == null) {
+            loadedValue.plaintext = decrypt(fieldName, value);
+        }
+        return loadedValue.plaintext;
+    }
+
+    /**
+     * 数据所属用户ID（尚未加载时为null）
+     */
+    public String getUserId() {
+        return keyRing != null ? keyRing.getUserId() : null;
+    }
+
+    /**
+     * 懒解密字段尚未解密的密文
+     *
+     * @return 密文，字段未记录或已解密时返回null
+     */
+    public String pendingCiphertext(String fieldName) {
+        if (loadedValues == null) {
+            return null;
+        }
+        LoadedValue loadedValue = loadedValues.get(fieldName);
+        return loadedValue != null && loadedValue.plaintext == null ? loadedValue.ciphertext : null;
+    }
+
+    /**
+     * 使用调用方已解析的密钥解密懒解密字段并缓存明文（批量并行解密时在工作线程调用，不访问密钥服务）
+     */
+    public void reveal(String fieldName, VersionedKey key) {
+        LoadedValue loadedValue = loadedValues.get(fieldName);
+        try {
+            loadedValue.plaintext = CipherEnvelope.open(loadedValue.ciphertext, key.getKey());
+        } catch (Exception e) {
+            // 解密失败时不缓存，getter读取时按原流程处理
+            log.error("批量解密字段失败: 字段={}, 错误类型={}, 错误消息={}",
+                    fieldName, e.getClass().getSimpleName(), e.getMessage());
+        }
+    }
+
+    private String decrypt(String fieldName, String ciphertext) {
+        try {
+            return keyRing.decrypt(ciphertext);
+        } catch (Exception e) {
+            // 解密失败（密钥错误、数据损坏等）返回null，不把密文当作明文返回；不缓存，下次读取时重试
+            log.error("懒解密字段失败: 字段={}, 错误类型={}, 错误消息={}",
+                    fieldName, e.getClass().getSimpleName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static class LoadedValue {
+        private final String ciphertext;
+        private String plaintext;
+
+        LoadedValue(String ciphertext, String plaintext) {
+            this.ciphertext = ciphertext;
+            this.plaintext = plaintext;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.barcke.tool;
+
+import com.barcke.service.KmsService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className EncryptedFieldRevealer
+ * @date 2025/12/26
+ * @slogan: 源于生活 高于生活
+ * @description: 懒解密字段批量并行解密，用于一次返回大量实体的查询（全年数据、导出等）
+ * 密钥在调用线程上解析（走事务内的密钥环，不在工作线程访问数据库），工作线程只执行字段解密；
+ * 结果数低于阈值时不处理，由getter在请求线程按需解密
+ **/
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EncryptedFieldRevealer {
+
+    private final KmsService kmsService;
+    private final EncryptedEntityRegistry entityRegistry;
+
+    /**
+     * 待解密的字段数达到该阈值时并行解密
+     */
+    @Value("${kms.decrypt.parallelThreshold:1000}")
+    private int parallelThreshold;
+
+    /**
+     * 并行解密线程数（0表示使用CPU核数）
+     */
+    @Value("${kms.decrypt.parallelism:0}")
+    private int parallelism;
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    public void init() {
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * 批量解密实体的懒解密字段（已解密、已被重新赋值的字段跳过）
+     */
+    public void revealAll(Collection<?> entities, String fieldName) {
+        if (entities.size() < parallelThreshold) {
+            return;
+        }
+
+        Map<String, UserKeyRing> keyRings = new HashMap<>();
+        List<Runnable> tasks = new ArrayList<>();
+        for (Object entity : entities) {
+            EncryptedFieldHolder holder = entityRegistry.get(entity.getClass()).getFieldHolder(entity);
+            String ciphertext = holder != null ? holder.pendingCiphertext(fieldName) : null;
+            if (ciphertext == null || holder.getUserId() == null) {
+                continue;
+            }
+            VersionedKey key = resolveKey(keyRings.computeIfAbsent(holder.getUserId(), kmsService::getKeyRing),
+                    ciphertext);
+            // 历史格式（需要逐个版本尝试）、密钥版本不存在的留给getter处理
+            if (key != null) {
+                tasks.add(() -> holder.reveal(fieldName, key));
+            }
+        }
+
+        if (tasks.size() < parallelThreshold) {
+            tasks.forEach(Runnable::run);
+            return;
+        }
+        long start = System.nanoTime();
+        pool.submit(() -> tasks.parallelStream().forEach(Runnable::run)).join();
+        log.debug("并行解密 {} 个字段（{}），耗时 {}ms", tasks.size(), fieldName, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * 在调用线程解析密文对应版本的密钥
+     *
+     * @return 密钥，历史格式、密钥版本不存在或格式错误时返回null
+     */
+    private VersionedKey resolveKey(UserKeyRing keyRing, String ciphertext) {
+        try {
+            int keyVersion = CipherEnvelope.keyVersion(ciphertext);
+            return keyVersion != CipherEnvelope.LEGACY_VERSION ? keyRing.version(keyVersion) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
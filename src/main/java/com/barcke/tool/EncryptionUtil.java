@@ -9,6 +9,7 @@ import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
 import java.util.Base64;
 
@@ -30,13 +31,29 @@ public class EncryptionUtil {
     private static final int GCM_TAG_LENGTH = 16; // GCM认证标签长度为16字节
     private static final int KEY_LENGTH = 32; // AES-256密钥长度为32字节
 
+    /**
+     * 共享的强随机数生成器（SecureRandom线程安全），用于生成IV和密钥
+     */
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * 每个线程复用一个Cipher实例，避免每次调用 Cipher.getInstance 的查找和分配开销
+     */
+    private static final ThreadLocal<Cipher> CIPHER = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance(TRANSFORMATION);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("不支持的加密算法: " + TRANSFORMATION, e);
+        }
+    });
+
     /**
      * 生成AES-256密钥
      */
     public static byte[] generateKey() {
         try {
             KeyGenerator keyGenerator = KeyGenerator.getInstance(ALGORITHM);
-            keyGenerator.init(256, new SecureRandom());
+            keyGenerator.init(256, RANDOM);
             SecretKey secretKey = keyGenerator.generateKey();
             return secretKey.getEncoded();
         } catch (Exception e) {
@@ -45,6 +62,19 @@ public class EncryptionUtil {
         }
     }
 
+    /**
+     * 构建密钥规范，同一个密钥在批量加解密时只需构建一次
+     *
+     * @param key 密钥（32字节）
+     */
+    public static SecretKey keySpec(byte[] key) {
+        // 验证密钥长度
+        if (key == null || key.length != KEY_LENGTH) {
+            throw new IllegalArgumentException("密钥长度必须为32字节（AES-256）");
+        }
+        return new SecretKeySpec(key, ALGORITHM);
+    }
+
     /**
      * 加密数据
      *
@@ -56,42 +86,89 @@ public class EncryptionUtil {
         if (plaintext == null || plaintext.isEmpty()) {
             return plaintext;
         }
+        return encrypt(plaintext, keySpec(key));
+    }
 
-        try {
-            // 验证密钥长度
-            if (key.length != KEY_LENGTH) {
-                throw new IllegalArgumentException("密钥长度必须为32字节（AES-256）");
-            }
+    /**
+     * 加密数据
+     *
+     * @param plaintext 明文
+     * @param key       密钥规范
+     * @return Base64编码的密文（格式：IV + 密文 + 认证标签）
+     */
+    public static String encrypt(String plaintext, SecretKey key) {
+        if (plaintext == null || plaintext.isEmpty()) {
+            return plaintext;
+        }
 
-            // 生成随机IV
-            byte[] iv = new byte[GCM_IV_LENGTH];
-            SecureRandom random = new SecureRandom();
-            random.nextBytes(iv);
+        try {
+            byte[] encrypted = encrypt(plaintext.getBytes(StandardCharsets.UTF_8), key);
+            // Base64编码返回
+            return Base64.getEncoder().encodeToString(encrypted);
+        } catch (Exception e) {
+            log.error("加密失败", e);
+            throw new RuntimeException("加密失败: " + e.getMessage(), e);
+        }
+    }
 
-            // 创建密钥规范
-            SecretKeySpec secretKeySpec = new SecretKeySpec(key, ALGORITHM);
+    /**
+     * 加密字节数据，IV、密文和认证标签直接写入同一个输出数组，不产生中间拷贝
+     *
+     * @param plaintext 明文
+     * @param key       密钥规范
+     * @return IV + 密文 + 认证标签
+     */
+    public static byte[] encrypt(byte[] plaintext, SecretKey key) throws GeneralSecurityException {
+        Cipher cipher = CIPHER.get();
+        byte[] iv = new byte[GCM_IV_LENGTH];
+        RANDOM.nextBytes(iv);
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH * 8, iv));
 
-            // 创建GCM参数规范
-            GCMParameterSpec gcmParameterSpec = new GCMParameterSpec(GCM_TAG_LENGTH * 8, iv);
+        byte[] output = new byte[GCM_IV_LENGTH + cipher.getOutputSize(plaintext.length)];
+        System.arraycopy(iv, 0, output, 0, GCM_IV_LENGTH);
+        cipher.doFinal(plaintext, 0, plaintext.length, output, GCM_IV_LENGTH);
+        return output;
+    }
 
-            // 初始化加密器
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            cipher.init(Cipher.ENCRYPT_MODE, secretKeySpec, gcmParameterSpec);
+    /**
+     * 加密字节数据并在输出前附加头部，头部作为GCM附加认证数据（AAD），不加密但不可篡改
+     *
+     * @param plaintext 明文
+     * @param header    头部
+     * @param key       密钥规范
+     * @return 头部 + IV + 密文 + 认证标签
+     */
+    public static byte[] encrypt(byte[] plaintext, byte[] header, SecretKey key) throws GeneralSecurityException {
+        Cipher cipher = CIPHER.get();
+        byte[] iv = new byte[GCM_IV_LENGTH];
+        RANDOM.nextBytes(iv);
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH * 8, iv));
+        cipher.updateAAD(header);
 
-            // 执行加密
-            byte[] encryptedBytes = cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
+        int offset = header.length + GCM_IV_LENGTH;
+        byte[] output = new byte[offset + cipher.getOutputSize(plaintext.length)];
+        System.arraycopy(header, 0, output, 0, header.length);
+        System.arraycopy(iv, 0, output, header.length, GCM_IV_LENGTH);
+        cipher.doFinal(plaintext, 0, plaintext.length, output, offset);
+        return output;
+    }
 
-            // 组合IV和密文（IV + 密文）
-            ByteBuffer byteBuffer = ByteBuffer.allocate(iv.length + encryptedBytes.length);
-            byteBuffer.put(iv);
-            byteBuffer.put(encryptedBytes);
+    /**
+     * 加密缓冲区数据，将 IV + 密文 + 认证标签写入输出缓冲区
+     *
+     * @param plaintext 明文（读取 position 到 limit 之间的数据）
+     * @param output    输出缓冲区，剩余空间至少为 {@link #encryptedLength(int)}
+     * @param key       密钥规范
+     * @return 写入输出缓冲区的字节数
+     */
+    public static int encrypt(ByteBuffer plaintext, ByteBuffer output, SecretKey key) throws GeneralSecurityException {
+        Cipher cipher = CIPHER.get();
+        byte[] iv = new byte[GCM_IV_LENGTH];
+        RANDOM.nextBytes(iv);
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH * 8, iv));
 
-            // Base64编码返回
-            return Base64.getEncoder().encodeToString(byteBuffer.array());
-        } catch (Exception e) {
-            log.error("加密失败", e);
-            throw new RuntimeException("加密失败: " + e.getMessage(), e);
-        }
+        output.put(iv);
+        return GCM_IV_LENGTH + cipher.doFinal(plaintext, output);
     }
 
     /**
@@ -105,13 +182,22 @@ public class EncryptionUtil {
         if (ciphertext == null || ciphertext.isEmpty()) {
             return ciphertext;
         }
+        return decrypt(ciphertext, keySpec(key));
+    }
 
-        try {
-            // 验证密钥长度
-            if (key.length != KEY_LENGTH) {
-                throw new IllegalArgumentException("密钥长度必须为32字节（AES-256）");
-            }
+    /**
+     * 解密数据
+     *
+     * @param ciphertext Base64编码的密文（格式：IV + 密文 + 认证标签）
+     * @param key        密钥规范
+     * @return 明文
+     */
+    public static String decrypt(String ciphertext, SecretKey key) {
+        if (ciphertext == null || ciphertext.isEmpty()) {
+            return ciphertext;
+        }
 
+        try {
             // Base64解码
             byte[] encryptedData;
             try {
@@ -123,48 +209,7 @@ public class EncryptionUtil {
                 throw new RuntimeException("Base64解码失败: " + e.getMessage(), e);
             }
 
-            // 验证数据长度（至少需要IV长度）
-            if (encryptedData.length < GCM_IV_LENGTH) {
-                log.error("解密数据长度不足。期望至少 {} 字节，实际 {} 字节。数据长度: {}, 数据前缀: {}", 
-                    GCM_IV_LENGTH, 
-                    encryptedData.length,
-                    ciphertext.length(),
-                    ciphertext.length() > 20 ? ciphertext.substring(0, 20) : ciphertext);
-                throw new IllegalArgumentException(
-                    String.format("解密数据长度不足。期望至少 %d 字节（IV长度），实际 %d 字节", 
-                        GCM_IV_LENGTH, encryptedData.length));
-            }
-
-            // 提取IV和密文
-            ByteBuffer byteBuffer = ByteBuffer.wrap(encryptedData);
-            byte[] iv = new byte[GCM_IV_LENGTH];
-            byteBuffer.get(iv);
-            
-            // 验证剩余数据长度
-            int remaining = byteBuffer.remaining();
-            if (remaining <= 0) {
-                log.error("解密数据格式错误：IV之后没有密文数据。数据长度: {}, 数据前缀: {}", 
-                    ciphertext.length(),
-                    ciphertext.length() > 20 ? ciphertext.substring(0, 20) : ciphertext);
-                throw new IllegalArgumentException("解密数据格式错误：IV之后没有密文数据");
-            }
-            
-            byte[] encryptedBytes = new byte[remaining];
-            byteBuffer.get(encryptedBytes);
-
-            // 创建密钥规范
-            SecretKeySpec secretKeySpec = new SecretKeySpec(key, ALGORITHM);
-
-            // 创建GCM参数规范
-            GCMParameterSpec gcmParameterSpec = new GCMParameterSpec(GCM_TAG_LENGTH * 8, iv);
-
-            // 初始化解密器
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            cipher.init(Cipher.DECRYPT_MODE, secretKeySpec, gcmParameterSpec);
-
-            // 执行解密
-            byte[] decryptedBytes = cipher.doFinal(encryptedBytes);
-
+            byte[] decryptedBytes = decrypt(encryptedData, key);
             return new String(decryptedBytes, StandardCharsets.UTF_8);
         } catch (IllegalArgumentException e) {
             // 数据格式错误，记录详细信息但不抛出异常，允许上层处理
@@ -173,6 +218,8 @@ public class EncryptionUtil {
                 ciphertext.length(),
                 ciphertext.length() > 20 ? ciphertext.substring(0, 20) : ciphertext);
             throw new RuntimeException("解密失败 - 数据格式错误: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            throw e;
         } catch (Exception e) {
             log.error("解密失败 - 异常类型: {}, 消息: {}, 数据长度: {}, 数据前缀: {}", 
                 e.getClass().getSimpleName(),
@@ -184,6 +231,89 @@ public class EncryptionUtil {
         }
     }
 
+    /**
+     * 解密字节数据，直接在输入数组上读取IV和密文，不产生中间拷贝
+     *
+     * @param encryptedData IV + 密文 + 认证标签
+     * @param key           密钥规范
+     * @return 明文
+     */
+    public static byte[] decrypt(byte[] encryptedData, SecretKey key) throws GeneralSecurityException {
+        return decrypt(encryptedData, 0, encryptedData.length, key);
+    }
+
+    /**
+     * 解密字节数组中的一段数据
+     *
+     * @param data   包含 IV + 密文 + 认证标签 的数组
+     * @param offset 起始位置
+     * @param length 数据长度
+     * @param key    密钥规范
+     * @return 明文
+     */
+    public static byte[] decrypt(byte[] data, int offset, int length, SecretKey key) throws GeneralSecurityException {
+        // 验证数据长度（IV之后至少需要认证标签）
+        checkEncryptedLength(length);
+
+        Cipher cipher = CIPHER.get();
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH * 8, data, offset, GCM_IV_LENGTH));
+        return cipher.doFinal(data, offset + GCM_IV_LENGTH, length - GCM_IV_LENGTH);
+    }
+
+    /**
+     * 解密带头部的字节数据，头部作为GCM附加认证数据（AAD）参与校验
+     *
+     * @param data         头部 + IV + 密文 + 认证标签
+     * @param headerLength 头部长度
+     * @param key          密钥规范
+     * @return 明文
+     */
+    public static byte[] decrypt(byte[] data, int headerLength, SecretKey key) throws GeneralSecurityException {
+        int length = data.length - headerLength;
+        checkEncryptedLength(length);
+
+        Cipher cipher = CIPHER.get();
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH * 8, data, headerLength, GCM_IV_LENGTH));
+        cipher.updateAAD(data, 0, headerLength);
+        return cipher.doFinal(data, headerLength + GCM_IV_LENGTH, length - GCM_IV_LENGTH);
+    }
+
+    /**
+     * 解密缓冲区数据，将明文写入输出缓冲区
+     *
+     * @param encrypted IV + 密文 + 认证标签（读取 position 到 limit 之间的数据）
+     * @param output    输出缓冲区
+     * @param key       密钥规范
+     * @return 写入输出缓冲区的字节数
+     */
+    public static int decrypt(ByteBuffer encrypted, ByteBuffer output, SecretKey key) throws GeneralSecurityException {
+        checkEncryptedLength(encrypted.remaining());
+
+        byte[] iv = new byte[GCM_IV_LENGTH];
+        encrypted.get(iv);
+        Cipher cipher = CIPHER.get();
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH * 8, iv));
+        return cipher.doFinal(encrypted, output);
+    }
+
+    /**
+     * 计算指定长度明文加密后的长度（IV + 密文 + 认证标签）
+     */
+    public static int encryptedLength(int plaintextLength) {
+        return GCM_IV_LENGTH + plaintextLength + GCM_TAG_LENGTH;
+    }
+
+    private static void checkEncryptedLength(int length) {
+        if (length < GCM_IV_LENGTH) {
+            throw new IllegalArgumentException(
+                String.format("解密数据长度不足。期望至少 %d 字节（IV长度），实际 %d 字节", 
+                    GCM_IV_LENGTH, length));
+        }
+        if (length == GCM_IV_LENGTH) {
+            throw new IllegalArgumentException("解密数据格式错误：IV之后没有密文数据");
+        }
+    }
+
     /**
      * 从Base64字符串转换为字节数组
      */
@@ -198,4 +328,3 @@ public class EncryptionUtil {
         return Base64.getEncoder().encodeToString(key);
     }
 }
-
@@ -0,0 +1,286 @@
+package com.barcke.tool;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className KmsClient
+ * @date 2025/12/22
+ * @slogan: 源于生活 高于生活
+ * @description: KMS提供者调用入口，对解包请求做两层合并，避免高延迟提供者在每个请求上增加一次往返：
+ * 1. 请求合并：同一包装密钥的并发解包共用一次调用（缓存过期后同一用户的并发请求只解包一次）；
+ * 2. 批量窗口：提供者声明了批量窗口时，窗口内不同密钥的解包请求合并为一次批量调用（按提供者上限分批）。
+ * 解包结果不在这里缓存，由 {@link UserKeyCache} 按用户和密钥版本缓存
+ **/
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class KmsClient {
+
+    private final KmsProvider provider;
+
+    /**
+     * 等待解包结果的超时时间（毫秒），提供者无响应时调用方不会一直阻塞（也不会一直占用数据库连接）
+     */
+    @Value("${kms.timeoutMs:5000}")
+    private long timeoutMs;
+
+    /**
+     * 调用中的解包请求：包装密钥 -> 结果
+     */
+    private final ConcurrentMap<KmsProvider.WrappedKey, CompletableFuture<byte[]>> inFlight =
+            new ConcurrentHashMap<>();
+
+    /**
+     * 批量窗口内等待发送的解包请求，所有访问都在 this 锁内
+     */
+    private final List<KmsProvider.WrappedKey> pending = new ArrayList<>();
+
+    private boolean flushScheduled;
+
+    private final LongAdder unwrapRequests = new LongAdder();
+    private final LongAdder coalescedRequests = new LongAdder();
+    private final LongAdder calls = new LongAdder();
+
+    /**
+     * 批量窗口到期后发送请求（提供者没有批量窗口时为空，在调用线程中直接发送）
+     */
+    private ScheduledExecutorService batchScheduler;
+
+    private ExecutorService senders;
+
+    @PostConstruct
+    public void init() {
+        if (provider.getBatchWindowMs() > 0) {
+            AtomicInteger threadIndex = new AtomicInteger();
+            ThreadFactory threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "kms-client-" + threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            batchScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+            senders = Executors.newCachedThreadPool(threadFactory);
+        }
+        log.info("KMS提供者: {}, 当前主密钥: {}, 批量窗口: {}ms", provider.getName(), provider.getCurrentKeyId(),
+                provider.getBatchWindowMs());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (batchScheduler != null) {
+            batchScheduler.shutdownNow();
+            senders.shutdownNow();
+        }
+    }
+
+    /**
+     * 当前主密钥ID
+     */
+    public String getCurrentKeyId() {
+        return provider.getCurrentKeyId();
+    }
+
+    /**
+     * 生成数据密钥
+     */
+    public KmsProvider.DataKey generateDataKey() {
+        calls.increment();
+        return provider.generateDataKey();
+    }
+
+    /**
+     * 使用当前主密钥包装密钥
+     */
+    public KmsProvider.WrappedKey wrap(byte[] plainKey) {
+        calls.increment();
+        return provider.wrap(plainKey);
+    }
+
+    /**
+     * 解包密钥
+     *
+     * @return 密钥明文（调用方持有的副本，可以清零）
+     */
+    public byte[] unwrap(KmsProvider.WrappedKey wrappedKey) {
+        return unwrapAll(List.of(wrappedKey)).get(0);
+    }
+
+    /**
+     * 批量解包，调用中的相同密钥复用已有请求，其余合并发送
+     *
+     * @return 密钥明文（与请求顺序一致，每个都是调用方持有的副本）
+     */
+    public List<byte[]> unwrapAll(List<KmsProvider.WrappedKey> wrappedKeys) {
+        List<CompletableFuture<byte[]>> futures = new ArrayList<>(wrappedKeys.size());
+        List<KmsProvider.WrappedKey> toSend = new ArrayList<>();
+        for (KmsProvider.WrappedKey wrappedKey : wrappedKeys) {
+            unwrapRequests.increment();
+            CompletableFuture<byte[]> created = new CompletableFuture<>();
+            CompletableFuture<byte[]> existing = inFlight.putIfAbsent(wrappedKey, created);
+            if (existing != null) {
+                coalescedRequests.increment();
+                futures.add(existing);
+            } else {
+                futures.add(created);
+                toSend.add(wrappedKey);
+            }
+        }
+
+        if (!toSend.isEmpty()) {
+            if (batchScheduler != null) {
+                enqueue(toSend);
+            } else {
+                send(toSend);
+            }
+        }
+
+        // 超时只结束当前调用方的等待（在副本上计时），不影响合并到同一请求的其他调用方
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        List<byte[]> plainKeys = new ArrayList<>(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            CompletableFuture<byte[]> future = futures.get(i);
+            try {
+                // 同一结果可能交给多个调用方，各自返回副本
+                plainKeys.add(future.copy()
+                        .orTimeout(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS)
+                        .join()
+                        .clone());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof TimeoutException) {
+                    // 移除无响应的调用中请求，后续请求重新调用提供者，而不是合并到这个请求上
+                    inFlight.remove(wrappedKeys.get(i), future);
+                    throw new IllegalStateException("解包用户密钥超时（" + timeoutMs + "ms）", e.getCause());
+                }
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new IllegalStateException("解包用户密钥失败", e.getCause());
+            }
+        }
+        return plainKeys;
+    }
+
+    /**
+     * 调用统计
+     */
+    public Stats stats() {
+        return new Stats(provider.getName(), unwrapRequests.sum(), coalescedRequests.sum(), calls.sum());
+    }
+
+    /**
+     * 加入批量窗口，窗口到期或达到批量上限时发送
+     */
+    private void enqueue(List<KmsProvider.WrappedKey> wrappedKeys) {
+        boolean flushNow;
+        synchronized (this) {
+            pending.addAll(wrappedKeys);
+            flushNow = pending.size() >= provider.getMaxBatchSize();
+            if (!flushNow && !flushScheduled) {
+                flushScheduled = true;
+                try {
+                    batchScheduler.schedule(this::flush, provider.getBatchWindowMs(), TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    flushNow = true;
+                }
+            }
+        }
+        if (flushNow) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        List<KmsProvider.WrappedKey> batch;
+        synchronized (this) {
+            batch = new ArrayList<>(pending);
+            pending.clear();
+            flushScheduled = false;
+        }
+        int batchSize = provider.getMaxBatchSize();
+        for (int from = 0; from < batch.size(); from += batchSize) {
+            List<KmsProvider.WrappedKey> chunk = batch.subList(from, Math.min(from + batchSize, batch.size()));
+            try {
+                senders.execute(() -> send(chunk));
+            } catch (RejectedExecutionException e) {
+                fail(chunk, new IllegalStateException("KMS客户端已关闭", e));
+            }
+        }
+    }
+
+    /**
+     * 发送解包请求（按提供者上限分批），完成对应的调用中请求
+     */
+    private void send(List<KmsProvider.WrappedKey> wrappedKeys) {
+        int batchSize = provider.getMaxBatchSize();
+        for (int from = 0; from < wrappedKeys.size(); from += batchSize) {
+            List<KmsProvider.WrappedKey> chunk =
+                    wrappedKeys.subList(from, Math.min(from + batchSize, wrappedKeys.size()));
+            try {
+                calls.increment();
+                List<byte[]> plainKeys = chunk.size() == 1
+                        ? List.of(provider.unwrap(chunk.get(0)))
+                        : provider.unwrapBatch(chunk);
+                log.debug("KMS解包 {} 个密钥（{}）", chunk.size(), provider.getName());
+                for (int i = 0; i < chunk.size(); i++) {
+                    CompletableFuture<byte[]> future = inFlight.remove(chunk.get(i));
+                    if (future != null) {
+                        future.complete(plainKeys.get(i));
+                    }
+                }
+            } catch (RuntimeException e) {
+                fail(chunk, e);
+            }
+        }
+    }
+
+    private void fail(List<KmsProvider.WrappedKey> wrappedKeys, RuntimeException e) {
+        for (KmsProvider.WrappedKey wrappedKey : wrappedKeys) {
+            CompletableFuture<byte[]> future = inFlight.remove(wrappedKey);
+            if (future != null) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * KMS调用统计信息
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Stats {
+        /**
+         * 提供者名称
+         */
+        private String provider;
+
+        /**
+         * 解包请求数
+         */
+        private long unwrapRequests;
+
+        /**
+         * 与调用中的相同请求合并的解包请求数
+         */
+        private long coalescedRequests;
+
+        /**
+         * 实际调用提供者的次数（远程提供者的往返次数）
+         */
+        private long calls;
+    }
+}
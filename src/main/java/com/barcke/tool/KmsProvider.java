@@ -0,0 +1,90 @@
+package com.barcke.tool;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className KmsProvider
+ * @date 2025/12/22
+ * @slogan: 源于生活 高于生活
+ * @description: KMS提供者SPI，负责用主密钥包装/解包用户密钥、生成数据密钥；主密钥不离开提供者。
+ * 通过 kms.provider 选择实现，业务代码经 {@link KmsClient} 调用（请求合并、批量解包），解包结果由 {@link UserKeyCache} 缓存
+ **/
+public interface KmsProvider {
+
+    /**
+     * 提供者名称（与 kms.provider 配置值一致）
+     */
+    String getName();
+
+    /**
+     * 当前主密钥ID（新包装的用户密钥记录该ID）
+     */
+    String getCurrentKeyId();
+
+    /**
+     * 生成数据密钥，返回明文密钥和当前主密钥包装后的密钥（一次调用）
+     */
+    DataKey generateDataKey();
+
+    /**
+     * 使用当前主密钥包装密钥
+     *
+     * @param plainKey 密钥明文
+     */
+    WrappedKey wrap(byte[] plainKey);
+
+    /**
+     * 解包密钥
+     *
+     * @param wrappedKey 包装后的密钥
+     * @return 密钥明文
+     */
+    byte[] unwrap(WrappedKey wrappedKey);
+
+    /**
+     * 批量解包（一次调用），返回结果与请求顺序一致；默认逐个解包，远程提供者应覆盖为一次往返
+     */
+    default List<byte[]> unwrapBatch(List<WrappedKey> wrappedKeys) {
+        List<byte[]> plainKeys = new ArrayList<>(wrappedKeys.size());
+        for (WrappedKey wrappedKey : wrappedKeys) {
+            plainKeys.add(unwrap(wrappedKey));
+        }
+        return plainKeys;
+    }
+
+    /**
+     * 单次批量调用的最大密钥数
+     */
+    default int getMaxBatchSize() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * 批量窗口（毫秒）：解包请求等待该时间后与同一窗口内的其他请求合并为一次调用，0 表示不等待
+     */
+    default long getBatchWindowMs() {
+        return 0;
+    }
+
+    /**
+     * 包装后的密钥
+     *
+     * @param ciphertext 密文（Base64编码）
+     * @param keyId      包装该密钥的主密钥ID（主密钥环引入前包装的密钥为空）
+     */
+    record WrappedKey(String ciphertext, String keyId) {
+    }
+
+    /**
+     * 数据密钥
+     *
+     * @param plainKey   密钥明文
+     * @param wrappedKey 包装后的密钥
+     */
+    record DataKey(byte[] plainKey, WrappedKey wrappedKey) {
+    }
+}
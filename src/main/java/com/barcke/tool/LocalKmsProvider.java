@@ -0,0 +1,79 @@
+package com.barcke.tool;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className LocalKmsProvider
+ * @date 2025/12/22
+ * @slogan: 源于生活 高于生活
+ * @description: 本地KMS提供者，主密钥来自配置文件（{@link MasterKeyRing}），在进程内用AES-GCM包装用户密钥
+ **/
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "kms.provider", havingValue = LocalKmsProvider.NAME, matchIfMissing = true)
+public class LocalKmsProvider implements KmsProvider {
+
+    public static final String NAME = "local";
+
+    private final MasterKeyRing masterKeyRing;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getCurrentKeyId() {
+        return masterKeyRing.getCurrentId();
+    }
+
+    @Override
+    public DataKey generateDataKey() {
+        byte[] plainKey = EncryptionUtil.generateKey();
+        return new DataKey(plainKey, wrap(plainKey));
+    }
+
+    @Override
+    public WrappedKey wrap(byte[] plainKey) {
+        // 将密钥转换为Base64字符串，然后使用当前主密钥加密
+        String plainKeyBase64 = EncryptionUtil.keyToBase64(plainKey);
+        return new WrappedKey(EncryptionUtil.encrypt(plainKeyBase64, masterKeyRing.getCurrent()),
+                masterKeyRing.getCurrentId());
+    }
+
+    @Override
+    public byte[] unwrap(WrappedKey wrappedKey) {
+        if (wrappedKey.keyId() != null) {
+            SecretKey masterKey = masterKeyRing.get(wrappedKey.keyId());
+            if (masterKey == null) {
+                throw new IllegalStateException("主密钥不存在或已移除: " + wrappedKey.keyId());
+            }
+            return EncryptionUtil.keyFromBase64(EncryptionUtil.decrypt(wrappedKey.ciphertext(), masterKey));
+        }
+
+        // 主密钥环引入前包装的密钥没有记录主密钥ID，依次尝试（GCM认证标签保证不会用错主密钥）
+        byte[] wrapped = Base64.getDecoder().decode(wrappedKey.ciphertext());
+        for (SecretKey masterKey : masterKeyRing.getAll().values()) {
+            try {
+                String plainKeyBase64 = new String(EncryptionUtil.decrypt(wrapped, masterKey), StandardCharsets.UTF_8);
+                return EncryptionUtil.keyFromBase64(plainKeyBase64);
+            } catch (AEADBadTagException e) {
+                // 不是该主密钥包装的，尝试下一个
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("解包用户密钥失败: " + e.getMessage(), e);
+            }
+        }
+        throw new IllegalStateException("没有可以解包该用户密钥的主密钥");
+    }
+}
@@ -0,0 +1,92 @@
+package com.barcke.tool;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className MasterKeyRing
+ * @date 2025/12/19
+ * @slogan: 源于生活 高于生活
+ * @description: 主密钥环，启动时加载一次：当前主密钥用于包装用户密钥，已退役的主密钥只用于解包，
+ * 所有用户密钥重新包装到当前主密钥后即可从配置中移除退役主密钥
+ **/
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MasterKeyRing {
+
+    private final Environment environment;
+
+    @Value("${kms.masterKey}")
+    private String masterKeyBase64;
+
+    @Value("${kms.masterKeyId:default}")
+    private String currentId;
+
+    /**
+     * 主密钥ID -> 主密钥（当前主密钥在第一个）
+     */
+    private Map<String, SecretKey> keys;
+
+    @PostConstruct
+    public void init() {
+        Map<String, SecretKey> loaded = new LinkedHashMap<>();
+        loaded.put(currentId, EncryptionUtil.keySpec(EncryptionUtil.keyFromBase64(masterKeyBase64)));
+
+        Map<String, String> retired = Binder.get(environment)
+                .bind("kms.retired-master-keys", Bindable.mapOf(String.class, String.class))
+                .orElse(Collections.emptyMap());
+        retired.forEach((id, base64) -> {
+            if (!id.equals(currentId)) {
+                loaded.put(id, EncryptionUtil.keySpec(EncryptionUtil.keyFromBase64(base64)));
+            }
+        });
+
+        keys = Collections.unmodifiableMap(loaded);
+        log.info("主密钥环已加载，当前主密钥: {}, 退役主密钥: {}", currentId, retired.keySet());
+    }
+
+    /**
+     * 当前主密钥ID
+     */
+    public String getCurrentId() {
+        return currentId;
+    }
+
+    /**
+     * 当前主密钥
+     */
+    public SecretKey getCurrent() {
+        return keys.get(currentId);
+    }
+
+    /**
+     * 指定ID的主密钥
+     *
+     * @return 主密钥，不存在返回null
+     */
+    public SecretKey get(String id) {
+        return keys.get(id);
+    }
+
+    /**
+     * 所有主密钥（当前主密钥在第一个）
+     */
+    public Map<String, SecretKey> getAll() {
+        return keys;
+    }
+}
@@ -0,0 +1,283 @@
+package com.barcke.tool;
+
+import lombok.Getter;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className RecurrenceRule
+ * @date 2025/12/23
+ * @slogan: 源于生活 高于生活
+ * @description: RFC 5545 重复规则（RRULE），支持 FREQ（DAILY/WEEKLY/MONTHLY/YEARLY）、INTERVAL、COUNT、UNTIL、BYMONTH、
+ * BYMONTHDAY（负数从月末倒数，-1 为最后一天）、BYDAY（MONTHLY/YEARLY 可带序号，如 2MO、-1FR）、BYSETPOS、WKST；
+ * 只处理日期，UNTIL 的时间部分忽略。不可变，展开见 {@link RecurrenceSet}
+ **/
+@Getter
+public final class RecurrenceRule {
+
+    /**
+     * COUNT 上限（COUNT 规则保存时需要逐个数出最后一次重复）
+     */
+    public static final int MAX_COUNT = 100_000;
+
+    /**
+     * INTERVAL 上限（周期起始日期按 INTERVAL 的倍数推算，过大的间隔会超出日期范围）
+     */
+    public static final int MAX_INTERVAL = 1000;
+
+    private static final Pattern WEEKDAY_NUM = Pattern.compile("([+-]?\\d{1,2})?(MO|TU|WE|TH|FR|SA|SU)");
+
+    private static final List<String> DAY_CODES = List.of("MO", "TU", "WE", "TH", "FR", "SA", "SU");
+
+    public enum Frequency {
+        DAILY, WEEKLY, MONTHLY, YEARLY
+    }
+
+    /**
+     * BYDAY 的一项
+     *
+     * @param ordinal   序号（正数为第几个，负数为倒数第几个，0 表示每一个）
+     * @param dayOfWeek 星期
+     */
+    public record WeekdayNum(int ordinal, DayOfWeek dayOfWeek) {
+
+        @Override
+        public String toString() {
+            return (ordinal != 0 ? String.valueOf(ordinal) : "") + dayCode(dayOfWeek);
+        }
+    }
+
+    private final Frequency frequency;
+
+    private final int interval;
+
+    /**
+     * 重复次数（包括开始日期），为空表示不限
+     */
+    private final Integer count;
+
+    /**
+     * 最后日期（包含），为空表示不限
+     */
+    private final LocalDate until;
+
+    private final List<Integer> byMonth;
+
+    private final List<Integer> byMonthDay;
+
+    private final List<WeekdayNum> byDay;
+
+    private final List<Integer> bySetPos;
+
+    private final DayOfWeek weekStart;
+
+    private RecurrenceRule(Frequency frequency, int interval, Integer count, LocalDate until, List<Integer> byMonth,
+                           List<Integer> byMonthDay, List<WeekdayNum> byDay, List<Integer> bySetPos,
+                           DayOfWeek weekStart) {
+        this.frequency = frequency;
+        this.interval = interval;
+        this.count = count;
+        this.until = until;
+        this.byMonth = byMonth;
+        this.byMonthDay = byMonthDay;
+        this.byDay = byDay;
+        this.bySetPos = bySetPos;
+        this.weekStart = weekStart;
+    }
+
+    /**
+     * 解析 RRULE（可带 "RRULE:" 前缀）
+     *
+     * @throws IllegalArgumentException 规则无效或使用了不支持的规则项
+     */
+    public static RecurrenceRule parse(String rrule) {
+        if (rrule == null || rrule.isBlank()) {
+            throw new IllegalArgumentException("重复规则为空");
+        }
+        String value = rrule.trim();
+        if (value.regionMatches(true, 0, "RRULE:", 0, 6)) {
+            value = value.substring(6);
+        }
+
+        Frequency frequency = null;
+        int interval = 1;
+        Integer count = null;
+        LocalDate until = null;
+        List<Integer> byMonth = List.of();
+        List<Integer> byMonthDay = List.of();
+        List<WeekdayNum> byDay = List.of();
+        List<Integer> bySetPos = List.of();
+        DayOfWeek weekStart = DayOfWeek.MONDAY;
+        Set<String> seen = new HashSet<>();
+
+        for (String part : value.split(";")) {
+            if (part.isBlank()) {
+                continue;
+            }
+            int separator = part.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("无效的规则项: " + part);
+            }
+            String name = part.substring(0, separator).trim().toUpperCase(Locale.ROOT);
+            String argument = part.substring(separator + 1).trim().toUpperCase(Locale.ROOT);
+            if (!seen.add(name)) {
+                throw new IllegalArgumentException("规则项重复: " + name);
+            }
+            switch (name) {
+                case "FREQ" -> frequency = parseFrequency(argument);
+                case "INTERVAL" -> interval = parseInt(name, argument, 1, MAX_INTERVAL, false);
+                case "COUNT" -> count = parseInt(name, argument, 1, MAX_COUNT, false);
+                case "UNTIL" -> until = parseDate(name, argument);
+                case "BYMONTH" -> byMonth = parseInts(name, argument, 12, false);
+                case "BYMONTHDAY" -> byMonthDay = parseInts(name, argument, 31, true);
+                case "BYDAY" -> byDay = parseWeekdays(argument);
+                case "BYSETPOS" -> bySetPos = parseInts(name, argument, 366, true);
+                case "WKST" -> weekStart = parseDay(argument);
+                default -> throw new IllegalArgumentException("不支持的规则项: " + name);
+            }
+        }
+
+        if (frequency == null) {
+            throw new IllegalArgumentException("重复规则缺少 FREQ");
+        }
+        if (count != null && until != null) {
+            throw new IllegalArgumentException("COUNT 和 UNTIL 不能同时使用");
+        }
+        if (frequency == Frequency.WEEKLY && !byMonthDay.isEmpty()) {
+            throw new IllegalArgumentException("WEEKLY 规则不支持 BYMONTHDAY");
+        }
+        if (frequency != Frequency.MONTHLY && frequency != Frequency.YEARLY
+                && byDay.stream().anyMatch(day -> day.ordinal() != 0)) {
+            throw new IllegalArgumentException("只有 MONTHLY、YEARLY 规则的 BYDAY 可以带序号");
+        }
+        if (!bySetPos.isEmpty() && byMonth.isEmpty() && byMonthDay.isEmpty() && byDay.isEmpty()) {
+            throw new IllegalArgumentException("BYSETPOS 需要与其他 BY 规则项一起使用");
+        }
+        return new RecurrenceRule(frequency, interval, count, until, byMonth, byMonthDay, byDay, bySetPos, weekStart);
+    }
+
+    /**
+     * 以最后日期代替重复次数（COUNT 规则换算出最后一次重复后，展开时不需要从头计数）
+     */
+    public RecurrenceRule withUntil(LocalDate until) {
+        return new RecurrenceRule(frequency, interval, null, until, byMonth, byMonthDay, byDay, bySetPos, weekStart);
+    }
+
+    /**
+     * 星期对应的 RRULE 代码（MO~SU）
+     */
+    public static String dayCode(DayOfWeek dayOfWeek) {
+        return DAY_CODES.get(dayOfWeek.getValue() - 1);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder rrule = new StringBuilder("FREQ=").append(frequency);
+        if (interval != 1) {
+            rrule.append(";INTERVAL=").append(interval);
+        }
+        if (count != null) {
+            rrule.append(";COUNT=").append(count);
+        }
+        if (until != null) {
+            rrule.append(";UNTIL=").append(until.format(DateTimeFormatter.BASIC_ISO_DATE));
+        }
+        appendList(rrule, "BYMONTH", byMonth);
+        appendList(rrule, "BYMONTHDAY", byMonthDay);
+        appendList(rrule, "BYDAY", byDay);
+        appendList(rrule, "BYSETPOS", bySetPos);
+        if (weekStart != DayOfWeek.MONDAY) {
+            rrule.append(";WKST=").append(dayCode(weekStart));
+        }
+        return rrule.toString();
+    }
+
+    private static void appendList(StringBuilder rrule, String name, List<?> values) {
+        if (!values.isEmpty()) {
+            rrule.append(';').append(name).append('=')
+                    .append(values.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        }
+    }
+
+    private static Frequency parseFrequency(String argument) {
+        try {
+            return Frequency.valueOf(argument);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("不支持的重复频率: " + argument);
+        }
+    }
+
+    private static int parseInt(String name, String argument, int min, int max, boolean allowNegative) {
+        int value;
+        try {
+            value = Integer.parseInt(argument.startsWith("+") ? argument.substring(1) : argument);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " 不是整数: " + argument);
+        }
+        int magnitude = allowNegative ? Math.abs(value) : value;
+        if (magnitude < min || magnitude > max) {
+            throw new IllegalArgumentException(name + " 超出范围: " + argument);
+        }
+        return value;
+    }
+
+    /**
+     * 逗号分隔的整数（去重，保持顺序）
+     */
+    private static List<Integer> parseInts(String name, String argument, int max, boolean allowNegative) {
+        return Arrays.stream(argument.split(","))
+                .map(String::trim)
+                .map(item -> parseInt(name, item, 1, max, allowNegative))
+                .distinct()
+                .toList();
+    }
+
+    private static List<WeekdayNum> parseWeekdays(String argument) {
+        List<WeekdayNum> days = new ArrayList<>();
+        for (String item : argument.split(",")) {
+            Matcher matcher = WEEKDAY_NUM.matcher(item.trim());
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("无效的 BYDAY: " + item);
+            }
+            int ordinal = matcher.group(1) != null ? parseInt("BYDAY", matcher.group(1), 1, 53, true) : 0;
+            WeekdayNum day = new WeekdayNum(ordinal, parseDay(matcher.group(2)));
+            if (!days.contains(day)) {
+                days.add(day);
+            }
+        }
+        return List.copyOf(days);
+    }
+
+    private static DayOfWeek parseDay(String code) {
+        int index = DAY_CODES.indexOf(code);
+        if (index < 0) {
+            throw new IllegalArgumentException("无效的星期: " + code);
+        }
+        return DayOfWeek.of(index + 1);
+    }
+
+    /**
+     * 日期：yyyyMMdd、yyyyMMddTHHmmss[Z]（忽略时间）或 yyyy-MM-dd
+     */
+    private static LocalDate parseDate(String name, String argument) {
+        try {
+            if (argument.contains("-")) {
+                return LocalDate.parse(argument);
+            }
+            return LocalDate.parse(argument.length() > 8 ? argument.substring(0, 8) : argument,
+                    DateTimeFormatter.BASIC_ISO_DATE);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(name + " 不是有效日期: " + argument);
+        }
+    }
+}
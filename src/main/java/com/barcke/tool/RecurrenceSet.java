@@ -0,0 +1,508 @@
+package com.barcke.tool;
+
+import com.barcke.tool.RecurrenceRule.WeekdayNum;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className RecurrenceSet
+ * @date 2025/12/23
+ * @slogan: 源于生活 高于生活
+ * @description: 重复日期集合（RFC 5545：开始日期 + RRULE + RDATE - EXDATE），开始日期总是第一次重复。
+ * 按日期升序惰性产生重复：从任意日期开始迭代时，直接换算出该日期所在的规则周期（第几天/周/月/年），
+ * 只展开从这个周期开始的日期，不枚举之前的日期，因此展开十年规则的某个月与展开第一个月耗时相同。
+ * COUNT 规则需要从头计数，保存时用 {@link #countUntil()} 换算出最后一次重复，展开时用 {@link #withCountUntil} 代替
+ **/
+public final class RecurrenceSet {
+
+    /**
+     * 公历 400 年循环一次，折合天、周、月、年数（146097 天正好 20871 周，循环后日期的星期、月日都相同）
+     */
+    private static final long CYCLE_DAYS = 146_097;
+    private static final long CYCLE_WEEKS = 20_871;
+    private static final long CYCLE_MONTHS = 4_800;
+    private static final long CYCLE_YEARS = 400;
+
+    private final LocalDate start;
+
+    private final RecurrenceRule rule;
+
+    /**
+     * 额外日期（RDATE）和开始日期
+     */
+    private final NavigableSet<LocalDate> extraDates;
+
+    private final Set<LocalDate> excludedDates;
+
+    /**
+     * COUNT 规则换算出的最后一次重复（首次需要时计算）
+     */
+    private volatile LocalDate resolvedCountUntil;
+
+    private RecurrenceSet(LocalDate start, RecurrenceRule rule, NavigableSet<LocalDate> extraDates,
+                          Set<LocalDate> excludedDates) {
+        this.start = start;
+        this.rule = rule;
+        this.extraDates = extraDates;
+        this.excludedDates = excludedDates;
+    }
+
+    /**
+     * @param start   开始日期（DTSTART）
+     * @param rule    重复规则
+     * @param rdates  额外日期（RDATE，可为空）
+     * @param exdates 排除日期（EXDATE，可为空）
+     */
+    public static RecurrenceSet of(LocalDate start, RecurrenceRule rule, Collection<LocalDate> rdates,
+                                   Collection<LocalDate> exdates) {
+        NavigableSet<LocalDate> extraDates = new TreeSet<>();
+        extraDates.add(start);
+        if (rdates != null) {
+            rdates.stream().filter(date -> !date.isBefore(start)).forEach(extraDates::add);
+        }
+        return new RecurrenceSet(start, rule, Collections.unmodifiableNavigableSet(extraDates),
+                exdates != null ? Set.copyOf(exdates) : Set.of());
+    }
+
+    public LocalDate getStart() {
+        return start;
+    }
+
+    public RecurrenceRule getRule() {
+        return rule;
+    }
+
+    /**
+     * 从指定日期起（含当天）的重复，升序；规则不限次数、不限日期时迭代器不会结束，调用方自行截止
+     */
+    public Iterator<LocalDate> iterator(LocalDate from) {
+        return new OccurrenceIterator(from, null, true);
+    }
+
+    /**
+     * 日期范围内的重复（升序，两端包含）
+     */
+    public List<LocalDate> between(LocalDate from, LocalDate to) {
+        List<LocalDate> dates = new ArrayList<>();
+        Iterator<LocalDate> iterator = new OccurrenceIterator(from, to, true);
+        while (iterator.hasNext()) {
+            dates.add(iterator.next());
+        }
+        return dates;
+    }
+
+    /**
+     * 日期是否为一次重复
+     */
+    public boolean contains(LocalDate date) {
+        return !between(date, date).isEmpty();
+    }
+
+    /**
+     * COUNT 规则的最后一次重复日期（开始日期计为第一次，EXDATE 也计数，RDATE 不计数），首次调用需要从头计数；非 COUNT 规则返回null
+     */
+    public LocalDate countUntil() {
+        if (rule.getCount() == null) {
+            return null;
+        }
+        if (resolvedCountUntil == null) {
+            OccurrenceIterator iterator = new OccurrenceIterator(start, null, false);
+            LocalDate last = start;
+            for (int i = 0; i < rule.getCount() && iterator.hasNext(); i++) {
+                last = iterator.next();
+            }
+            resolvedCountUntil = last;
+        }
+        return resolvedCountUntil;
+    }
+
+    /**
+     * 以换算出的最后一次重复代替 COUNT（结果与原集合相同，但可以从任意日期开始展开）
+     */
+    public RecurrenceSet withCountUntil(LocalDate countUntil) {
+        if (rule.getCount() == null || countUntil == null) {
+            return this;
+        }
+        return new RecurrenceSet(start, rule.withUntil(countUntil), extraDates, excludedDates);
+    }
+
+    /**
+     * 最后一次重复日期的上界（规则不限次数、不限日期时返回null），用于按日期范围筛选集合
+     */
+    public LocalDate lastDate() {
+        LocalDate ruleEnd = rule.getCount() != null ? countUntil() : rule.getUntil();
+        if (ruleEnd == null) {
+            return null;
+        }
+        LocalDate lastExtra = extraDates.last();
+        return lastExtra.isAfter(ruleEnd) ? lastExtra : ruleEnd;
+    }
+
+    /**
+     * 规则本身（不计 COUNT、UNTIL）是否产生日期。如 FREQ=DAILY;BYMONTH=2;BYMONTHDAY=30 不产生任何日期，
+     * 每次展开都要查找完一个公历循环才能结束，保存时拒绝
+     */
+    public boolean hasRuleDates() {
+        RecurrenceSet unbounded = new RecurrenceSet(start, rule.withUntil(null), Collections.emptyNavigableSet(),
+                Set.of());
+        return unbounded.new OccurrenceIterator(start, null, false).hasNext();
+    }
+
+    /**
+     * 规则周期的起始日期（周期 0 为开始日期所在的天/周/月/年），超出日期范围返回null
+     */
+    private LocalDate periodStart(long period) {
+        try {
+            return switch (rule.getFrequency()) {
+                case DAILY -> start.plusDays(period);
+                case WEEKLY -> weekStart(start).plusWeeks(period);
+                case MONTHLY -> start.withDayOfMonth(1).plusMonths(period);
+                case YEARLY -> start.withDayOfYear(1).plusYears(period);
+            };
+        } catch (DateTimeException | ArithmeticException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 连续多少个规则周期没有产生日期时停止查找：周期起始日期在公历循环中的位置每隔这么多个周期重复一次，
+     * 之后不可能再产生
+     */
+    private long maxEmptyPeriods() {
+        long cycle = switch (rule.getFrequency()) {
+            case DAILY -> CYCLE_DAYS;
+            case WEEKLY -> CYCLE_WEEKS;
+            case MONTHLY -> CYCLE_MONTHS;
+            case YEARLY -> CYCLE_YEARS;
+        };
+        long a = cycle;
+        long b = rule.getInterval();
+        while (b != 0) {
+            long remainder = a % b;
+            a = b;
+            b = remainder;
+        }
+        return cycle / a;
+    }
+
+    /**
+     * 日期所在周期之前（含）的第一个规则周期（INTERVAL 的整数倍）
+     */
+    private long firstPeriod(LocalDate from) {
+        if (!from.isAfter(start)) {
+            return 0;
+        }
+        long units = switch (rule.getFrequency()) {
+            case DAILY -> ChronoUnit.DAYS.between(start, from);
+            case WEEKLY -> ChronoUnit.WEEKS.between(weekStart(start), weekStart(from));
+            case MONTHLY -> ChronoUnit.MONTHS.between(YearMonth.from(start), YearMonth.from(from));
+            case YEARLY -> from.getYear() - start.getYear();
+        };
+        return units / rule.getInterval() * rule.getInterval();
+    }
+
+    private LocalDate weekStart(LocalDate date) {
+        return date.with(TemporalAdjusters.previousOrSame(rule.getWeekStart()));
+    }
+
+    /**
+     * 展开一个规则周期内的日期（升序、去重，已应用 BYSETPOS，未按开始日期和 UNTIL 过滤）
+     */
+    private List<LocalDate> expandPeriod(LocalDate periodStart) {
+        TreeSet<LocalDate> dates = new TreeSet<>();
+        switch (rule.getFrequency()) {
+            case DAILY -> {
+                if (matchesMonth(periodStart) && matchesMonthDay(periodStart)
+                        && matchesDay(periodStart, periodStart, periodStart)) {
+                    dates.add(periodStart);
+                }
+            }
+            case WEEKLY -> {
+                if (rule.getByDay().isEmpty()) {
+                    dates.add(periodStart.with(TemporalAdjusters.nextOrSame(start.getDayOfWeek())));
+                } else {
+                    for (WeekdayNum day : rule.getByDay()) {
+                        dates.add(periodStart.with(TemporalAdjusters.nextOrSame(day.dayOfWeek())));
+                    }
+                }
+                dates.removeIf(date -> !matchesMonth(date));
+            }
+            case MONTHLY -> {
+                if (matchesMonth(periodStart)) {
+                    expandMonth(YearMonth.from(periodStart), dates);
+                }
+            }
+            case YEARLY -> expandYear(periodStart.getYear(), dates);
+        }
+        return applySetPos(dates);
+    }
+
+    /**
+     * 展开月内日期：BYMONTHDAY（BYDAY 再筛选）、BYDAY，都没有时取开始日期的日
+     */
+    private void expandMonth(YearMonth month, Collection<LocalDate> dates) {
+        LocalDate first = month.atDay(1);
+        LocalDate last = month.atEndOfMonth();
+        if (!rule.getByMonthDay().isEmpty()) {
+            for (int monthDay : rule.getByMonthDay()) {
+                LocalDate date = resolveMonthDay(month, monthDay);
+                if (date != null && matchesDay(date, first, last)) {
+                    dates.add(date);
+                }
+            }
+        } else if (!rule.getByDay().isEmpty()) {
+            expandDays(first, last, dates);
+        } else if (start.getDayOfMonth() <= month.lengthOfMonth()) {
+            dates.add(month.atDay(start.getDayOfMonth()));
+        }
+    }
+
+    /**
+     * 展开年内日期：BYMONTH 按月展开；否则 BYMONTHDAY 展开每个月、BYDAY 在全年展开（序号相对全年）；都没有时取开始日期的月日
+     */
+    private void expandYear(int year, Collection<LocalDate> dates) {
+        if (!rule.getByMonth().isEmpty()) {
+            for (int month : rule.getByMonth()) {
+                expandMonth(YearMonth.of(year, month), dates);
+            }
+            return;
+        }
+        LocalDate first = LocalDate.of(year, 1, 1);
+        LocalDate last = LocalDate.of(year, 12, 31);
+        if (!rule.getByMonthDay().isEmpty()) {
+            for (int month = 1; month <= 12; month++) {
+                for (int monthDay : rule.getByMonthDay()) {
+                    LocalDate date = resolveMonthDay(YearMonth.of(year, month), monthDay);
+                    if (date != null && matchesDay(date, first, last)) {
+                        dates.add(date);
+                    }
+                }
+            }
+        } else if (!rule.getByDay().isEmpty()) {
+            expandDays(first, last, dates);
+        } else if (YearMonth.of(year, start.getMonth()).isValidDay(start.getDayOfMonth())) {
+            dates.add(LocalDate.of(year, start.getMonth(), start.getDayOfMonth()));
+        }
+    }
+
+    /**
+     * 在范围内展开 BYDAY（带序号时取第 N 个/倒数第 N 个）
+     */
+    private void expandDays(LocalDate first, LocalDate last, Collection<LocalDate> dates) {
+        for (WeekdayNum day : rule.getByDay()) {
+            if (day.ordinal() != 0) {
+                LocalDate date = nthDay(first, last, day);
+                if (date != null) {
+                    dates.add(date);
+                }
+                continue;
+            }
+            for (LocalDate date = first.with(TemporalAdjusters.nextOrSame(day.dayOfWeek()));
+                 !date.isAfter(last); date = date.plusWeeks(1)) {
+                dates.add(date);
+            }
+        }
+    }
+
+    /**
+     * 范围内的第 N 个（负数为倒数第 N 个）指定星期，不存在返回null
+     */
+    private static LocalDate nthDay(LocalDate first, LocalDate last, WeekdayNum day) {
+        LocalDate date = day.ordinal() > 0
+                ? first.with(TemporalAdjusters.nextOrSame(day.dayOfWeek())).plusWeeks(day.ordinal() - 1L)
+                : last.with(TemporalAdjusters.previousOrSame(day.dayOfWeek())).minusWeeks(-day.ordinal() - 1L);
+        return date.isBefore(first) || date.isAfter(last) ? null : date;
+    }
+
+    /**
+     * BYMONTHDAY 对应的日期（负数从月末倒数），该月没有这一天返回null
+     */
+    private static LocalDate resolveMonthDay(YearMonth month, int monthDay) {
+        int day = monthDay > 0 ? monthDay : month.lengthOfMonth() + monthDay + 1;
+        return day >= 1 && day <= month.lengthOfMonth() ? month.atDay(day) : null;
+    }
+
+    private boolean matchesMonth(LocalDate date) {
+        return rule.getByMonth().isEmpty() || rule.getByMonth().contains(date.getMonthValue());
+    }
+
+    private boolean matchesMonthDay(LocalDate date) {
+        if (rule.getByMonthDay().isEmpty()) {
+            return true;
+        }
+        YearMonth month = YearMonth.from(date);
+        return rule.getByMonthDay().stream().anyMatch(monthDay -> date.equals(resolveMonthDay(month, monthDay)));
+    }
+
+    /**
+     * 是否满足 BYDAY（序号相对 first~last 范围）
+     */
+    private boolean matchesDay(LocalDate date, LocalDate first, LocalDate last) {
+        if (rule.getByDay().isEmpty()) {
+            return true;
+        }
+        for (WeekdayNum day : rule.getByDay()) {
+            if (day.dayOfWeek() != date.getDayOfWeek()) {
+                continue;
+            }
+            if (day.ordinal() == 0) {
+                return true;
+            }
+            // DAILY/WEEKLY 的范围只有一天，序号相对所在月份（RRULE 解析时已禁止，这里只处理 MONTHLY/YEARLY）
+            if (date.equals(nthDay(first, last, day))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * BYSETPOS：从周期内的日期中按位置选取（负数为倒数）
+     */
+    private List<LocalDate> applySetPos(TreeSet<LocalDate> dates) {
+        if (rule.getBySetPos().isEmpty() || dates.isEmpty()) {
+            return new ArrayList<>(dates);
+        }
+        List<LocalDate> all = new ArrayList<>(dates);
+        TreeSet<LocalDate> selected = new TreeSet<>();
+        for (int position : rule.getBySetPos()) {
+            int index = position > 0 ? position - 1 : all.size() + position;
+            if (index >= 0 && index < all.size()) {
+                selected.add(all.get(index));
+            }
+        }
+        return new ArrayList<>(selected);
+    }
+
+    /**
+     * 重复迭代器：逐个周期展开规则日期，与额外日期合并，跳过排除日期
+     */
+    private final class OccurrenceIterator implements Iterator<LocalDate> {
+
+        private final LocalDate from;
+
+        /**
+         * 规则日期截止（UNTIL 与调用方截止中较早的）
+         */
+        private final LocalDate ruleLimit;
+
+        private final boolean applyExclusions;
+
+        private final Iterator<LocalDate> extraIterator;
+
+        private long period;
+
+        private Iterator<LocalDate> periodDates = Collections.emptyIterator();
+
+        private boolean ruleDone;
+
+        private LocalDate nextRuleDate;
+
+        private LocalDate nextExtraDate;
+
+        private LocalDate next;
+
+        /**
+         * @param applyExclusions 是否跳过排除日期（COUNT 计数时不跳过）；为false时也不合并额外日期（开始日期除外）
+         */
+        OccurrenceIterator(LocalDate from, LocalDate limit, boolean applyExclusions) {
+            this.from = from.isBefore(start) ? start : from;
+            // COUNT 计数时不限；展开时未换算过 COUNT 则先计数（见 withCountUntil）
+            LocalDate until = applyExclusions && rule.getCount() != null ? countUntil() : rule.getUntil();
+            this.ruleLimit = until == null || (limit != null && limit.isBefore(until)) ? limit : until;
+            this.applyExclusions = applyExclusions;
+            NavigableSet<LocalDate> extras = applyExclusions
+                    ? extraDates.tailSet(this.from, true)
+                    : extraDates.subSet(start, true, start, true).tailSet(this.from, true);
+            this.extraIterator = (limit != null ? extras.headSet(limit, true) : extras).iterator();
+            this.period = firstPeriod(this.from);
+            this.nextRuleDate = advanceRule();
+            this.nextExtraDate = extraIterator.hasNext() ? extraIterator.next() : null;
+            this.next = advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public LocalDate next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            LocalDate current = next;
+            next = advance();
+            return current;
+        }
+
+        private LocalDate advance() {
+            while (nextRuleDate != null || nextExtraDate != null) {
+                LocalDate candidate;
+                if (nextExtraDate == null || (nextRuleDate != null && nextRuleDate.isBefore(nextExtraDate))) {
+                    candidate = nextRuleDate;
+                    nextRuleDate = advanceRule();
+                } else {
+                    candidate = nextExtraDate;
+                    if (nextExtraDate.equals(nextRuleDate)) {
+                        nextRuleDate = advanceRule();
+                    }
+                    nextExtraDate = extraIterator.hasNext() ? extraIterator.next() : null;
+                }
+                if (!applyExclusions || !excludedDates.contains(candidate)) {
+                    return candidate;
+                }
+            }
+            return null;
+        }
+
+        private LocalDate advanceRule() {
+            long emptyPeriods = 0;
+            long emptyLimit = maxEmptyPeriods();
+            while (!ruleDone) {
+                while (periodDates.hasNext()) {
+                    LocalDate date = periodDates.next();
+                    if (date.isBefore(from)) {
+                        continue;
+                    }
+                    if (ruleLimit != null && date.isAfter(ruleLimit)) {
+                        ruleDone = true;
+                        return null;
+                    }
+                    return date;
+                }
+
+                LocalDate periodStart = periodStart(period);
+                if (periodStart == null || (ruleLimit != null && periodStart.isAfter(ruleLimit))) {
+                    ruleDone = true;
+                    return null;
+                }
+                List<LocalDate> dates;
+                try {
+                    dates = expandPeriod(periodStart);
+                } catch (DateTimeException e) {
+                    // 最后一个周期跨出日期范围
+                    ruleDone = true;
+                    return null;
+                }
+                if (!dates.isEmpty()) {
+                    emptyPeriods = 0;
+                } else if (++emptyPeriods >= emptyLimit) {
+                    ruleDone = true;
+                    return null;
+                }
+                periodDates = dates.iterator();
+                period += rule.getInterval();
+            }
+            return null;
+        }
+    }
+}
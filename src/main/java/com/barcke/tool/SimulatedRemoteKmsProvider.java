@@ -0,0 +1,114 @@
+package com.barcke.tool;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className SimulatedRemoteKmsProvider
+ * @date 2025/12/22
+ * @slogan: 源于生活 高于生活
+ * @description: 模拟远程KMS提供者（进程内替身），每次调用（包括一次批量解包）等待配置的往返延迟后在本地完成包装/解包，
+ * 密文格式与本地提供者相同，两者可以互相切换；用于在没有真实KMS的环境中验证批量解包、请求合并和缓存的效果
+ **/
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "kms.provider", havingValue = SimulatedRemoteKmsProvider.NAME)
+public class SimulatedRemoteKmsProvider implements KmsProvider {
+
+    public static final String NAME = "simulated-remote";
+
+    /**
+     * 实际执行包装/解包的本地实现（相当于远程服务端）
+     */
+    private final LocalKmsProvider server;
+
+    /**
+     * 每次调用的往返延迟（毫秒）
+     */
+    @Value("${kms.remote.latencyMs:50}")
+    private long latencyMs;
+
+    /**
+     * 单次批量解包的最大密钥数
+     */
+    @Value("${kms.remote.maxBatchSize:100}")
+    private int maxBatchSize;
+
+    /**
+     * 批量窗口（毫秒）
+     */
+    @Value("${kms.remote.batchWindowMs:5}")
+    private long batchWindowMs;
+
+    public SimulatedRemoteKmsProvider(MasterKeyRing masterKeyRing) {
+        this.server = new LocalKmsProvider(masterKeyRing);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getCurrentKeyId() {
+        // 当前主密钥ID在启动时获取一次，不需要远程调用
+        return server.getCurrentKeyId();
+    }
+
+    @Override
+    public DataKey generateDataKey() {
+        roundTrip();
+        return server.generateDataKey();
+    }
+
+    @Override
+    public WrappedKey wrap(byte[] plainKey) {
+        roundTrip();
+        return server.wrap(plainKey);
+    }
+
+    @Override
+    public byte[] unwrap(WrappedKey wrappedKey) {
+        roundTrip();
+        return server.unwrap(wrappedKey);
+    }
+
+    @Override
+    public List<byte[]> unwrapBatch(List<WrappedKey> wrappedKeys) {
+        if (wrappedKeys.size() > maxBatchSize) {
+            throw new IllegalArgumentException("批量解包超过上限: " + wrappedKeys.size() + " > " + maxBatchSize);
+        }
+        roundTrip();
+        return wrappedKeys.stream().map(server::unwrap).toList();
+    }
+
+    @Override
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    @Override
+    public long getBatchWindowMs() {
+        return batchWindowMs;
+    }
+
+    private void roundTrip() {
+        if (latencyMs <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(latencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("KMS调用被中断", e);
+        }
+    }
+}
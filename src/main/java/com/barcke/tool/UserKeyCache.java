@@ -0,0 +1,279 @@
+package com.barcke.tool;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className UserKeyCache
+ * @date 2025/12/18
+ * @slogan: 源于生活 高于生活
+ * @description: 用户密钥缓存，缓存解包后的用户密钥（按 userId + keyVersion 区分），支持TTL过期、容量上限，淘汰时清零密钥字节
+ **/
+@Component
+public class UserKeyCache {
+
+    @Value("${kms.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${kms.cache.maxSize:10000}")
+    private int maxSize;
+
+    @Value("${kms.cache.ttlSeconds:600}")
+    private long ttlSeconds;
+
+    /**
+     * 缓存条目（访问顺序，超出容量时只淘汰最久未访问的一条；过期条目在读取时清理），所有访问都在 this 锁内
+     */
+    private final LinkedHashMap<CacheKey, CacheEntry> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest) {
+            if (size() <= maxSize) {
+                return false;
+            }
+            evict(eldest.getKey(), eldest.getValue());
+            return true;
+        }
+    };
+
+    /**
+     * 用户当前密钥版本索引
+     */
+    private final Map<String, Integer> currentVersions = new HashMap<>();
+
+    /**
+     * 失效序号，每次失效、清空时递增
+     */
+    private long sequence;
+
+    /**
+     * 清空时的失效序号（所有用户的代数下限）
+     */
+    private long clearedAt;
+
+    /**
+     * 用户最近一次失效时的失效序号（清空时一并清除）
+     * 读取方在查库前取得该用户的代数，写入缓存时代数已变化说明期间该用户发生过轮换或销毁，读到的可能是旧密钥，不再写入；
+     * 其他用户的失效不影响
+     */
+    private final Map<String, Long> invalidatedAt = new HashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * 获取用户当前版本的密钥
+     *
+     * @return 密钥（密钥规范持有密钥字节的副本），未命中返回null
+     */
+    public VersionedKey getCurrent(String userId) {
+        if (!enabled) {
+            return null;
+        }
+        synchronized (this) {
+            Integer version = currentVersions.get(userId);
+            if (version == null) {
+                misses.increment();
+                return null;
+            }
+            return lookup(new CacheKey(userId, version));
+        }
+    }
+
+    /**
+     * 获取用户指定版本的密钥
+     *
+     * @return 密钥（密钥规范持有密钥字节的副本），未命中返回null
+     */
+    public VersionedKey get(String userId, int keyVersion) {
+        if (!enabled) {
+            return null;
+        }
+        synchronized (this) {
+            return lookup(new CacheKey(userId, keyVersion));
+        }
+    }
+
+    /**
+     * 用户当前的失效代数，查库读取密钥之前获取，写入缓存时传回
+     */
+    public synchronized long generation(String userId) {
+        return Math.max(clearedAt, invalidatedAt.getOrDefault(userId, 0L));
+    }
+
+    /**
+     * 缓存用户密钥并标记为当前版本
+     * 读取后发生过失效（代数变化）或已缓存更高的版本时不写入，避免把旧版本重新固定为当前版本
+     *
+     * @param generation 读取密钥前获取的 {@link #generation(String)}
+     */
+    public void putCurrent(String userId, int keyVersion, byte[] userKey, long generation) {
+        if (!enabled || userKey == null) {
+            return;
+        }
+        synchronized (this) {
+            if (generation != generation(userId)) {
+                return;
+            }
+            Integer currentVersion = currentVersions.get(userId);
+            if (currentVersion != null && currentVersion > keyVersion) {
+                return;
+            }
+            store(new CacheKey(userId, keyVersion), userKey);
+            currentVersions.put(userId, keyVersion);
+        }
+    }
+
+    /**
+     * 缓存用户历史版本密钥（不改变当前版本）
+     *
+     * @param generation 读取密钥前获取的 {@link #generation(String)}
+     */
+    public void put(String userId, int keyVersion, byte[] userKey, long generation) {
+        if (!enabled || userKey == null) {
+            return;
+        }
+        synchronized (this) {
+            if (generation == generation(userId)) {
+                store(new CacheKey(userId, keyVersion), userKey);
+            }
+        }
+    }
+
+    /**
+     * 失效用户的所有版本密钥（密钥轮换、销毁时调用）
+     */
+    public void invalidate(String userId) {
+        synchronized (this) {
+            invalidatedAt.put(userId, ++sequence);
+            if (invalidatedAt.size() > maxSize) {
+                // 失效记录过多时整体提高下限：所有用户进行中的写入都放弃一次，记录不会无限增长
+                clearedAt = sequence;
+                invalidatedAt.clear();
+            }
+            currentVersions.remove(userId);
+            Iterator<Map.Entry<CacheKey, CacheEntry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<CacheKey, CacheEntry> entry = iterator.next();
+                if (entry.getKey().userId().equals(userId)) {
+                    entry.getValue().destroy();
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        synchronized (this) {
+            clearedAt = ++sequence;
+            invalidatedAt.clear();
+            entries.values().forEach(CacheEntry::destroy);
+            entries.clear();
+            currentVersions.clear();
+        }
+    }
+
+    /**
+     * 缓存统计
+     */
+    public Stats stats() {
+        int size;
+        synchronized (this) {
+            size = entries.size();
+        }
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), size);
+    }
+
+    private VersionedKey lookup(CacheKey key) {
+        CacheEntry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.isExpired(System.nanoTime())) {
+            remove(key, entry);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return new VersionedKey(key.keyVersion(), EncryptionUtil.keySpec(entry.getUserKey()));
+    }
+
+    private void store(CacheKey key, byte[] userKey) {
+        // 超出容量时由 removeEldestEntry 淘汰最久未访问的条目
+        CacheEntry previous = entries.put(key,
+                new CacheEntry(userKey.clone(), System.nanoTime() + ttlSeconds * 1_000_000_000L));
+        if (previous != null) {
+            previous.destroy();
+        }
+    }
+
+    private void remove(CacheKey key, CacheEntry entry) {
+        entries.remove(key);
+        evict(key, entry);
+    }
+
+    private void evict(CacheKey key, CacheEntry entry) {
+        entry.destroy();
+        evictions.increment();
+        if (Objects.equals(currentVersions.get(key.userId()), key.keyVersion())) {
+            currentVersions.remove(key.userId());
+        }
+    }
+
+    private record CacheKey(String userId, int keyVersion) {
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static class CacheEntry {
+        private byte[] userKey;
+        private long expireAtNanos;
+
+        boolean isExpired(long now) {
+            return now - expireAtNanos >= 0;
+        }
+
+        void destroy() {
+            Arrays.fill(userKey, (byte) 0);
+        }
+    }
+
+    /**
+     * 缓存统计信息
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Stats {
+        /**
+         * 命中次数
+         */
+        private long hitCount;
+
+        /**
+         * 未命中次数
+         */
+        private long missCount;
+
+        /**
+         * 淘汰次数（过期、超出容量）
+         */
+        private long evictionCount;
+
+        /**
+         * 当前缓存条目数
+         */
+        private int size;
+    }
+}
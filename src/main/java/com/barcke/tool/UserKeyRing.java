@@ -0,0 +1,185 @@
+package com.barcke.tool;
+
+import com.barcke.service.KmsService;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.SecretKey;
+import java.security.GeneralSecurityException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className UserKeyRing
+ * @date 2025/12/19
+ * @slogan: 源于生活 高于生活
+ * @description: 用户密钥环，加密使用当前版本密钥，解密按密文头部中的版本选择密钥（历史版本保持可读）
+ * 已解析的密钥在密钥环内复用，密钥环应在一次加解密批次（一个事务）内使用，不长期持有
+ **/
+@Slf4j
+public class UserKeyRing {
+
+    private final String userId;
+
+    private final KmsService kmsService;
+
+    /**
+     * 版本号 -> 密钥
+     */
+    private final Map<Integer, VersionedKey> keys = new HashMap<>(4);
+
+    private VersionedKey currentKey;
+
+    private VersionedKey latestKey;
+
+    /**
+     * 是否已查询过当前版本密钥（用户没有密钥时不重复查询）
+     */
+    private boolean latestLoaded;
+
+    /**
+     * 版本号 -> 索引密钥
+     */
+    private final Map<Integer, SecretKey> indexKeys = new HashMap<>(4);
+
+    public UserKeyRing(String userId, KmsService kmsService) {
+        this.userId = userId;
+        this.kmsService = kmsService;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * 当前版本密钥（不存在时生成）
+     */
+    public VersionedKey current() {
+        if (currentKey == null) {
+            currentKey = kmsService.getOrGenerateUserKey(userId);
+            if (currentKey != null) {
+                keys.put(currentKey.getKeyVersion(), currentKey);
+            }
+        }
+        return currentKey;
+    }
+
+    /**
+     * 当前版本密钥（不存在时不生成，用于解密）
+     *
+     * @return 密钥，用户没有密钥时返回null
+     */
+    public VersionedKey latest() {
+        if (latestKey == null && (currentKey != null || !latestLoaded)) {
+            latestKey = currentKey != null ? currentKey : kmsService.getUserKey(userId);
+            latestLoaded = true;
+            if (latestKey != null) {
+                keys.putIfAbsent(latestKey.getKeyVersion(), latestKey);
+            }
+        }
+        return latestKey;
+    }
+
+    /**
+     * 指定版本密钥
+     *
+     * @return 密钥，不存在返回null
+     */
+    public VersionedKey version(int keyVersion) {
+        return keys.computeIfAbsent(keyVersion, v -> kmsService.getUserKey(userId, v));
+    }
+
+    /**
+     * 使用当前版本密钥加密（文本信封格式，不压缩）
+     */
+    public String encrypt(String plaintext) {
+        return CipherEnvelope.seal(plaintext, requireCurrent());
+    }
+
+    /**
+     * 使用当前版本密钥加密，存储格式、压缩阈值按字段配置
+     */
+    public String encrypt(String plaintext, EncryptedEntityRegistry.EncryptedField field) {
+        return CipherEnvelope.seal(plaintext, requireCurrent(), field.isBinary(), field.getCompressThreshold());
+    }
+
+    private VersionedKey requireCurrent() {
+        VersionedKey key = current();
+        if (key == null) {
+            throw new IllegalStateException("无法获取用户密钥");
+        }
+        return key;
+    }
+
+    /**
+     * 盲索引密钥，由用户当前版本的密钥派生
+     * 密钥轮换后新写入的令牌使用新版本的索引密钥，已有令牌由重加密任务随密文一起重建，旧版本密钥不再参与索引
+     *
+     * @return 索引密钥，用户没有密钥时返回null
+     */
+    public SecretKey indexKey() {
+        VersionedKey key = latest();
+        return key != null ? indexKey(key.getKeyVersion()) : null;
+    }
+
+    /**
+     * 指定版本密钥派生的盲索引密钥（重加密任务完成前检索旧版本令牌）
+     *
+     * @return 索引密钥，版本不存在返回null
+     */
+    public SecretKey indexKey(int keyVersion) {
+        SecretKey indexKey = indexKeys.get(keyVersion);
+        if (indexKey == null) {
+            VersionedKey key = version(keyVersion);
+            if (key != null) {
+                indexKey = BlindIndex.deriveKey(key.getKey());
+                indexKeys.put(keyVersion, indexKey);
+            }
+        }
+        return indexKey;
+    }
+
+    /**
+     * 解密（信封格式按版本选择密钥，历史格式从最新版本开始逐个尝试）
+     *
+     * @throws IllegalArgumentException 数据格式错误（可能是未加密的数据或损坏的数据）
+     * @throws IllegalStateException    密钥版本不存在
+     * @throws GeneralSecurityException 密钥错误或数据被篡改
+     */
+    public String decrypt(String ciphertext) throws GeneralSecurityException {
+        if (ciphertext == null || ciphertext.isEmpty()) {
+            return ciphertext;
+        }
+
+        int keyVersion = CipherEnvelope.keyVersion(ciphertext);
+        if (keyVersion != CipherEnvelope.LEGACY_VERSION) {
+            VersionedKey key = version(keyVersion);
+            if (key == null) {
+                throw new IllegalStateException("密钥版本不存在: " + keyVersion);
+            }
+            return CipherEnvelope.open(ciphertext, key.getKey());
+        }
+
+        // 历史格式没有版本信息，绝大多数是当前版本加密的，其次是较早的版本
+        VersionedKey latest = latest();
+        if (latest == null) {
+            throw new IllegalStateException("用户密钥不存在");
+        }
+        AEADBadTagException lastError = null;
+        for (int v = latest.getKeyVersion(); v >= 1; v--) {
+            VersionedKey key = version(v);
+            if (key == null) {
+                continue;
+            }
+            try {
+                return CipherEnvelope.open(ciphertext, key.getKey());
+            } catch (AEADBadTagException e) {
+                lastError = e;
+            }
+        }
+        throw lastError != null ? lastError : new AEADBadTagException("没有可用的密钥版本");
+    }
+}
@@ -0,0 +1,30 @@
+package com.barcke.tool;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import javax.crypto.SecretKey;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className VersionedKey
+ * @date 2025/12/19
+ * @slogan: 源于生活 高于生活
+ * @description: 带版本号的用户密钥（明文密钥规范），版本号写入密文头部用于解密时选择密钥
+ **/
+@Getter
+@AllArgsConstructor
+public class VersionedKey {
+
+    /**
+     * 密钥版本号
+     */
+    private final int keyVersion;
+
+    /**
+     * 密钥规范
+     */
+    private final SecretKey key;
+}
@@ -0,0 +1,125 @@
+package com.barcke.dao;
+
+import com.barcke.common.BarckeContext;
+import com.barcke.pojo.Todo;
+import com.barcke.pojo.UserInfo;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className BatchInsertMeasurementTest
+ * @date 2025/12/28
+ * @slogan: 源于生活 高于生活
+ * @description: 批量插入吞吐：insertAll 与 saveAll 写入 365 行（一年的每日重复）、10k 行（导入）的行/秒对比
+ * 写入包含标题、描述加密，数据库为内存 H2，只用于比较两条写入路径，不代表生产数据库的绝对吞吐
+ **/
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:batch-insert-measurement;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class BatchInsertMeasurementTest {
+
+    private static final int ROUNDS = 3;
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private String userId;
+
+    @BeforeEach
+    void setUp() {
+        userId = UUID.randomUUID().toString();
+        BarckeContext.setUserInfo(UserInfo.builder().userId(userId).username(userId).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        BarckeContext.clear();
+    }
+
+    @Test
+    void yearOfDailyOccurrences() {
+        measure(365);
+    }
+
+    @Test
+    void tenThousandRowImport() {
+        measure(10_000);
+    }
+
+    private void measure(int rows) {
+        long insertAllNanos = Long.MAX_VALUE;
+        long saveAllNanos = Long.MAX_VALUE;
+        long insertAllBatches = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            statistics.clear();
+            insertAllNanos = Math.min(insertAllNanos, time(rows, todoRepository::insertAll));
+            insertAllBatches = statistics.getPrepareStatementCount();
+
+            saveAllNanos = Math.min(saveAllNanos, time(rows, todoRepository::saveAll));
+        }
+        System.out.printf("批量插入（%d 行，取 %d 轮最快）: insertAll %.0f 行/秒（%d 条预编译语句）, saveAll %.0f 行/秒（%+.1f%%）%n",
+                rows, ROUNDS, rows * 1e9 / insertAllNanos, insertAllBatches, rows * 1e9 / saveAllNanos,
+                100.0 * ((double) saveAllNanos / insertAllNanos - 1));
+    }
+
+    /**
+     * 在一个事务中写入指定行数，返回耗时并校验写入行数
+     */
+    private long time(int rows, Consumer<List<Todo>> writer) {
+        List<Todo> todos = todos(rows);
+        jdbcTemplate.update("delete from todo where user_id = ?", userId);
+
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> writer.accept(todos));
+        long nanos = System.nanoTime() - start;
+
+        assertEquals(rows, (int) jdbcTemplate.queryForObject(
+                "select count(*) from todo where user_id = ?", Integer.class, userId));
+        return nanos;
+    }
+
+    private List<Todo> todos(int rows) {
+        List<Todo> todos = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            todos.add(Todo.builder()
+                    .userId(userId)
+                    .title("每日站会-" + i)
+                    .description("讨论进度和风险-" + i)
+                    .date(LocalDate.of(2025, 1, 1).plusDays(i))
+                    .delFlag(false)
+                    .build());
+        }
+        return todos;
+    }
+}
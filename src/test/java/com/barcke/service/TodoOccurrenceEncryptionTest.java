@@ -0,0 +1,141 @@
+package com.barcke.service;
+
+import com.barcke.common.BarckeContext;
+import com.barcke.dao.TodoRepository;
+import com.barcke.dto.todo.RepeatRule;
+import com.barcke.dto.todo.TodoBulkFilter;
+import com.barcke.dto.todo.TodoBulkRequest;
+import com.barcke.dto.todo.TodoCreateRequest;
+import com.barcke.pojo.Todo;
+import com.barcke.pojo.UserInfo;
+import com.barcke.service.impl.TodoBulkExecutor;
+import com.barcke.tool.CipherEnvelope;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className TodoOccurrenceEncryptionTest
+ * @date 2025/12/27
+ * @slogan: 源于生活 高于生活
+ * @description: 批量写入加密测试：单独保存的重复、saveAll 写入的 Todo 在数据库中都是密文
+ **/
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:occurrence-encryption;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class TodoOccurrenceEncryptionTest {
+
+    private static final String TITLE = "每日站会-明文标题";
+
+    private static final String DESCRIPTION = "讨论进度和风险-明文描述";
+
+    @Autowired
+    private TodoService todoService;
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private String userId;
+
+    @BeforeEach
+    void setUp() {
+        userId = UUID.randomUUID().toString();
+        BarckeContext.setUserInfo(UserInfo.builder().userId(userId).username(userId).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        BarckeContext.clear();
+    }
+
+    @Test
+    void persistedOccurrencesAreCiphertext() {
+        LocalDate start = LocalDate.of(2025, 1, 1);
+        todoService.createTodo(TodoCreateRequest.builder()
+                .title(TITLE)
+                .description(DESCRIPTION)
+                .date(start)
+                .repeatType("daily")
+                .repeatRule(RepeatRule.builder().type("daily").build())
+                .build());
+
+        // 批量完成把展开的重复单独保存（一次批量插入）
+        todoService.bulkOperate(TodoBulkRequest.builder()
+                .operation(TodoBulkExecutor.OPERATION_COMPLETE)
+                .filter(TodoBulkFilter.builder().startDate(start).endDate(start.plusDays(29)).build())
+                .build());
+
+        List<byte[][]> rows = selectColumns("select title, description from todo"
+                + " where user_id = ? and series_id is not null");
+        assertEquals(30, rows.size());
+        rows.forEach(this::assertCiphertext);
+    }
+
+    @Test
+    void saveAllWritesCiphertext() {
+        List<Todo> todos = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            todos.add(Todo.builder()
+                    .userId(userId)
+                    .title(TITLE)
+                    .description(DESCRIPTION)
+                    .date(LocalDate.of(2025, 1, 1).plusDays(i))
+                    .delFlag(false)
+                    .build());
+        }
+        transactionTemplate.executeWithoutResult(status -> todoRepository.saveAll(todos));
+
+        List<byte[][]> rows = selectColumns("select title, description from todo where user_id = ?");
+        assertEquals(250, rows.size());
+        rows.forEach(this::assertCiphertext);
+
+        // 读取时解密为原文
+        transactionTemplate.executeWithoutResult(status -> todoRepository.findAllById(todos.stream()
+                        .map(Todo::getId)
+                        .toList())
+                .forEach(todo -> {
+                    assertEquals(TITLE, todo.getTitle());
+                    assertEquals(DESCRIPTION, todo.getDescription());
+                }));
+    }
+
+    private List<byte[][]> selectColumns(String sql) {
+        return jdbcTemplate.query(sql, (resultSet, rowNum) -> new byte[][]{
+                resultSet.getBytes("title"), resultSet.getBytes("description")}, userId);
+    }
+
+    private void assertCiphertext(byte[][] row) {
+        assertCiphertext(row[0], TITLE);
+        assertCiphertext(row[1], DESCRIPTION);
+    }
+
+    private void assertCiphertext(byte[] stored, String plaintext) {
+        assertNotNull(stored);
+        assertEquals(CipherEnvelope.MAGIC, stored[0], "应为二进制信封格式密文");
+        assertFalse(new String(stored, StandardCharsets.ISO_8859_1)
+                        .contains(new String(plaintext.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1)),
+                "数据库中不应出现明文");
+    }
+}
@@ -0,0 +1,138 @@
+package com.barcke.service.impl;
+
+import com.barcke.common.BarckeContext;
+import com.barcke.dao.TodoAttachmentRepository;
+import com.barcke.dao.TodoRepository;
+import com.barcke.dao.TodoTypeRepository;
+import com.barcke.dto.todo.TodoResponse;
+import com.barcke.pojo.Todo;
+import com.barcke.pojo.TodoAttachment;
+import com.barcke.pojo.TodoType;
+import com.barcke.pojo.UserInfo;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className TodoResponseAssemblerQueryCountTest
+ * @date 2025/12/27
+ * @slogan: 源于生活 高于生活
+ * @description: Todo 响应组装查询次数测试：组装 3 条和 30 条 Todo 执行的 SQL 条数相同
+ **/
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:assembler-query-count;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class TodoResponseAssemblerQueryCountTest {
+
+    @Autowired
+    private TodoResponseAssembler todoResponseAssembler;
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    @Autowired
+    private TodoTypeRepository todoTypeRepository;
+
+    @Autowired
+    private TodoAttachmentRepository todoAttachmentRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private String userId;
+
+    @BeforeEach
+    void setUp() {
+        userId = UUID.randomUUID().toString();
+        BarckeContext.setUserInfo(UserInfo.builder().userId(userId).username(userId).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        BarckeContext.clear();
+    }
+
+    @Test
+    void queryCountDoesNotDependOnListSize() {
+        long small = assembleAndCountStatements(createTodos(3));
+        long large = assembleAndCountStatements(createTodos(30));
+
+        assertEquals(small, large);
+        // 类型、附件各一次 IN 查询
+        assertTrue(large <= 2, "组装执行了 " + large + " 条 SQL");
+    }
+
+    /**
+     * 每条 Todo 使用不同的类型，带两个附件
+     */
+    private List<String> createTodos(int size) {
+        return transactionTemplate.execute(status -> {
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                TodoType type = todoTypeRepository.save(TodoType.builder()
+                        .userId(userId)
+                        .typeName("类型" + i)
+                        .build());
+                Todo todo = todoRepository.save(Todo.builder()
+                        .userId(userId)
+                        .title("标题" + i)
+                        .description("描述" + i)
+                        .date(LocalDate.of(2025, 1, 1).plusDays(i))
+                        .typeId(type.getTypeId())
+                        .delFlag(false)
+                        .build());
+                for (int j = 0; j < 2; j++) {
+                    todoAttachmentRepository.save(TodoAttachment.builder()
+                            .todoId(todo.getId())
+                            .type("image")
+                            .url("/files/" + i + "-" + j)
+                            .fileName(i + "-" + j + ".png")
+                            .filePath("/tmp/" + i + "-" + j + ".png")
+                            .build());
+                }
+                ids.add(todo.getId());
+            }
+            return ids;
+        });
+    }
+
+    private long assembleAndCountStatements(List<String> ids) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        return transactionTemplate.execute(status -> {
+            List<Todo> todos = todoRepository.findAllById(ids);
+            statistics.clear();
+
+            List<TodoResponse> responses = todoResponseAssembler.toResponses(todos);
+
+            long statements = statistics.getPrepareStatementCount();
+            assertEquals(ids.size(), responses.size());
+            responses.forEach(response -> {
+                assertNotNull(response.getTypeName());
+                assertEquals(2, response.getAttachments().size());
+                assertTrue(response.getDescription().startsWith("描述"));
+            });
+            return statements;
+        });
+    }
+}
@@ -0,0 +1,111 @@
+package com.barcke.tool;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className BinaryStorageMeasurementTest
+ * @date 2025/12/26
+ * @slogan: 源于生活 高于生活
+ * @description: 二进制存储与文本（Base64）存储的对比：加密字段的行大小、读取路径（列字节 -> 明文）的吞吐
+ * 样本按 Todo 的典型值生成（标题 4~60 个字符，描述 1~400 个字符，中英文混合）
+ **/
+class BinaryStorageMeasurementTest {
+
+    private static final int ROWS = 20_000;
+
+    private static final int ROUNDS = 5;
+
+    private final VersionedKey key = new VersionedKey(1, EncryptionUtil.keySpec(EncryptionUtil.generateKey()));
+
+    @Test
+    void binaryRowIsSmallerThanTextRow() {
+        long textBytes = 0;
+        long binaryBytes = 0;
+        for (String[] row : sampleRows()) {
+            for (String plaintext : row) {
+                byte[] text = CipherEnvelope.seal(plaintext, key, false, CipherEnvelope.NO_COMPRESSION)
+                        .getBytes(StandardCharsets.UTF_8);
+                byte[] binary = CipherEnvelope.toBytes(
+                        CipherEnvelope.seal(plaintext, key, true, CipherEnvelope.NO_COMPRESSION));
+                int plaintextLength = plaintext.getBytes(StandardCharsets.UTF_8).length;
+                // 二进制: 信封头部6 + IV 12 + 密文n + 标签16；文本: "$" + 以上字节的Base64
+                assertEquals(34 + plaintextLength, binary.length);
+                assertEquals(1 + 4 * ((34 + plaintextLength + 2) / 3), text.length);
+                textBytes += text.length;
+                binaryBytes += binary.length;
+            }
+        }
+        System.out.printf("加密字段行大小（标题+描述，%d 行）: 文本 %.1f 字节/行, 二进制 %.1f 字节/行（%.1f%%）%n",
+                ROWS, (double) textBytes / ROWS, (double) binaryBytes / ROWS,
+                100.0 * (binaryBytes - textBytes) / textBytes);
+        assertTrue(binaryBytes < textBytes * 0.8);
+    }
+
+    @Test
+    void binaryReadPathThroughput() throws Exception {
+        List<String[]> rows = sampleRows();
+        List<byte[]> textColumns = new ArrayList<>();
+        List<byte[]> binaryColumns = new ArrayList<>();
+        for (String[] row : rows) {
+            for (String plaintext : row) {
+                textColumns.add(CipherEnvelope.seal(plaintext, key, false, CipherEnvelope.NO_COMPRESSION)
+                        .getBytes(StandardCharsets.UTF_8));
+                binaryColumns.add(CipherEnvelope.toBytes(
+                        CipherEnvelope.seal(plaintext, key, true, CipherEnvelope.NO_COMPRESSION)));
+            }
+        }
+
+        // 与实际读取路径一致：文本列由驱动按字符串读取后Base64解码；二进制列经 BinaryCiphertextConverter 映射后直接解密
+        long textNanos = Long.MAX_VALUE;
+        long binaryNanos = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (byte[] column : textColumns) {
+                assertNotNull(CipherEnvelope.open(new String(column, StandardCharsets.UTF_8), key.getKey()));
+            }
+            textNanos = Math.min(textNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (byte[] column : binaryColumns) {
+                assertNotNull(CipherEnvelope.open(CipherEnvelope.fromBytes(column), key.getKey()));
+            }
+            binaryNanos = Math.min(binaryNanos, System.nanoTime() - start);
+        }
+        System.out.printf("读取吞吐（%d 行，取 %d 轮最快）: 文本 %.0f 行/秒, 二进制 %.0f 行/秒（%+.1f%%）%n",
+                ROWS, ROUNDS, ROWS * 1e9 / textNanos, ROWS * 1e9 / binaryNanos,
+                100.0 * ((double) textNanos / binaryNanos - 1));
+    }
+
+    /**
+     * 生成样本行（标题、描述）
+     */
+    private static List<String[]> sampleRows() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String words = "周会预算报告review提交设计文档客户拜访出差报销 sprint planning deploy fix bug 读书健身";
+        List<String[]> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new String[]{
+                    sample(words, 4 + random.nextInt(57), random),
+                    sample(words, 1 + random.nextInt(400), random)});
+        }
+        return rows;
+    }
+
+    private static String sample(String words, int length, ThreadLocalRandom random) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(words.charAt(random.nextInt(words.length())));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,140 @@
+package com.barcke.tool;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className EncryptionUtilMeasurementTest
+ * @date 2025/12/28
+ * @slogan: 源于生活 高于生活
+ * @description: EncryptionUtil 加解密吞吐对比（一次加密 + 一次解密）：
+ * 1. 原实现：每次调用新建 SecureRandom、SecretKeySpec、Cipher，经 ByteBuffer 拷贝和 Base64 往返
+ * 2. 字符串接口：复用线程内 Cipher 和共享随机数生成器，每次调用按密钥字节构建密钥规范
+ * 3. 字节接口：复用线程内 Cipher、预先构建的密钥规范，不经过字符串和 Base64
+ **/
+class EncryptionUtilMeasurementTest {
+
+    private static final int OPERATIONS = 20_000;
+
+    private static final int ROUNDS = 5;
+
+    private final byte[] rawKey = EncryptionUtil.generateKey();
+
+    private final SecretKey key = EncryptionUtil.keySpec(rawKey);
+
+    @Test
+    void reusedCipherThroughput() throws Exception {
+        List<String> samples = sampleTitles();
+        List<byte[]> sampleBytes = new ArrayList<>(samples.size());
+        samples.forEach(sample -> sampleBytes.add(sample.getBytes(StandardCharsets.UTF_8)));
+
+        long legacyNanos = Long.MAX_VALUE;
+        long stringNanos = Long.MAX_VALUE;
+        long bytesNanos = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (String sample : samples) {
+                assertEquals(sample, legacyDecrypt(legacyEncrypt(sample, rawKey), rawKey));
+            }
+            legacyNanos = Math.min(legacyNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (String sample : samples) {
+                assertEquals(sample, EncryptionUtil.decrypt(EncryptionUtil.encrypt(sample, rawKey), rawKey));
+            }
+            stringNanos = Math.min(stringNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (byte[] sample : sampleBytes) {
+                assertEquals(sample.length,
+                        EncryptionUtil.decrypt(EncryptionUtil.encrypt(sample, key), key).length);
+            }
+            bytesNanos = Math.min(bytesNanos, System.nanoTime() - start);
+        }
+        System.out.printf("加解密吞吐（%d 次，取 %d 轮最快）: 原实现 %.0f 次/秒, 字符串接口 %.0f 次/秒（%.1fx）, "
+                        + "字节接口 %.0f 次/秒（%.1fx）%n",
+                OPERATIONS, ROUNDS, OPERATIONS * 1e9 / legacyNanos,
+                OPERATIONS * 1e9 / stringNanos, (double) legacyNanos / stringNanos,
+                OPERATIONS * 1e9 / bytesNanos, (double) legacyNanos / bytesNanos);
+    }
+
+    @Test
+    void stringApiIsCompatibleWithLegacyFormat() {
+        for (String sample : sampleTitles().subList(0, 100)) {
+            assertEquals(sample, EncryptionUtil.decrypt(legacyEncrypt(sample, rawKey), rawKey));
+            assertEquals(sample, legacyDecrypt(EncryptionUtil.encrypt(sample, rawKey), rawKey));
+        }
+    }
+
+    /**
+     * 原实现的加密（每次调用新建 SecureRandom、SecretKeySpec、Cipher）
+     */
+    private static String legacyEncrypt(String plaintext, byte[] key) {
+        try {
+            byte[] iv = new byte[12];
+            new SecureRandom().nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new GCMParameterSpec(128, iv));
+            byte[] encrypted = cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
+
+            ByteBuffer buffer = ByteBuffer.allocate(iv.length + encrypted.length);
+            buffer.put(iv);
+            buffer.put(encrypted);
+            return Base64.getEncoder().encodeToString(buffer.array());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 原实现的解密（每次调用新建 SecretKeySpec、Cipher，IV 和密文拷贝到单独的数组）
+     */
+    private static String legacyDecrypt(String ciphertext, byte[] key) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Base64.getDecoder().decode(ciphertext));
+            byte[] iv = new byte[12];
+            buffer.get(iv);
+            byte[] encrypted = new byte[buffer.remaining()];
+            buffer.get(encrypted);
+
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(key, "AES"), new GCMParameterSpec(128, iv));
+            return new String(cipher.doFinal(encrypted), StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 生成样本标题（4~60 个字符，中英文混合）
+     */
+    private static List<String> sampleTitles() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String words = "周会预算报告review提交设计文档客户拜访出差报销 sprint planning deploy fix bug 读书健身";
+        List<String> samples = new ArrayList<>(OPERATIONS);
+        for (int i = 0; i < OPERATIONS; i++) {
+            StringBuilder builder = new StringBuilder();
+            for (int j = 4 + random.nextInt(57); j > 0; j--) {
+                builder.append(words.charAt(random.nextInt(words.length())));
+            }
+            samples.add(builder.toString());
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,189 @@
+package com.barcke.tool;
+
+import com.barcke.service.KmsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className KeyResolutionMeasurementTest
+ * @date 2025/12/28
+ * @slogan: 源于生活 高于生活
+ * @description: 查询结果解密的每行开销：逐行解析用户密钥（原切面的做法）与整个结果集共用一个密钥环（事务内密钥环）的对比
+ * 行数按月视图（1k 行）、年视图（10k 行）取值；密钥都命中 UserKeyCache，未计入查库、解包主密钥的开销
+ **/
+class KeyResolutionMeasurementTest {
+
+    private static final String USER_ID = "measurement-user";
+
+    private static final int MONTH_ROWS = 1_000;
+
+    private static final int YEAR_ROWS = 10_000;
+
+    private static final int ROUNDS = 20;
+
+    private CountingKmsService kmsService;
+
+    @BeforeEach
+    void setUp() {
+        UserKeyCache cache = new UserKeyCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxSize", 16);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 600L);
+        cache.putCurrent(USER_ID, 1, EncryptionUtil.generateKey(), cache.generation(USER_ID));
+        kmsService = new CountingKmsService(cache);
+    }
+
+    @Test
+    void monthQueryPerRowCost() throws Exception {
+        measure("月视图", MONTH_ROWS);
+    }
+
+    @Test
+    void yearQueryPerRowCost() throws Exception {
+        measure("年视图", YEAR_ROWS);
+    }
+
+    private void measure(String name, int rows) throws Exception {
+        VersionedKey key = kmsService.getUserKey(USER_ID, 1);
+        List<String> columns = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            columns.add(CipherEnvelope.seal(sample(4 + ThreadLocalRandom.current().nextInt(57)), key));
+        }
+
+        long perRowNanos = Long.MAX_VALUE;
+        long sharedNanos = Long.MAX_VALUE;
+        int perRowLookups = 0;
+        int sharedLookups = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            kmsService.lookups.set(0);
+            long start = System.nanoTime();
+            for (String column : columns) {
+                assertNotNull(new UserKeyRing(USER_ID, kmsService).decrypt(column));
+            }
+            perRowNanos = Math.min(perRowNanos, System.nanoTime() - start);
+            perRowLookups = kmsService.lookups.get();
+
+            kmsService.lookups.set(0);
+            start = System.nanoTime();
+            UserKeyRing keyRing = new UserKeyRing(USER_ID, kmsService);
+            for (String column : columns) {
+                assertNotNull(keyRing.decrypt(column));
+            }
+            sharedNanos = Math.min(sharedNanos, System.nanoTime() - start);
+            sharedLookups = kmsService.lookups.get();
+        }
+
+        System.out.printf("%s解密（%d 行，取 %d 轮最快）: 逐行解析密钥 %.0f ns/行（%d 次密钥查找）, "
+                        + "共用密钥环 %.0f ns/行（%d 次密钥查找）%n",
+                name, rows, ROUNDS, (double) perRowNanos / rows, perRowLookups,
+                (double) sharedNanos / rows, sharedLookups);
+        assertEquals(rows, perRowLookups);
+        assertEquals(1, sharedLookups);
+    }
+
+    private static String sample(int length) {
+        String words = "周会预算报告review提交设计文档客户拜访 sprint planning deploy";
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(words.charAt(ThreadLocalRandom.current().nextInt(words.length())));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 只提供读取路径的密钥服务：密钥从 UserKeyCache 读取（与 KmsServiceImpl 缓存命中时一致），记录密钥查找次数
+     */
+    private static class CountingKmsService implements KmsService {
+
+        private final UserKeyCache cache;
+
+        private final AtomicInteger lookups = new AtomicInteger();
+
+        CountingKmsService(UserKeyCache cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public VersionedKey getUserKey(String userId) {
+            lookups.incrementAndGet();
+            return cache.getCurrent(userId);
+        }
+
+        @Override
+        public VersionedKey getUserKey(String userId, int keyVersion) {
+            lookups.incrementAndGet();
+            return cache.get(userId, keyVersion);
+        }
+
+        @Override
+        public VersionedKey getOrGenerateUserKey(String userId) {
+            return getUserKey(userId);
+        }
+
+        @Override
+        public UserKeyRing getKeyRing(String userId) {
+            return new UserKeyRing(userId, this);
+        }
+
+        @Override
+        public String encryptUserKey(byte[] userKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public byte[] decryptUserKey(String encryptedKey, String masterKeyId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void preloadUserKeys(Collection<String> userIds) {
+        }
+
+        @Override
+        public String getCurrentMasterKeyId() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String rewrapUserKey(String encryptedKey, String masterKeyId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<String> rewrapUserKeys(List<KmsProvider.WrappedKey> wrappedKeys) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public VersionedKey rotateUserKey(String userId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void destroyUserKeys(String userId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public UserKeyCache.Stats getKeyCacheStats() {
+            return cache.stats();
+        }
+
+        @Override
+        public KmsClient.Stats getProviderStats() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.barcke.tool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className KmsClientTest
+ * @date 2025/12/26
+ * @slogan: 源于生活 高于生活
+ * @description: KMS客户端测试（提供者无响应时的超时）
+ **/
+class KmsClientTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger unwrapCalls = new AtomicInteger();
+    private KmsClient client;
+
+    @BeforeEach
+    void setUp() {
+        client = new KmsClient(new KmsProvider() {
+            @Override
+            public String getName() {
+                return "hanging";
+            }
+
+            @Override
+            public String getCurrentKeyId() {
+                return "test";
+            }
+
+            @Override
+            public DataKey generateDataKey() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public WrappedKey wrap(byte[] plainKey) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public byte[] unwrap(WrappedKey wrappedKey) {
+                // 第一次调用无响应，之后正常返回
+                if (unwrapCalls.incrementAndGet() == 1) {
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return new byte[32];
+            }
+
+            @Override
+            public long getBatchWindowMs() {
+                return 1;
+            }
+        });
+        ReflectionTestUtils.setField(client, "timeoutMs", 100L);
+        client.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        client.destroy();
+    }
+
+    @Test
+    void unwrapTimesOutAndNextRequestIsSentAgain() {
+        KmsProvider.WrappedKey wrappedKey = new KmsProvider.WrappedKey("ciphertext", "test");
+
+        assertThrows(IllegalStateException.class, () -> client.unwrap(wrappedKey));
+        // 超时的请求已移出合并表，下一次请求重新调用提供者
+        assertEquals(32, client.unwrap(wrappedKey).length);
+        assertEquals(2, unwrapCalls.get());
+    }
+}
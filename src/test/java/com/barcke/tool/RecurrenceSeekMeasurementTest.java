@@ -0,0 +1,81 @@
+package com.barcke.tool;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className RecurrenceSeekMeasurementTest
+ * @date 2025/12/28
+ * @slogan: 源于生活 高于生活
+ * @description: 重复日期展开的定位开销：同一规则展开第一个月与 10 年、100 年、1000 年后的一个月的耗时对比
+ * 展开按所在周期换算起点，不从头枚举，远期窗口的耗时应与第一个月同一量级
+ **/
+class RecurrenceSeekMeasurementTest {
+
+    private static final LocalDate START = LocalDate.of(2025, 1, 1);
+
+    private static final String[] RULES = {
+            "FREQ=DAILY",
+            "FREQ=DAILY;INTERVAL=3",
+            "FREQ=WEEKLY;BYDAY=MO,WE,FR",
+            "FREQ=WEEKLY;INTERVAL=2;BYDAY=TU,TH",
+            "FREQ=MONTHLY;BYMONTHDAY=-1",
+            "FREQ=MONTHLY;BYDAY=MO,TU,WE,TH,FR;BYSETPOS=-1",
+            "FREQ=YEARLY;BYMONTH=2;BYMONTHDAY=29"
+    };
+
+    private static final int[] YEARS_AHEAD = {0, 10, 100, 1000};
+
+    private static final int ITERATIONS = 2_000;
+
+    private static final int ROUNDS = 5;
+
+    @Test
+    void farFutureMonthCostsTheSameAsFirstMonth() {
+        for (String rrule : RULES) {
+            RecurrenceSet recurrence = RecurrenceSet.of(START, RecurrenceRule.parse(rrule), null, null);
+            long[] nanos = new long[YEARS_AHEAD.length];
+            for (int i = 0; i < YEARS_AHEAD.length; i++) {
+                LocalDate from = START.plusYears(YEARS_AHEAD[i]);
+                nanos[i] = measure(recurrence, from, from.plusMonths(1).minusDays(1));
+            }
+
+            StringBuilder line = new StringBuilder(String.format("%-46s", rrule));
+            for (int i = 0; i < YEARS_AHEAD.length; i++) {
+                line.append(String.format(" +%d年 %.1fµs", YEARS_AHEAD[i], nanos[i] / 1000.0));
+            }
+            System.out.println(line);
+
+            // 逐个枚举 1000 年的日期会慢几个数量级，这里只留出计时抖动的余量
+            for (int i = 1; i < YEARS_AHEAD.length; i++) {
+                assertTrue(nanos[i] < nanos[0] * 10 + 20_000,
+                        rrule + " +" + YEARS_AHEAD[i] + "年 " + nanos[i] + "ns, 第一个月 " + nanos[0] + "ns");
+            }
+        }
+    }
+
+    /**
+     * 展开一个窗口的耗时（每轮 ITERATIONS 次取平均，取最快的一轮）
+     */
+    private static long measure(RecurrenceSet recurrence, LocalDate from, LocalDate to) {
+        long best = Long.MAX_VALUE;
+        int size = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                List<LocalDate> dates = recurrence.between(from, to);
+                size += dates.size();
+            }
+            best = Math.min(best, (System.nanoTime() - start) / ITERATIONS);
+        }
+        assertTrue(size >= 0);
+        return best;
+    }
+}
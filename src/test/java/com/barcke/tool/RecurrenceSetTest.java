@@ -0,0 +1,283 @@
+package com.barcke.tool;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className RecurrenceSetTest
+ * @date 2025/12/27
+ * @slogan: 源于生活 高于生活
+ * @description: 重复日期集合测试：随机规则的展开结果与逐日判断的参考实现对比，以及 INTERVAL 上限、不产生日期的规则
+ **/
+class RecurrenceSetTest {
+
+    private static final String[] DAY_CODES = {"MO", "TU", "WE", "TH", "FR", "SA", "SU"};
+
+    /**
+     * 参考实现逐日判断的天数（约三年）
+     */
+    private static final int WINDOW_DAYS = 1100;
+
+    @Test
+    void matchesReferenceForRandomRules() {
+        Random random = new Random(20251227L);
+        for (int i = 0; i < 2000; i++) {
+            LocalDate start = LocalDate.of(2000, 1, 1).plusDays(random.nextInt(365 * 30));
+            LocalDate end = start.plusDays(WINDOW_DAYS);
+            String rrule = randomRule(random, start);
+            RecurrenceRule rule = RecurrenceRule.parse(rrule);
+            Set<LocalDate> exdates = new HashSet<>();
+            for (int j = random.nextInt(3); j > 0; j--) {
+                exdates.add(start.plusDays(random.nextInt(WINDOW_DAYS)));
+            }
+            RecurrenceSet recurrence = RecurrenceSet.of(start, rule, null, exdates);
+            List<LocalDate> expected = reference(start, rule, exdates, end);
+            String message = rrule + " start=" + start;
+
+            assertEquals(expected, recurrence.between(start, end), message);
+
+            // 从任意日期开始展开（按所在周期换算，不从头枚举）
+            LocalDate from = start.plusDays(random.nextInt(WINDOW_DAYS));
+            LocalDate to = from.plusDays(random.nextInt(WINDOW_DAYS - (int) ChronoUnit.DAYS.between(start, from) + 1));
+            assertEquals(between(expected, from, to), recurrence.between(from, to), message + " from=" + from);
+
+            // COUNT 换算为最后一次重复后结果相同
+            RecurrenceSet resolved = recurrence.withCountUntil(recurrence.countUntil());
+            assertEquals(between(expected, from, to), resolved.between(from, to), message + " resolved");
+
+            Iterator<LocalDate> iterator = recurrence.iterator(from);
+            for (LocalDate date : between(expected, from, end)) {
+                assertTrue(iterator.hasNext(), message + " iterator");
+                assertEquals(date, iterator.next(), message + " iterator");
+            }
+        }
+    }
+
+    @Test
+    void rejectsIntervalAboveLimit() {
+        assertThrows(IllegalArgumentException.class,
+                () -> RecurrenceRule.parse("FREQ=YEARLY;INTERVAL=2000000000"));
+        assertThrows(IllegalArgumentException.class,
+                () -> RecurrenceRule.parse("FREQ=DAILY;INTERVAL=" + (RecurrenceRule.MAX_INTERVAL + 1)));
+        assertEquals(RecurrenceRule.MAX_INTERVAL,
+                RecurrenceRule.parse("FREQ=YEARLY;INTERVAL=" + RecurrenceRule.MAX_INTERVAL).getInterval());
+    }
+
+    @Test
+    void stopsAtEndOfSupportedDates() {
+        LocalDate start = LocalDate.of(999_998_000, 3, 1);
+        RecurrenceSet recurrence = RecurrenceSet.of(start,
+                RecurrenceRule.parse("FREQ=YEARLY;INTERVAL=" + RecurrenceRule.MAX_INTERVAL), null, null);
+
+        List<LocalDate> dates = new ArrayList<>();
+        recurrence.iterator(start).forEachRemaining(dates::add);
+        assertEquals(List.of(start, LocalDate.of(999_999_000, 3, 1)), dates);
+        assertEquals(dates, recurrence.between(start, LocalDate.MAX));
+    }
+
+    @Test
+    void detectsRulesWithoutDates() {
+        LocalDate start = LocalDate.of(2025, 1, 15);
+        RecurrenceSet never = RecurrenceSet.of(start,
+                RecurrenceRule.parse("FREQ=DAILY;BYMONTH=2;BYMONTHDAY=30"), null, null);
+        assertFalse(never.hasRuleDates());
+        // 开始日期总是第一次重复，之后查找完一个公历循环后结束
+        List<LocalDate> dates = new ArrayList<>();
+        never.iterator(start).forEachRemaining(dates::add);
+        assertEquals(List.of(start), dates);
+
+        assertFalse(RecurrenceSet.of(start, RecurrenceRule.parse("FREQ=MONTHLY;BYMONTH=4,6,9,11;BYMONTHDAY=31"),
+                null, null).hasRuleDates());
+        assertTrue(RecurrenceSet.of(start, RecurrenceRule.parse("FREQ=WEEKLY;INTERVAL=2;BYMONTH=2;COUNT=3"),
+                null, null).hasRuleDates());
+        assertTrue(RecurrenceSet.of(start, RecurrenceRule.parse("FREQ=YEARLY;BYMONTH=2;BYMONTHDAY=29;COUNT=2"),
+                null, null).hasRuleDates());
+        // UNTIL 早于第一次规则日期不影响：规则本身能产生日期
+        assertTrue(RecurrenceSet.of(start, RecurrenceRule.parse("FREQ=MONTHLY;BYMONTHDAY=31;UNTIL=20250116"),
+                null, null).hasRuleDates());
+    }
+
+    @Test
+    void findsDatesAfterLongEmptyStretch() {
+        // 1900、2200、2500 年都不是闰年，第一次规则日期在 2800 年
+        LocalDate start = LocalDate.of(1900, 1, 1);
+        RecurrenceSet recurrence = RecurrenceSet.of(start,
+                RecurrenceRule.parse("FREQ=YEARLY;INTERVAL=300;BYMONTH=2;BYMONTHDAY=29"), null, null);
+
+        assertTrue(recurrence.hasRuleDates());
+        Iterator<LocalDate> iterator = recurrence.iterator(start);
+        assertEquals(start, iterator.next());
+        assertEquals(LocalDate.of(2800, 2, 29), iterator.next());
+    }
+
+    private static String randomRule(Random random, LocalDate start) {
+        RecurrenceRule.Frequency frequency = RecurrenceRule.Frequency.values()[random.nextInt(4)];
+        StringBuilder rrule = new StringBuilder("FREQ=").append(frequency);
+        if (random.nextInt(3) == 0) {
+            rrule.append(";INTERVAL=").append(1 + random.nextInt(frequency == RecurrenceRule.Frequency.DAILY ? 10 : 4));
+        }
+        boolean hasBy = false;
+        if (random.nextInt(3) == 0) {
+            rrule.append(";BYMONTH=").append(join(random, 1, 3, () -> 1 + random.nextInt(12)));
+            hasBy = true;
+        }
+        if (frequency != RecurrenceRule.Frequency.WEEKLY && random.nextInt(3) == 0) {
+            rrule.append(";BYMONTHDAY=").append(join(random, 1, 3,
+                    () -> random.nextBoolean() ? 1 + random.nextInt(31) : -1 - random.nextInt(31)));
+            hasBy = true;
+        }
+        if (random.nextInt(2) == 0) {
+            boolean ordinals = (frequency == RecurrenceRule.Frequency.MONTHLY
+                    || frequency == RecurrenceRule.Frequency.YEARLY) && random.nextBoolean();
+            rrule.append(";BYDAY=").append(join(random, 1, 3, () -> {
+                String day = DAY_CODES[random.nextInt(7)];
+                if (!ordinals) {
+                    return day;
+                }
+                int ordinal = 1 + random.nextInt(5);
+                return (random.nextBoolean() ? ordinal : -ordinal) + day;
+            }));
+            hasBy = true;
+        }
+        if (hasBy && random.nextInt(4) == 0) {
+            rrule.append(";BYSETPOS=").append(join(random, 1, 2,
+                    () -> random.nextBoolean() ? 1 + random.nextInt(3) : -1 - random.nextInt(3)));
+        }
+        if (random.nextInt(4) == 0) {
+            rrule.append(";WKST=").append(DAY_CODES[random.nextInt(7)]);
+        }
+        switch (random.nextInt(3)) {
+            case 0 -> rrule.append(";COUNT=").append(1 + random.nextInt(40));
+            case 1 -> rrule.append(";UNTIL=").append(start.plusDays(random.nextInt(WINDOW_DAYS))
+                    .toString().replace("-", ""));
+            default -> {
+            }
+        }
+        return rrule.toString();
+    }
+
+    private static String join(Random random, int min, int max, Supplier<Object> item) {
+        Set<String> items = new LinkedHashSet<>();
+        for (int i = min + random.nextInt(max - min + 1); i > 0; i--) {
+            items.add(String.valueOf(item.get()));
+        }
+        return String.join(",", items);
+    }
+
+    private static List<LocalDate> between(List<LocalDate> dates, LocalDate from, LocalDate to) {
+        return dates.stream().filter(date -> !date.isBefore(from) && !date.isAfter(to)).toList();
+    }
+
+    /**
+     * 参考实现：逐日判断日期是否满足规则，按周期分组后应用 BYSETPOS，再合并开始日期、截取 COUNT、去掉排除日期
+     */
+    private static List<LocalDate> reference(LocalDate start, RecurrenceRule rule, Set<LocalDate> exdates,
+                                             LocalDate end) {
+        TreeMap<Long, List<LocalDate>> periods = new TreeMap<>();
+        // 判断开始日期所在周期到截止日期所在周期的每一天（BYSETPOS 按整个周期计位置）
+        for (LocalDate date = start.minusYears(1); !date.isAfter(end.plusYears(1)); date = date.plusDays(1)) {
+            long period = periodIndex(start, rule, date);
+            if (period < 0 || period % rule.getInterval() != 0 || !matches(start, rule, date)) {
+                continue;
+            }
+            periods.computeIfAbsent(period, key -> new ArrayList<>()).add(date);
+        }
+
+        TreeSet<LocalDate> dates = new TreeSet<>();
+        dates.add(start);
+        for (List<LocalDate> periodDates : periods.values()) {
+            for (LocalDate date : setPos(rule, periodDates)) {
+                if (!date.isBefore(start) && (rule.getUntil() == null || !date.isAfter(rule.getUntil()))) {
+                    dates.add(date);
+                }
+            }
+        }
+
+        List<LocalDate> occurrences = new ArrayList<>(dates);
+        if (rule.getCount() != null && occurrences.size() > rule.getCount()) {
+            occurrences = occurrences.subList(0, rule.getCount());
+        }
+        return occurrences.stream().filter(date -> !exdates.contains(date) && !date.isAfter(end)).toList();
+    }
+
+    private static long periodIndex(LocalDate start, RecurrenceRule rule, LocalDate date) {
+        return switch (rule.getFrequency()) {
+            case DAILY -> date.toEpochDay() - start.toEpochDay();
+            case WEEKLY -> Math.floorDiv(weekStart(rule, date).toEpochDay() - weekStart(rule, start).toEpochDay(), 7);
+            case MONTHLY -> (date.getYear() - start.getYear()) * 12L + date.getMonthValue() - start.getMonthValue();
+            case YEARLY -> date.getYear() - start.getYear();
+        };
+    }
+
+    private static LocalDate weekStart(RecurrenceRule rule, LocalDate date) {
+        return date.minusDays(Math.floorMod(date.getDayOfWeek().getValue() - rule.getWeekStart().getValue(), 7));
+    }
+
+    private static boolean matches(LocalDate start, RecurrenceRule rule, LocalDate date) {
+        if (!rule.getByMonth().isEmpty() && !rule.getByMonth().contains(date.getMonthValue())) {
+            return false;
+        }
+        switch (rule.getFrequency()) {
+            case DAILY -> {
+                return matchesMonthDay(rule, date) && (rule.getByDay().isEmpty() || rule.getByDay().stream()
+                        .anyMatch(day -> day.dayOfWeek() == date.getDayOfWeek()));
+            }
+            case WEEKLY -> {
+                return rule.getByDay().isEmpty()
+                        ? date.getDayOfWeek() == start.getDayOfWeek()
+                        : rule.getByDay().stream().anyMatch(day -> day.dayOfWeek() == date.getDayOfWeek());
+            }
+            default -> {
+                // BYDAY 序号相对所在月份（MONTHLY 或指定了 BYMONTH），否则相对全年
+                boolean inMonth = rule.getFrequency() == RecurrenceRule.Frequency.MONTHLY
+                        || !rule.getByMonth().isEmpty();
+                if (!rule.getByMonthDay().isEmpty()) {
+                    return matchesMonthDay(rule, date) && (rule.getByDay().isEmpty() || matchesDay(rule, date, inMonth));
+                }
+                if (!rule.getByDay().isEmpty()) {
+                    return matchesDay(rule, date, inMonth);
+                }
+                return date.getDayOfMonth() == start.getDayOfMonth() && (inMonth || date.getMonth() == start.getMonth());
+            }
+        }
+    }
+
+    private static boolean matchesMonthDay(RecurrenceRule rule, LocalDate date) {
+        return rule.getByMonthDay().isEmpty() || rule.getByMonthDay().stream().anyMatch(monthDay -> monthDay > 0
+                ? date.getDayOfMonth() == monthDay
+                : date.lengthOfMonth() - date.getDayOfMonth() + 1 == -monthDay);
+    }
+
+    private static boolean matchesDay(RecurrenceRule rule, LocalDate date, boolean inMonth) {
+        int dayOfScope = inMonth ? date.getDayOfMonth() : date.getDayOfYear();
+        int scopeLength = inMonth ? date.lengthOfMonth() : date.lengthOfYear();
+        DayOfWeek dayOfWeek = date.getDayOfWeek();
+        return rule.getByDay().stream().anyMatch(day -> day.dayOfWeek() == dayOfWeek && (day.ordinal() == 0
+                || (day.ordinal() > 0 && (dayOfScope - 1) / 7 + 1 == day.ordinal())
+                || (day.ordinal() < 0 && (scopeLength - dayOfScope) / 7 + 1 == -day.ordinal())));
+    }
+
+    private static List<LocalDate> setPos(RecurrenceRule rule, List<LocalDate> periodDates) {
+        if (rule.getBySetPos().isEmpty()) {
+            return periodDates;
+        }
+        List<LocalDate> selected = new ArrayList<>();
+        for (int position : rule.getBySetPos()) {
+            int index = position > 0 ? position - 1 : periodDates.size() + position;
+            if (index >= 0 && index < periodDates.size()) {
+                selected.add(periodDates.get(index));
+            }
+        }
+        return selected;
+    }
+}
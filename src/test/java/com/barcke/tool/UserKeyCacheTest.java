@@ -0,0 +1,105 @@
+package com.barcke.tool;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Barcke
+ * @version 1.0
+ * @projectName calendar-design
+ * @className UserKeyCacheTest
+ * @date 2025/12/26
+ * @slogan: 源于生活 高于生活
+ * @description: 用户密钥缓存测试（容量淘汰、轮换期间的旧密钥写入）
+ **/
+class UserKeyCacheTest {
+
+    private UserKeyCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new UserKeyCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxSize", 2);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 600L);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntry() {
+        cache.putCurrent("a", 1, key(1), cache.generation("a"));
+        cache.putCurrent("b", 1, key(2), cache.generation("b"));
+        // 访问 a 后 b 成为最久未访问的条目
+        assertNotNull(cache.getCurrent("a"));
+        cache.putCurrent("c", 1, key(3), cache.generation("c"));
+
+        assertNotNull(cache.getCurrent("a"));
+        assertNull(cache.getCurrent("b"));
+        assertNotNull(cache.getCurrent("c"));
+        assertEquals(1, cache.stats().getEvictionCount());
+        assertEquals(2, cache.stats().getSize());
+    }
+
+    @Test
+    void expiredEntryIsRemovedOnLookup() {
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 0L);
+        cache.putCurrent("a", 1, key(1), cache.generation("a"));
+
+        assertNull(cache.getCurrent("a"));
+        assertEquals(0, cache.stats().getSize());
+    }
+
+    @Test
+    void stalePutAfterInvalidateIsIgnored() {
+        // 读取方在轮换前读到旧版本，轮换提交后的失效先于读取方写入
+        long generation = cache.generation("a");
+        cache.invalidate("a");
+        cache.putCurrent("a", 1, key(1), generation);
+        cache.put("a", 1, key(1), generation);
+
+        assertNull(cache.getCurrent("a"));
+        assertNull(cache.get("a", 1));
+    }
+
+    @Test
+    void invalidateDoesNotDiscardOtherUsersPuts() {
+        long generationA = cache.generation("a");
+        long generationB = cache.generation("b");
+        cache.invalidate("b");
+        cache.putCurrent("a", 1, key(1), generationA);
+        cache.putCurrent("b", 1, key(2), generationB);
+
+        assertNotNull(cache.getCurrent("a"));
+        assertNull(cache.getCurrent("b"));
+    }
+
+    @Test
+    void stalePutAfterClearIsIgnored() {
+        long generation = cache.generation("a");
+        cache.invalidate("a");
+        cache.clear();
+        cache.putCurrent("a", 1, key(1), generation);
+        assertNull(cache.getCurrent("a"));
+
+        cache.putCurrent("a", 1, key(1), cache.generation("a"));
+        assertNotNull(cache.getCurrent("a"));
+    }
+
+    @Test
+    void olderVersionDoesNotReplaceCurrent() {
+        cache.putCurrent("a", 2, key(2), cache.generation("a"));
+        cache.putCurrent("a", 1, key(1), cache.generation("a"));
+
+        assertEquals(2, cache.getCurrent("a").getKeyVersion());
+    }
+
+    private static byte[] key(int value) {
+        byte[] key = new byte[32];
+        Arrays.fill(key, (byte) value);
+        return key;
+    }
+}